@@ -0,0 +1,117 @@
+package com.nomnom.cart_service.config;
+
+import com.nomnom.cart_service.model.Cart;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Creates the indexes declared on our documents at startup. Spring's automatic index creation is off by default,
+ * and the unique cart key is what stops two concurrent first adds from creating two carts. The TTL index on
+ * updatedAt is configured rather than declared, so a changed TTL is applied to the existing index in place.
+ *
+ * <p>Before that key was unique, the same race could leave two carts for one customer and restaurant, and the index
+ * can't be built over them. Until it exists, duplicates are removed first, keeping the most recently updated cart.
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Cart.class);
+    private static final String EXPIRY_INDEX = "updatedAt_ttl";
+    private static final String CART_KEY_INDEX = "customer_restaurant";
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mongoMappingContext;
+    private final long expireAfterSeconds;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate, MongoMappingContext mongoMappingContext,
+                                 @Value("${cart.expiry.ttl-seconds:604800}") long ttlSeconds,
+                                 @Value("${cart.expiry.ttl-grace-seconds:3600}") long graceSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.mongoMappingContext = mongoMappingContext;
+        // The sweeper deletes carts at the TTL and reports what it removed; the index only catches what it missed
+        this.expireAfterSeconds = ttlSeconds > 0 ? ttlSeconds + graceSeconds : 0;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        removeDuplicateCarts();
+        try {
+            ensureDeclaredIndexes();
+        } catch (DuplicateKeyException e) {
+            // A duplicate written while this instance was starting, e.g. by an instance still on the old code
+            removeDuplicateCarts();
+            ensureDeclaredIndexes();
+        }
+        ensureExpiryIndex();
+    }
+
+    /**
+     * Deletes every cart but the most recently updated one of each customer and restaurant. Does nothing once the
+     * unique cart key exists, so the collection is only scanned until the index has been built. Returns how many
+     * carts were deleted.
+     */
+    long removeDuplicateCarts() {
+        boolean indexed = mongoTemplate.indexOps(Cart.class).getIndexInfo().stream()
+                .anyMatch(index -> CART_KEY_INDEX.equals(index.getName()));
+        if (indexed) {
+            return 0;
+        }
+        Aggregation duplicates = Aggregation.newAggregation(
+                Aggregation.sort(Sort.Direction.DESC, "updatedAt"),
+                Aggregation.group("customerId", "restaurantId").push("_id").as("ids").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1)))
+                .withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+        long removed = 0;
+        for (Document duplicate : mongoTemplate.aggregate(duplicates, Cart.class, Document.class).getMappedResults()) {
+            List<Object> ids = duplicate.getList("ids", Object.class);
+            removed += mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids.subList(1, ids.size()))), Cart.class)
+                    .getDeletedCount();
+        }
+        return removed;
+    }
+
+    private void ensureDeclaredIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        for (Class<?> document : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(document);
+            resolver.resolveIndexFor(document).forEach(indexOps::ensureIndex);
+        }
+    }
+
+    private void ensureExpiryIndex() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Cart.class);
+        Optional<IndexInfo> existing = indexOps.getIndexInfo().stream()
+                .filter(index -> EXPIRY_INDEX.equals(index.getName()))
+                .findFirst();
+        if (expireAfterSeconds <= 0) {
+            existing.ifPresent(index -> indexOps.dropIndex(EXPIRY_INDEX));
+            return;
+        }
+        Duration expireAfter = Duration.ofSeconds(expireAfterSeconds);
+        if (existing.isEmpty()) {
+            indexOps.ensureIndex(new Index().on("updatedAt", Sort.Direction.ASC).expire(expireAfter).named(EXPIRY_INDEX));
+        } else if (!existing.get().getExpireAfter().equals(Optional.of(expireAfter))) {
+            mongoTemplate.getDb().runCommand(new Document("collMod", mongoTemplate.getCollectionName(Cart.class))
+                    .append("index", new Document("name", EXPIRY_INDEX).append("expireAfterSeconds", expireAfterSeconds)));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.nomnom.cart_service.config;
 
+import com.nomnom.cart_service.service.CartSnapshotService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -15,8 +16,9 @@ public class WebConfig {
             public void addCorsMappings(CorsRegistry registry) {
                 registry.addMapping("/**") // Allow CORS for all endpoints
                         .allowedOrigins("http://localhost:3000") // Allow requests from the frontend
-                        .allowedMethods("GET", "POST", "PUT", "DELETE") // Allow specific HTTP methods
+                        .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE") // Allow specific HTTP methods
                         .allowedHeaders("Content-Type", "Authorization") // Allow specific headers
+                        .exposedHeaders(CartSnapshotService.HEADER) // Let the frontend read the signed cart snapshot
                         .allowCredentials(true); // Allow cookies or authentication headers if needed
             }
         };
@@ -3,9 +3,11 @@ package com.nomnom.cart_service.controller;
 import com.nomnom.cart_service.dto.CartDTO;
 import com.nomnom.cart_service.model.Cart;
 import com.nomnom.cart_service.request.AddItemToCartRequest;
+import com.nomnom.cart_service.request.CartOperationsRequest;
 import com.nomnom.cart_service.response.CartResponse;
 import com.nomnom.cart_service.service.ICart;
 import com.nomnom.cart_service.service.CartService;
+import com.nomnom.cart_service.service.CartSnapshotService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,10 +22,14 @@ import java.util.Map;
 public class CartController {
 
     private final ICart cartService;
+    private final CartSnapshotService cartSnapshotService;
 
     @GetMapping("/{customerId}/{restaurantId}")
     public ResponseEntity<CartDTO> getCart(@PathVariable String customerId, @PathVariable String restaurantId) {
-        return ResponseEntity.ok(mapToCartDTO(cartService.getCart(customerId, restaurantId)));
+        Cart cart = cartService.getCart(customerId, restaurantId);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        cartSnapshotService.sign(cart).ifPresent(token -> response.header(CartSnapshotService.HEADER, token));
+        return response.body(mapToCartDTO(cart));
     }
 
     @PostMapping("/add/{customerId}/{restaurantId}")
@@ -63,6 +69,25 @@ public class CartController {
         return ResponseEntity.ok(updatedCart);
     }
 
+    // Ordered add / set-quantity / remove / clear operations, applied to the cart in one atomic write.
+    // Returns the final cart, or a CartResponse carrying the validation message when the batch is rejected.
+    @PatchMapping("/{customerId}/{restaurantId}")
+    public ResponseEntity<?> applyOperations(
+            @PathVariable String customerId,
+            @PathVariable String restaurantId,
+            @RequestBody CartOperationsRequest request) {
+        List<CartOperationsRequest.Operation> operations =
+                request.getOperations() != null ? request.getOperations() : List.of();
+        try {
+            Cart cart = cartService.applyOperations(customerId, restaurantId, operations);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            cartSnapshotService.sign(cart).ifPresent(token -> response.header(CartSnapshotService.HEADER, token));
+            return response.body(mapToCartDTO(cart));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new CartResponse(e.getMessage(), null));
+        }
+    }
+
     @DeleteMapping("/remove/{customerId}/{restaurantId}/{itemId}")
     public ResponseEntity<Void> removeItemFromCart(
             @PathVariable String customerId,
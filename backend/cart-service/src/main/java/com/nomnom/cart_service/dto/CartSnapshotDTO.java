@@ -0,0 +1,41 @@
+package com.nomnom.cart_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Payload of the signed cart snapshot token; short property names keep the token compact
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartSnapshotDTO {
+    @JsonProperty("c")
+    private String customerId;
+    @JsonProperty("r")
+    private String restaurantId;
+    @JsonProperty("e")
+    private long expiresAt; // epoch seconds
+    @JsonProperty("i")
+    private List<Item> items;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Item {
+        @JsonProperty("id")
+        private String itemId;
+        @JsonProperty("n")
+        private String itemName;
+        @JsonProperty("q")
+        private int quantity;
+        @JsonProperty("s")
+        private String potionSize;
+        @JsonProperty("p")
+        private double price;
+        @JsonProperty("img")
+        private String image;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
@@ -11,6 +12,7 @@ import java.util.Date;
 import java.util.List;
 
 @Document(collection = "carts")
+@CompoundIndex(name = "customer_restaurant", def = "{'customerId': 1, 'restaurantId': 1}", unique = true)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -0,0 +1,32 @@
+package com.nomnom.cart_service.request;
+
+import com.nomnom.cart_service.model.CartItem;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartOperationsRequest {
+    private List<Operation> operations; // applied in order
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Operation {
+        private OperationType type;
+        private String itemId;                  // all but CLEAR
+        private String itemName;                // ADD only
+        private int quantity;                   // ADD: amount to add; SET_QUANTITY: new quantity, 0 or less removes
+        private CartItem.PotionSize potionSize; // ADD only
+        private double unitPrice;               // ADD only
+        private String image;                   // ADD only
+
+        public enum OperationType {
+            ADD, SET_QUANTITY, REMOVE, CLEAR
+        }
+    }
+}
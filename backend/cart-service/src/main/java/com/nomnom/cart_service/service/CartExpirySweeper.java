@@ -0,0 +1,98 @@
+package com.nomnom.cart_service.service;
+
+import com.mongodb.client.result.DeleteResult;
+import com.nomnom.cart_service.model.Cart;
+import com.nomnom.cart_service.writeback.WriteBackCartStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes carts that haven't been touched for the configured TTL and reports how many went and how many bytes of
+ * documents that freed. Every mutation sets updatedAt in the same write, so editing a cart is what extends it.
+ * The TTL index on updatedAt, set a grace period later, is the backstop when no instance is sweeping. With the
+ * write-back tier on, pending edits are flushed and expired carts dropped from the tier before Mongo is swept.
+ */
+@Component
+public class CartExpirySweeper {
+
+    private final MongoTemplate mongoTemplate;
+    private final WriteBackCartStore hotCarts;
+    private final long ttlMillis;
+    private final int batchSize;
+    private final Counter expired;
+    private final Counter bytesReclaimed;
+    private final Timer sweeps;
+
+    public CartExpirySweeper(MongoTemplate mongoTemplate,
+                             WriteBackCartStore hotCarts,
+                             MeterRegistry meterRegistry,
+                             @Value("${cart.expiry.ttl-seconds:604800}") long ttlSeconds,
+                             @Value("${cart.expiry.sweep-batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.hotCarts = hotCarts;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.batchSize = batchSize;
+        this.expired = meterRegistry.counter("cart.expiry.expired");
+        this.bytesReclaimed = meterRegistry.counter("cart.expiry.bytes.reclaimed");
+        this.sweeps = meterRegistry.timer("cart.expiry.sweeps");
+    }
+
+    @Scheduled(fixedDelayString = "${cart.expiry.sweep-interval-ms:300000}", initialDelayString = "${cart.expiry.sweep-interval-ms:300000}")
+    public void sweep() {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        Date cutoff = new Date(System.currentTimeMillis() - ttlMillis);
+        // Recent edits reach Mongo before it is swept, and the tier lets go of what is about to be deleted
+        hotCarts.flush();
+        hotCarts.expire(cutoff);
+        int swept;
+        do {
+            swept = sweepBatch(cutoff);
+        } while (swept == batchSize);
+        sweeps.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reads the ids and BSON sizes of up to one batch of expired carts from the updatedAt index, then deletes them
+     * one at a time with the cutoff still in the filter, so a cart edited in between survives. Only carts this
+     * instance actually deleted are counted; one another instance got to first is not. Returns the batch size read.
+     */
+    int sweepBatch(Date cutoff) {
+        AggregationOperation sizes = context -> new Document("$project",
+                new Document("size", new Document("$bsonSize", "$$ROOT")));
+        List<Document> batch = mongoTemplate.aggregate(Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("updatedAt").lt(cutoff)),
+                Aggregation.limit(batchSize),
+                sizes), Cart.class, Document.class).getMappedResults();
+
+        long deleted = 0;
+        long bytes = 0;
+        for (Document cart : batch) {
+            DeleteResult result = mongoTemplate.remove(Query.query(Criteria.where("_id").is(cart.get("_id"))
+                    .and("updatedAt").lt(cutoff)), Cart.class);
+            if (result.getDeletedCount() == 1) {
+                deleted++;
+                bytes += cart.getInteger("size");
+            }
+        }
+        expired.increment(deleted);
+        bytesReclaimed.increment(bytes);
+        return batch.size();
+    }
+}
@@ -3,98 +3,316 @@ package com.nomnom.cart_service.service;
 import com.nomnom.cart_service.model.Cart;
 import com.nomnom.cart_service.model.CartItem;
 import com.nomnom.cart_service.repository.CartRepository;
+import com.nomnom.cart_service.request.CartOperationsRequest;
+import com.nomnom.cart_service.writeback.WriteBackCartStore;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class CartService implements ICart {
 
+    private static final int MAX_OPERATIONS = 100;
+
     private final CartRepository cartRepository;
+    private final MongoTemplate mongoTemplate;
+    private final WriteBackCartStore hotCarts;
 
-    public CartService(CartRepository cartRepository) {
+    public CartService(CartRepository cartRepository, MongoTemplate mongoTemplate, WriteBackCartStore hotCarts) {
         this.cartRepository = cartRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.hotCarts = hotCarts;
     }
 
-    private Cart createNewCart(String customerId, String restaurantId) {
+    // Unsaved stand-in for a cart that has never had an item; the document is only created by the first add
+    private Cart emptyCart(String customerId, String restaurantId) {
         Cart cart = new Cart();
         cart.setCustomerId(customerId);
         cart.setRestaurantId(restaurantId);
-        return cartRepository.save(cart);
+        return cart;
     }
 
     @Override
     public Cart getCart(String customerId, String restaurantId) {
+        if (hotCarts.isEnabled()) {
+            return orEmpty(hotCarts.find(customerId, restaurantId), customerId, restaurantId);
+        }
         return cartRepository.findByCustomerIdAndRestaurantId(customerId, restaurantId)
-                .orElseGet(() -> createNewCart(customerId, restaurantId));
+                .orElseGet(() -> emptyCart(customerId, restaurantId));
     }
 
     @Override
     public Cart addItemToCart(String customerId, String restaurantId, CartItemRequest item) {
-        Cart cart = getCart(customerId, restaurantId);
+        if (hotCarts.isEnabled()) {
+            return hotCarts.update(customerId, restaurantId, cart -> {
+                addItem(cart, item);
+                return true;
+            });
+        }
+        // Merging into an existing line happens inside the update, so two concurrent adds both count
+        return upsert(customerId, restaurantId, List.of(itemsAfterAdd(item)));
+    }
+
+    @Override
+    public Cart updateCartItemQuantity(String customerId, String restaurantId, String itemId, int newQuantity) {
+        if (newQuantity <= 0) {
+            return removeItemFromCart(customerId, restaurantId, itemId);
+        }
+        if (hotCarts.isEnabled()) {
+            return orEmpty(hotCarts.update(customerId, restaurantId, cart -> setQuantity(cart, itemId, newQuantity)),
+                    customerId, restaurantId);
+        }
+        Cart cart = findAndModify(cartCriteria(customerId, restaurantId).and("items.itemId").is(itemId),
+                List.of(itemsWithQuantity(itemId, newQuantity)), false);
+        return cart != null ? cart : getCart(customerId, restaurantId);
+    }
+
+    @Override
+    public Cart removeItemFromCart(String customerId, String restaurantId, String itemId) {
+        if (hotCarts.isEnabled()) {
+            return orEmpty(hotCarts.update(customerId, restaurantId, cart -> removeItem(cart, itemId)),
+                    customerId, restaurantId);
+        }
+        Cart cart = findAndModify(cartCriteria(customerId, restaurantId).and("items.itemId").is(itemId),
+                List.of(itemsWithout(itemId)), false);
+        return cart != null ? cart : getCart(customerId, restaurantId);
+    }
+
+    @Override
+    public Cart applyOperations(String customerId, String restaurantId, List<CartOperationsRequest.Operation> operations) {
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_OPERATIONS + " operations per request");
+        }
+        operations.forEach(CartService::validate);
+        if (operations.isEmpty()) {
+            return getCart(customerId, restaurantId);
+        }
+        if (hotCarts.isEnabled()) {
+            return orEmpty(hotCarts.update(customerId, restaurantId, cart -> {
+                boolean changed = false;
+                for (CartOperationsRequest.Operation operation : operations) {
+                    changed |= apply(cart, operation);
+                }
+                return changed;
+            }), customerId, restaurantId);
+        }
+        // Each operation is its own $set of items over the previous stage's result, so they run in order in one write
+        List<AggregationExpression> stages = operations.stream().map(CartService::itemsAfter).toList();
+        boolean adds = operations.stream()
+                .anyMatch(operation -> operation.getType() == CartOperationsRequest.Operation.OperationType.ADD);
+        Cart cart = adds ? upsert(customerId, restaurantId, stages)
+                : findAndModify(cartCriteria(customerId, restaurantId), stages, false);
+        return orEmpty(cart, customerId, restaurantId);
+    }
+
+    private static void validate(CartOperationsRequest.Operation operation) {
+        if (operation.getType() == null) {
+            throw new IllegalArgumentException("Every operation needs a type");
+        }
+        if (operation.getType() != CartOperationsRequest.Operation.OperationType.CLEAR && operation.getItemId() == null) {
+            throw new IllegalArgumentException(operation.getType() + " needs an itemId");
+        }
+        if (operation.getType() == CartOperationsRequest.Operation.OperationType.ADD
+                && (operation.getQuantity() <= 0 || operation.getPotionSize() == null)) {
+            throw new IllegalArgumentException("ADD needs a positive quantity and a potion size");
+        }
+    }
+
+    private Cart upsert(String customerId, String restaurantId, List<AggregationExpression> itemStages) {
+        try {
+            return findAndModify(cartCriteria(customerId, restaurantId), itemStages, true);
+        } catch (DuplicateKeyException e) {
+            // Lost a race to create the cart; it exists now, so the same update simply matches it
+            return findAndModify(cartCriteria(customerId, restaurantId), itemStages, true);
+        }
+    }
+
+    /**
+     * Replaces items with each given expression in turn and then derives totalPrice from the final items, all as
+     * stages of one pipeline update, so the total can never disagree with the lines. Returns the post-image, or
+     * null when nothing matched and no upsert was requested.
+     */
+    private Cart findAndModify(Criteria criteria, List<AggregationExpression> itemStages, boolean upsert) {
+        Date now = new Date();
+        AggregationUpdate update = AggregationUpdate.update();
+        for (AggregationExpression items : itemStages) {
+            update.set("items").toValue(items);
+        }
+        AggregationExpression totalPrice = context -> new Document("$sum", "$items.totalPrice");
+        AggregationExpression createdAt = context -> new Document("$ifNull", Arrays.asList("$createdAt", now));
+        update.set("totalPrice").toValue(totalPrice)
+                .set("createdAt").toValue(createdAt)
+                .set("updatedAt").toValue(now);
+        return mongoTemplate.findAndModify(Query.query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true).upsert(upsert), Cart.class);
+    }
+
+    private static AggregationExpression itemsAfter(CartOperationsRequest.Operation operation) {
+        return switch (operation.getType()) {
+            case ADD -> itemsAfterAdd(toItemRequest(operation));
+            case SET_QUANTITY -> operation.getQuantity() > 0
+                    ? itemsWithQuantity(operation.getItemId(), operation.getQuantity())
+                    : itemsWithout(operation.getItemId());
+            case REMOVE -> itemsWithout(operation.getItemId());
+            case CLEAR -> context -> literal(List.of());
+        };
+    }
+
+    private static AggregationExpression itemsAfterAdd(CartItemRequest item) {
+        String potionSize = item.getPotionSize() != null ? item.getPotionSize().name() : null;
+        AggregationExpression increasedQuantity = context -> new Document("$add", Arrays.asList(
+                "$$item.quantity", item.getQuantity()));
+        AggregationExpression mergedItem = context -> new Document("$mergeObjects", Arrays.asList("$$item",
+                new Document("quantity", increasedQuantity.toDocument(context))
+                        .append("potionSize", literal(potionSize))
+                        .append("price", item.getUnitPrice())
+                        .append("totalPrice", new Document("$multiply", Arrays.asList(
+                                item.getUnitPrice(), increasedQuantity.toDocument(context))))));
+        Document newItem = new Document("itemId", item.getItemId())
+                .append("itemName", item.getItemName())
+                .append("quantity", item.getQuantity())
+                .append("potionSize", potionSize)
+                .append("price", item.getUnitPrice())
+                .append("totalPrice", item.getUnitPrice() * item.getQuantity())
+                .append("image", item.getImage());
+        return context -> new Document("$let", new Document()
+                .append("vars", new Document("items", currentItems()))
+                .append("in", new Document("$cond", Arrays.asList(
+                        new Document("$in", Arrays.asList(literal(item.getItemId()), "$$items.itemId")),
+                        mapItem("$$items", item.getItemId(), mergedItem.toDocument(context)),
+                        new Document("$concatArrays", Arrays.asList("$$items", List.of(literal(newItem))))))));
+    }
+
+    private static AggregationExpression itemsWithQuantity(String itemId, int newQuantity) {
+        Document updatedItem = new Document("$mergeObjects", Arrays.asList("$$item",
+                new Document("quantity", newQuantity)
+                        .append("totalPrice", new Document("$multiply", Arrays.asList("$$item.price", newQuantity)))));
+        return context -> mapItem(currentItems(), itemId, updatedItem);
+    }
+
+    private static AggregationExpression itemsWithout(String itemId) {
+        return context -> new Document("$filter", new Document()
+                .append("input", currentItems())
+                .append("as", "item")
+                .append("cond", new Document("$ne", Arrays.asList("$$item.itemId", literal(itemId)))));
+    }
+
+    // Missing only on a cart being created by this update
+    private static Document currentItems() {
+        return new Document("$ifNull", Arrays.asList("$items", List.of()));
+    }
+
+    private static Criteria cartCriteria(String customerId, String restaurantId) {
+        return Criteria.where("customerId").is(customerId).and("restaurantId").is(restaurantId);
+    }
+
+    private static Document mapItem(Object input, String itemId, Document replacement) {
+        return new Document("$map", new Document()
+                .append("input", input)
+                .append("as", "item")
+                .append("in", new Document("$cond", Arrays.asList(
+                        new Document("$eq", Arrays.asList("$$item.itemId", literal(itemId))), replacement, "$$item"))));
+    }
+
+    // Client-supplied values must never be read as field paths or operators
+    private static Document literal(Object value) {
+        return new Document("$literal", value);
+    }
+
+    // In-memory equivalents of the updates above, for carts held by the write-back tier
+
+    private static void addItem(Cart cart, CartItemRequest item) {
         Optional<CartItem> existingItem = cart.getItems().stream()
                 .filter(i -> i.getItemId().equals(item.getItemId()))
                 .findFirst();
-
         if (existingItem.isPresent()) {
             CartItem cartItem = existingItem.get();
             cartItem.setQuantity(cartItem.getQuantity() + item.getQuantity());
-            cartItem.setPrice(item.getUnitPrice()); // Use the provided unit price
-            cartItem.setPotionSize(item.getPotionSize()); // Set the potion size
+            cartItem.setPrice(item.getUnitPrice());
+            cartItem.setPotionSize(item.getPotionSize());
             cartItem.updateTotalPrice();
         } else {
-            CartItem newItem = new CartItem(
-                    item.getItemId(),
-                    item.getItemName(),
-                    item.getQuantity(),
-                    item.getPotionSize(), // Pass the potion size
-                    item.getUnitPrice(),  // Use the provided unit price
-                    item.getImage()
-            );
-            newItem.updateTotalPrice();
-            cart.getItems().add(newItem);
+            cart.getItems().add(new CartItem(item.getItemId(), item.getItemName(), item.getQuantity(),
+                    item.getPotionSize(), item.getUnitPrice(), item.getImage()));
         }
         cart.recalculateTotalPrice();
-        return cartRepository.save(cart);
     }
 
-    @Override
-    public Cart updateCartItemQuantity(String customerId, String restaurantId, String itemId, int newQuantity) {
-        Cart cart = getCart(customerId, restaurantId);
-        Optional<CartItem> optionalCartItem = cart.getItems().stream()
+    private static boolean setQuantity(Cart cart, String itemId, int newQuantity) {
+        Optional<CartItem> cartItem = cart.getItems().stream()
                 .filter(i -> i.getItemId().equals(itemId))
                 .findFirst();
-        if (optionalCartItem.isPresent()) {
-            CartItem cartItem = optionalCartItem.get();
-            if (newQuantity <= 0) {
-                cart.getItems().remove(cartItem); // Remove item if quantity is zero or negative
-            } else {
-                cartItem.setQuantity(newQuantity); // Update quantity
-                cartItem.updateTotalPrice(); // Recalculate total price using existing unit price
-            }
-        }
-        cart.recalculateTotalPrice(); // Recalculate the total price of the cart
-        return cartRepository.save(cart); // Save the updated cart
+        cartItem.ifPresent(i -> {
+            i.setQuantity(newQuantity);
+            i.updateTotalPrice();
+            cart.recalculateTotalPrice();
+        });
+        return cartItem.isPresent();
     }
 
-    @Override
-    public Cart removeItemFromCart(String customerId, String restaurantId, String itemId) {
-        Cart cart = getCart(customerId, restaurantId);
-
-        cart.getItems().removeIf(item -> item.getItemId().equals(itemId));
+    private static boolean removeItem(Cart cart, String itemId) {
+        boolean removed = cart.getItems().removeIf(item -> item.getItemId().equals(itemId));
         cart.recalculateTotalPrice();
+        return removed;
+    }
 
-        return cartRepository.save(cart);
+    private static boolean apply(Cart cart, CartOperationsRequest.Operation operation) {
+        return switch (operation.getType()) {
+            case ADD -> {
+                addItem(cart, toItemRequest(operation));
+                yield true;
+            }
+            case SET_QUANTITY -> operation.getQuantity() > 0
+                    ? setQuantity(cart, operation.getItemId(), operation.getQuantity())
+                    : removeItem(cart, operation.getItemId());
+            case REMOVE -> removeItem(cart, operation.getItemId());
+            case CLEAR -> {
+                boolean hadItems = !cart.getItems().isEmpty();
+                cart.getItems().clear();
+                cart.recalculateTotalPrice();
+                yield hadItems;
+            }
+        };
+    }
+
+    private static CartItemRequest toItemRequest(CartOperationsRequest.Operation operation) {
+        CartItemRequest item = new CartItemRequest();
+        item.setItemId(operation.getItemId());
+        item.setItemName(operation.getItemName());
+        item.setQuantity(operation.getQuantity());
+        item.setPotionSize(operation.getPotionSize());
+        item.setUnitPrice(operation.getUnitPrice());
+        item.setImage(operation.getImage());
+        return item;
+    }
+
+    private Cart orEmpty(Cart cart, String customerId, String restaurantId) {
+        return cart != null ? cart : emptyCart(customerId, restaurantId);
     }
 
     @Override
     public void clearCart(String customerId, String restaurantId) {
+        if (hotCarts.isEnabled()) {
+            hotCarts.clear(customerId, restaurantId);
+            return;
+        }
         cartRepository.deleteByCustomerIdAndRestaurantId(customerId, restaurantId);
     }
 
     @Override
     public List<Cart> getAllCarts() {
+        hotCarts.flush(); // so the listing includes carts only the write-back tier has seen
         return cartRepository.findAll();
     }
 
@@ -0,0 +1,69 @@
+package com.nomnom.cart_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.cart_service.dto.CartSnapshotDTO;
+import com.nomnom.cart_service.model.Cart;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Issues HMAC-SHA256 signed snapshots of a cart so order-service can build an order without calling back here.
+ * Token format: base64url(json payload) + "." + base64url(signature). No token is issued when no secret is
+ * configured or the cart is empty.
+ */
+@Service
+public class CartSnapshotService {
+
+    public static final String HEADER = "X-Cart-Snapshot";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final byte[] secret;
+    private final long ttlSeconds;
+    private final ObjectMapper objectMapper;
+
+    public CartSnapshotService(@Value("${cart.snapshot.secret:}") String secret,
+                               @Value("${cart.snapshot.ttl-seconds:900}") long ttlSeconds,
+                               ObjectMapper objectMapper) {
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.ttlSeconds = ttlSeconds;
+        this.objectMapper = objectMapper;
+    }
+
+    public Optional<String> sign(Cart cart) {
+        if (secret.length == 0 || cart.getItems() == null || cart.getItems().isEmpty()) {
+            return Optional.empty();
+        }
+        CartSnapshotDTO snapshot = new CartSnapshotDTO(
+                cart.getCustomerId(),
+                cart.getRestaurantId(),
+                System.currentTimeMillis() / 1000 + ttlSeconds,
+                cart.getItems().stream().map(item -> new CartSnapshotDTO.Item(
+                        item.getItemId(),
+                        item.getItemName(),
+                        item.getQuantity(),
+                        item.getPotionSize() != null ? item.getPotionSize().name() : null,
+                        item.getPrice(),
+                        item.getImage()
+                )).toList()
+        );
+        try {
+            Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+            String payload = encoder.encodeToString(objectMapper.writeValueAsBytes(snapshot));
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            String signature = encoder.encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII)));
+            return Optional.of(payload + "." + signature);
+        } catch (JsonProcessingException | GeneralSecurityException e) {
+            // The snapshot is an optimisation; order-service falls back to fetching the cart
+            return Optional.empty();
+        }
+    }
+}
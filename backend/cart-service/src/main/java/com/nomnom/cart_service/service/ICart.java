@@ -1,6 +1,7 @@
 package com.nomnom.cart_service.service;
 
 import com.nomnom.cart_service.model.Cart;
+import com.nomnom.cart_service.request.CartOperationsRequest;
 
 import java.util.List;
 
@@ -14,6 +15,8 @@ public interface ICart {
 
     Cart removeItemFromCart(String customerId, String restaurantId, String itemId);
 
+    Cart applyOperations(String customerId, String restaurantId, List<CartOperationsRequest.Operation> operations);
+
     void clearCart(String customerId, String restaurantId);
 
     List<Cart> getAllCarts();
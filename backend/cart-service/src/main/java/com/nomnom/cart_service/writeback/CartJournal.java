@@ -0,0 +1,137 @@
+package com.nomnom.cart_service.writeback;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.cart_service.model.Cart;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of cart states not yet known to be in Mongo, one JSON line per mutation. The log is split into
+ * numbered segments: a flush first rolls to a new segment, and once everything written before the roll is in Mongo
+ * the sealed segments are deleted. A torn last line from a crash is skipped on replay.
+ */
+class CartJournal {
+
+    private static final String PREFIX = "carts-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+    private long segment; // receives appends; opened lazily so an idle tier creates no files
+    private FileChannel channel;
+
+    CartJournal(Path directory, boolean fsync, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(directory);
+            this.segment = segmentNumbers().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the cart journal in " + directory, e);
+        }
+    }
+
+    /** A cart's full state after a mutation; a null cart means it was cleared. */
+    record Record(String customerId, String restaurantId, Cart cart) {
+    }
+
+    synchronized void append(Record record) {
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(path(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            byte[] json = objectMapper.writeValueAsBytes(record);
+            ByteBuffer line = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the cart journal", e);
+        }
+    }
+
+    /** Seals the current segment and returns its number; everything appended afterwards goes to a later one. */
+    synchronized long roll() {
+        if (channel == null) {
+            return segment - 1; // nothing appended since the last roll
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not seal the cart journal", e);
+        } finally {
+            channel = null;
+        }
+        return segment++;
+    }
+
+    synchronized void deleteThrough(long sealed) {
+        try {
+            for (long number : segmentNumbers()) {
+                if (number <= sealed) {
+                    Files.deleteIfExists(path(number));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not trim the cart journal", e);
+        }
+    }
+
+    /** Every record still in the journal, oldest first. */
+    synchronized List<Record> replay() {
+        List<Record> records = new ArrayList<>();
+        try {
+            for (long number : segmentNumbers()) {
+                try (BufferedReader reader = Files.newBufferedReader(path(number), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        try {
+                            records.add(objectMapper.readValue(line, Record.class));
+                        } catch (JsonProcessingException e) {
+                            // Only the line being written when the process died can be incomplete
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay the cart journal", e);
+        }
+        return records;
+    }
+
+    synchronized void close() {
+        roll();
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path path(long number) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, number, SUFFIX));
+    }
+}
@@ -0,0 +1,380 @@
+package com.nomnom.cart_service.writeback;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.cart_service.model.Cart;
+import com.nomnom.cart_service.model.CartItem;
+import com.nomnom.cart_service.repository.CartRepository;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-back tier in front of the carts collection. Carts being edited live in a bounded map; each
+ * mutation replaces the cart under its stripe lock, appends the new state to a local journal and marks the cart
+ * dirty. Dirty carts reach Mongo in batched bulk writes on a timer, before they are evicted and on shutdown, and
+ * the journal is replayed on startup so a crash loses nothing that was acknowledged.
+ *
+ * <p>Installed carts are never mutated again (mutations work on a copy), so they are handed out without copying.
+ * All Mongo writes happen on the flusher, serialized on one lock. Request threads only ever take a cart's stripe
+ * lock: they never write to Mongo and never wait for a flush. Eviction also runs on the flusher, right after the
+ * dirty carts are written, and drops the least recently used clean carts. The tier can therefore hold more than
+ * {@code max-carts} until the next flush. The tier assumes each cart is only edited through one instance.
+ */
+@Component
+public class WriteBackCartStore {
+
+    private static final int STRIPES = 64;
+
+    private final CartRepository cartRepository;
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int maxCarts;
+    private final int flushBatchSize;
+    private final CartJournal journal;
+    private final Map<CartKey, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<CartKey> dirtyKeys = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Object writeLock = new Object();
+
+    public WriteBackCartStore(CartRepository cartRepository,
+                              MongoTemplate mongoTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${cart.write-back.enabled:false}") boolean enabled,
+                              @Value("${cart.write-back.max-carts:50000}") int maxCarts,
+                              @Value("${cart.write-back.flush-batch-size:500}") int flushBatchSize,
+                              @Value("${cart.write-back.journal-dir:cart-journal}") String journalDir,
+                              @Value("${cart.write-back.journal-fsync:false}") boolean journalFsync) {
+        this.cartRepository = cartRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.maxCarts = maxCarts;
+        this.flushBatchSize = flushBatchSize;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.journal = enabled ? new CartJournal(Path.of(journalDir), journalFsync, objectMapper) : null;
+        if (enabled) {
+            replay();
+        }
+    }
+
+    /** Changes a cart in place; returns false when it left the cart unchanged, so nothing is written. */
+    @FunctionalInterface
+    public interface CartMutation {
+        boolean apply(Cart cart);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The cart as last written, or null if there is none. Misses are read from Mongo but not cached. */
+    public Cart find(String customerId, String restaurantId) {
+        CartKey key = new CartKey(customerId, restaurantId);
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                entry.lastAccessNanos = System.nanoTime();
+                return entry.cart;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return cartRepository.findByCustomerIdAndRestaurantId(customerId, restaurantId).orElse(null);
+    }
+
+    /**
+     * Applies the mutation to a copy of the cart (a new one if it doesn't exist yet) and installs the result.
+     * Returns the installed cart, or the current one (possibly null) if the mutation changed nothing.
+     */
+    public Cart update(String customerId, String restaurantId, CartMutation mutation) {
+        CartKey key = new CartKey(customerId, restaurantId);
+        Cart installed;
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            Entry entry = load(key);
+            Cart next = entry.cart != null ? copy(entry.cart) : newCart(customerId, restaurantId);
+            if (!mutation.apply(next)) {
+                return entry.cart;
+            }
+            next.setUpdatedAt(new Date());
+            install(entry, next);
+            installed = next;
+        } finally {
+            lock.unlock();
+        }
+        return installed;
+    }
+
+    public void clear(String customerId, String restaurantId) {
+        CartKey key = new CartKey(customerId, restaurantId);
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            Entry entry = load(key);
+            if (entry.cart != null) {
+                install(entry, null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every dirty cart, then evicts down to capacity. The journal is rolled first, so once every cart that
+     * was dirty at that point is in Mongo the sealed segments hold nothing that isn't, and are deleted. A failed
+     * batch leaves its carts dirty and the journal untouched for the next attempt.
+     */
+    @Scheduled(fixedDelayString = "${cart.write-back.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            long sealed = journal.roll();
+            List<Snapshot> batch = new ArrayList<>(flushBatchSize);
+            for (CartKey key : dirtyKeys) {
+                Snapshot snapshot = snapshot(key);
+                if (snapshot != null) {
+                    batch.add(snapshot);
+                }
+                if (batch.size() == flushBatchSize) {
+                    writeAndMarkClean(batch);
+                    batch.clear();
+                }
+            }
+            writeAndMarkClean(batch);
+            journal.deleteThrough(sealed);
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Drops every cart last changed before the cutoff, so once the expiry sweep deletes it from Mongo the tier
+     * neither serves it nor writes it back. Runs under the write lock so an in-flight flush can't resurrect it, and
+     * journals a tombstone for each cart so a replay after a crash can't either.
+     */
+    public void expire(Date cutoff) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            for (Entry entry : entries.values()) {
+                ReentrantLock lock = stripe(entry.key);
+                lock.lock();
+                try {
+                    Cart cart = entry.cart;
+                    if (entries.get(entry.key) == entry && cart != null && cart.getUpdatedAt() != null
+                            && cart.getUpdatedAt().before(cutoff)) {
+                        entries.remove(entry.key);
+                        dirtyKeys.remove(entry.key);
+                        // The cart's earlier records may still be in the unsealed segment; replay must not revive it
+                        journal.append(new CartJournal.Record(entry.key.customerId(), entry.key.restaurantId(), null));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            flush();
+            journal.close();
+        }
+    }
+
+    private void replay() {
+        for (CartJournal.Record record : journal.replay()) {
+            // Later records replace earlier ones; the segments stay until the first successful flush
+            Entry entry = entries.computeIfAbsent(new CartKey(record.customerId(), record.restaurantId()), Entry::new);
+            entry.cart = record.cart();
+            entry.version++;
+            dirtyKeys.add(entry.key);
+        }
+    }
+
+    // Caller holds the key's stripe lock
+    private Entry load(CartKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            entry.cart = cartRepository.findByCustomerIdAndRestaurantId(key.customerId(), key.restaurantId())
+                    .orElse(null);
+            entries.put(key, entry);
+        }
+        entry.lastAccessNanos = System.nanoTime();
+        return entry;
+    }
+
+    // Caller holds the key's stripe lock. Marked dirty before the journal append so a flush that rolls the
+    // journal after the append is guaranteed to see the cart as dirty.
+    private void install(Entry entry, Cart cart) {
+        entry.version++;
+        dirtyKeys.add(entry.key);
+        journal.append(new CartJournal.Record(entry.key.customerId(), entry.key.restaurantId(), cart));
+        entry.cart = cart;
+    }
+
+    // Flusher only, after a flush: the oldest-used carts go first, and only once they are clean
+    private void evictLeastRecentlyUsed() {
+        int excess = entries.size() - maxCarts;
+        if (excess <= 0) {
+            return;
+        }
+        // Access times keep moving, so they are captured once and sorted as captured
+        List<Candidate> candidates = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            candidates.add(new Candidate(entry, entry.lastAccessNanos));
+        }
+        candidates.sort(Comparator.comparingLong(Candidate::lastAccessNanos));
+        for (Candidate candidate : candidates) {
+            if (excess == 0) {
+                return;
+            }
+            if (evictIfIdle(candidate)) {
+                excess--;
+            }
+        }
+    }
+
+    /** Removes the entry unless it was used or edited since it was picked; a dirty cart waits for the next flush. */
+    private boolean evictIfIdle(Candidate candidate) {
+        Entry victim = candidate.entry();
+        ReentrantLock lock = stripe(victim.key);
+        lock.lock();
+        try {
+            if (entries.get(victim.key) != victim || victim.lastAccessNanos != candidate.lastAccessNanos()
+                    || dirtyKeys.contains(victim.key)) {
+                return false;
+            }
+            entries.remove(victim.key);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot snapshot(CartKey key) {
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                dirtyKeys.remove(key);
+                return null;
+            }
+            return new Snapshot(entry, entry.cart, entry.version);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeAndMarkClean(List<Snapshot> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        write(batch);
+        for (Snapshot snapshot : batch) {
+            ReentrantLock lock = stripe(snapshot.entry.key);
+            lock.lock();
+            try {
+                // Edited again while the batch was in flight: stays dirty for the next flush
+                if (snapshot.entry.version == snapshot.version) {
+                    dirtyKeys.remove(snapshot.entry.key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(List<Snapshot> batch) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Cart.class);
+        for (Snapshot snapshot : batch) {
+            CartKey key = snapshot.entry.key;
+            Query query = Query.query(Criteria.where("customerId").is(key.customerId())
+                    .and("restaurantId").is(key.restaurantId()));
+            Cart cart = snapshot.cart;
+            if (cart == null) {
+                bulk.remove(query);
+                continue;
+            }
+            Update update = new Update()
+                    .set("items", cart.getItems())
+                    .set("totalPrice", cart.getTotalPrice())
+                    .set("updatedAt", cart.getUpdatedAt())
+                    .setOnInsert("createdAt", cart.getCreatedAt());
+            if (cart.getId() != null && ObjectId.isValid(cart.getId())) {
+                update.setOnInsert("_id", new ObjectId(cart.getId()));
+            }
+            bulk.upsert(query, update);
+        }
+        bulk.execute();
+    }
+
+    private ReentrantLock stripe(CartKey key) {
+        return stripes[Math.floorMod(key.hashCode(), STRIPES)];
+    }
+
+    private static Cart newCart(String customerId, String restaurantId) {
+        Cart cart = new Cart();
+        cart.setId(new ObjectId().toHexString());
+        cart.setCustomerId(customerId);
+        cart.setRestaurantId(restaurantId);
+        return cart;
+    }
+
+    private static Cart copy(Cart cart) {
+        List<CartItem> items = new ArrayList<>(cart.getItems().size());
+        for (CartItem item : cart.getItems()) {
+            items.add(new CartItem(item.getItemId(), item.getItemName(), item.getQuantity(), item.getPotionSize(),
+                    item.getPrice(), item.getTotalPrice(), item.getImage()));
+        }
+        return new Cart(cart.getId(), cart.getCustomerId(), cart.getRestaurantId(), items, cart.getTotalPrice(),
+                cart.getCreatedAt(), cart.getUpdatedAt());
+    }
+
+    private record CartKey(String customerId, String restaurantId) {
+    }
+
+    private record Snapshot(Entry entry, Cart cart, long version) {
+    }
+
+    private record Candidate(Entry entry, long lastAccessNanos) {
+    }
+
+    // Fields are guarded by the key's stripe lock; the flusher also reads lastAccessNanos without it
+    private static final class Entry {
+        private final CartKey key;
+        private Cart cart; // null when the cart doesn't exist or was cleared
+        private long version;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private Entry(CartKey key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.nomnom.cart_service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.nomnom.cart_service.repository.CartRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base class for tests that need a real MongoDB. The container runs as a single-node replica set and subclasses
+ * are skipped when Docker isn't available. Each subclass uses its own database through {@link #templateFor(String)}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class MongoIntegrationTest {
+
+    @Container
+    protected static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    protected static MongoClient client;
+
+    @BeforeAll
+    static void openClient() {
+        client = MongoClients.create(mongo.getReplicaSetUrl());
+    }
+
+    @AfterAll
+    static void closeClient() {
+        client.close();
+    }
+
+    protected static MongoTemplate templateFor(String database) {
+        return new MongoTemplate(client, database);
+    }
+
+    protected static CartRepository cartRepository(MongoTemplate mongoTemplate) {
+        return new MongoRepositoryFactory(mongoTemplate).getRepository(CartRepository.class);
+    }
+}
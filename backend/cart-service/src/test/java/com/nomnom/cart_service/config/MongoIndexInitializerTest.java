@@ -0,0 +1,53 @@
+package com.nomnom.cart_service.config;
+
+import com.nomnom.cart_service.MongoIntegrationTest;
+import com.nomnom.cart_service.model.Cart;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoIndexInitializerTest extends MongoIntegrationTest {
+
+    private static MongoTemplate mongoTemplate;
+    private static MongoMappingContext mappingContext;
+
+    @BeforeAll
+    static void setUp() {
+        mongoTemplate = templateFor("cart_index_test");
+        mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+    }
+
+    @BeforeEach
+    void reset() {
+        mongoTemplate.dropCollection(Cart.class);
+    }
+
+    @Test
+    void duplicateCartsLeftByTheOldRaceDoNotStopTheUniqueIndex() {
+        mongoTemplate.insert(cart("old", "c1", 1_000));
+        mongoTemplate.insert(cart("newest", "c1", 3_000));
+        mongoTemplate.insert(cart("older", "c1", 2_000));
+        mongoTemplate.insert(cart("only", "c2", 1_000));
+
+        new MongoIndexInitializer(mongoTemplate, mappingContext, 0, 0).ensureIndexes();
+
+        assertThat(mongoTemplate.findAll(Cart.class)).extracting(Cart::getId).containsExactlyInAnyOrder("newest", "only");
+        assertThat(mongoTemplate.indexOps(Cart.class).getIndexInfo())
+                .filteredOn(index -> index.getName().equals("customer_restaurant"))
+                .singleElement()
+                .extracting(IndexInfo::isUnique)
+                .isEqualTo(true);
+    }
+
+    private static Cart cart(String id, String customerId, long updatedAt) {
+        return new Cart(id, customerId, "r1", new ArrayList<>(), 0, new Date(updatedAt), new Date(updatedAt));
+    }
+}
@@ -0,0 +1,120 @@
+package com.nomnom.cart_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.cart_service.MongoIntegrationTest;
+import com.nomnom.cart_service.config.MongoIndexInitializer;
+import com.nomnom.cart_service.model.Cart;
+import com.nomnom.cart_service.model.CartItem;
+import com.nomnom.cart_service.writeback.WriteBackCartStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartExpirySweeperTest extends MongoIntegrationTest {
+
+    private static final long TTL_SECONDS = 3600;
+
+    private static MongoTemplate mongoTemplate;
+    private static MongoMappingContext mappingContext;
+
+    @BeforeAll
+    static void setUp() {
+        mongoTemplate = templateFor("cart_expiry_test");
+        mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+    }
+
+    @BeforeEach
+    void reset() {
+        mongoTemplate.dropCollection(Cart.class);
+    }
+
+    @Test
+    void sweepRemovesOnlyStaleCartsAndReportsWhatItFreed() {
+        new MongoIndexInitializer(mongoTemplate, mappingContext, TTL_SECONDS, 60).ensureIndexes();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            mongoTemplate.insert(cart("stale-" + i, new Date(now - Duration.ofHours(2).toMillis())));
+        }
+        mongoTemplate.insert(cart("fresh", new Date(now - Duration.ofMinutes(5).toMillis())));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WriteBackCartStore disabledTier = new WriteBackCartStore(null, mongoTemplate, new ObjectMapper(), false, 0, 0,
+                null, false);
+        new CartExpirySweeper(mongoTemplate, disabledTier, meterRegistry, TTL_SECONDS, 2).sweep();
+
+        List<Cart> remaining = mongoTemplate.findAll(Cart.class);
+        assertThat(remaining).extracting(Cart::getCustomerId).containsExactly("fresh");
+        assertThat(meterRegistry.counter("cart.expiry.expired").count()).isEqualTo(5);
+        assertThat(meterRegistry.counter("cart.expiry.bytes.reclaimed").count()).isPositive();
+        assertThat(meterRegistry.timer("cart.expiry.sweeps").count()).isEqualTo(1);
+    }
+
+    @Test
+    void sweepExpiresCartsHeldByTheWriteBackTier(@TempDir Path journalDir) throws InterruptedException {
+        WriteBackCartStore hotCarts = new WriteBackCartStore(cartRepository(mongoTemplate), mongoTemplate, new ObjectMapper(), true,
+                100, 500, journalDir.toString(), false);
+        addPizza(hotCarts, "stale");
+        hotCarts.flush();
+        Thread.sleep(1100);
+        // Still dirty in the tier when the sweep starts
+        addPizza(hotCarts, "fresh");
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new CartExpirySweeper(mongoTemplate, hotCarts, meterRegistry, 1, 10).sweep();
+
+        assertThat(hotCarts.find("stale", "r1")).isNull();
+        assertThat(hotCarts.find("fresh", "r1")).isNotNull();
+        hotCarts.flush();
+        assertThat(mongoTemplate.findAll(Cart.class)).extracting(Cart::getCustomerId).containsExactly("fresh");
+        assertThat(meterRegistry.counter("cart.expiry.expired").count()).isEqualTo(1);
+        hotCarts.shutdown();
+    }
+
+    @Test
+    void changedTtlIsAppliedToTheExistingIndex() {
+        new MongoIndexInitializer(mongoTemplate, mappingContext, TTL_SECONDS, 60).ensureIndexes();
+        assertThat(expiryIndex().getExpireAfter()).contains(Duration.ofSeconds(TTL_SECONDS + 60));
+
+        new MongoIndexInitializer(mongoTemplate, mappingContext, 2 * TTL_SECONDS, 60).ensureIndexes();
+        assertThat(expiryIndex().getExpireAfter()).contains(Duration.ofSeconds(2 * TTL_SECONDS + 60));
+
+        new MongoIndexInitializer(mongoTemplate, mappingContext, 0, 60).ensureIndexes();
+        assertThat(mongoTemplate.indexOps(Cart.class).getIndexInfo())
+                .extracting(IndexInfo::getName)
+                .doesNotContain("updatedAt_ttl");
+    }
+
+    private static IndexInfo expiryIndex() {
+        return mongoTemplate.indexOps(Cart.class).getIndexInfo().stream()
+                .filter(index -> index.getName().equals("updatedAt_ttl"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static void addPizza(WriteBackCartStore hotCarts, String customerId) {
+        hotCarts.update(customerId, "r1", cart -> {
+            cart.getItems().add(new CartItem("pizza", "Pizza", 1, CartItem.PotionSize.Large, 12.0, null));
+            cart.recalculateTotalPrice();
+            return true;
+        });
+    }
+
+    private static Cart cart(String customerId, Date updatedAt) {
+        List<CartItem> items = new ArrayList<>();
+        items.add(new CartItem("pizza", "Pizza", 2, CartItem.PotionSize.Large, 12.0, "https://img/pizza.png"));
+        return new Cart(null, customerId, "r1", items, 24.0, updatedAt, updatedAt);
+    }
+}
@@ -0,0 +1,111 @@
+package com.nomnom.cart_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.cart_service.MongoIntegrationTest;
+import com.nomnom.cart_service.model.Cart;
+import com.nomnom.cart_service.model.CartItem;
+import com.nomnom.cart_service.repository.CartRepository;
+import com.nomnom.cart_service.request.CartOperationsRequest.Operation;
+import com.nomnom.cart_service.request.CartOperationsRequest.Operation.OperationType;
+import com.nomnom.cart_service.writeback.WriteBackCartStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CartOperationsTest extends MongoIntegrationTest {
+
+    private static final List<Operation> STEPPER_TAPS = List.of(
+            add("pizza", 2, 10.0),
+            add("burger", 1, 6.0),
+            new Operation(OperationType.SET_QUANTITY, "pizza", null, 5, null, 0, null),
+            new Operation(OperationType.REMOVE, "burger", null, 0, null, 0, null),
+            add("cola", 1, 2.5),
+            add("cola", 1, 2.5));
+
+    private static MongoTemplate mongoTemplate;
+    private static CartRepository cartRepository;
+
+    @TempDir
+    Path journalDir;
+
+    @BeforeAll
+    static void setUp() {
+        mongoTemplate = templateFor("cart_operations_test");
+        cartRepository = cartRepository(mongoTemplate);
+    }
+
+    @BeforeEach
+    void reset() {
+        mongoTemplate.remove(new Query(), Cart.class);
+    }
+
+    @Test
+    void operationsApplyInOrderInOneWrite() {
+        Cart cart = service(false).applyOperations("c1", "r1", STEPPER_TAPS);
+
+        assertThat(cart.getItems()).extracting(CartItem::getItemId).containsExactly("pizza", "cola");
+        assertThat(cart.getItems()).extracting(CartItem::getQuantity).containsExactly(5, 2);
+        assertThat(cart.getTotalPrice()).isEqualTo(55.0);
+        assertThat(cartRepository.findByCustomerIdAndRestaurantId("c1", "r1").orElseThrow().getTotalPrice())
+                .isEqualTo(55.0);
+    }
+
+    @Test
+    void writeBackTierGivesTheSameResult() {
+        CartService cartService = service(true);
+        Cart cart = cartService.applyOperations("c1", "r1", STEPPER_TAPS);
+
+        assertThat(cart.getItems()).extracting(CartItem::getQuantity).containsExactly(5, 2);
+        assertThat(cart.getTotalPrice()).isEqualTo(55.0);
+    }
+
+    @Test
+    void clearEmptiesTheCartBeforeLaterOperations() {
+        CartService cartService = service(false);
+        cartService.applyOperations("c1", "r1", STEPPER_TAPS);
+
+        Cart cart = cartService.applyOperations("c1", "r1", List.of(
+                new Operation(OperationType.CLEAR, null, null, 0, null, 0, null),
+                add("pasta", 1, 9.0)));
+        assertThat(cart.getItems()).extracting(CartItem::getItemId).containsExactly("pasta");
+        assertThat(cart.getTotalPrice()).isEqualTo(9.0);
+    }
+
+    @Test
+    void invalidBatchIsRejectedWithoutWriting() {
+        CartService cartService = service(false);
+        List<Operation> operations = List.of(add("pizza", 1, 10.0), add("burger", 0, 6.0));
+
+        assertThatThrownBy(() -> cartService.applyOperations("c1", "r1", operations))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(cartRepository.count()).isZero();
+    }
+
+    @Test
+    void batchWithoutAddsNeverCreatesACart() {
+        Cart cart = service(false).applyOperations("c1", "r1", List.of(
+                new Operation(OperationType.REMOVE, "pizza", null, 0, null, 0, null)));
+
+        assertThat(cart.getItems()).isEmpty();
+        assertThat(cartRepository.count()).isZero();
+    }
+
+    private CartService service(boolean writeBack) {
+        WriteBackCartStore hotCarts = new WriteBackCartStore(cartRepository, mongoTemplate, new ObjectMapper(),
+                writeBack, 100, 500, journalDir.toString(), false);
+        return new CartService(cartRepository, mongoTemplate, hotCarts);
+    }
+
+    private static Operation add(String itemId, int quantity, double unitPrice) {
+        return new Operation(OperationType.ADD, itemId, itemId, quantity, CartItem.PotionSize.Medium, unitPrice, null);
+    }
+}
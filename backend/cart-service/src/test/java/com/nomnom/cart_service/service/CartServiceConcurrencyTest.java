@@ -0,0 +1,153 @@
+package com.nomnom.cart_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.cart_service.MongoIntegrationTest;
+import com.nomnom.cart_service.config.MongoIndexInitializer;
+import com.nomnom.cart_service.model.Cart;
+import com.nomnom.cart_service.model.CartItem;
+import com.nomnom.cart_service.repository.CartRepository;
+import com.nomnom.cart_service.writeback.WriteBackCartStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartServiceConcurrencyTest extends MongoIntegrationTest {
+
+    private static MongoTemplate mongoTemplate;
+    private static CartService cartService;
+
+    @BeforeAll
+    static void setUp() {
+        mongoTemplate = templateFor("cart_service_test");
+        CartRepository cartRepository = cartRepository(mongoTemplate);
+        WriteBackCartStore disabled = new WriteBackCartStore(cartRepository, mongoTemplate, new ObjectMapper(),
+                false, 0, 0, "", false);
+        cartService = new CartService(cartRepository, mongoTemplate, disabled);
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        new MongoIndexInitializer(mongoTemplate, mappingContext, 0, 0).ensureIndexes();
+    }
+
+    @BeforeEach
+    void reset() {
+        mongoTemplate.remove(new Query(), Cart.class);
+    }
+
+    @Test
+    void concurrentAddsOfTheSameItemAreNeverLost() throws Exception {
+        cartService.addItemToCart("c1", "r1", item("pizza", 1, 10.5));
+
+        int threads = 32;
+        int addsPerThread = 20;
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < addsPerThread; i++) {
+                cartService.addItemToCart("c1", "r1", item("pizza", 1, 10.5));
+            }
+            return null;
+        });
+
+        Cart cart = cartService.getCart("c1", "r1");
+        int expectedQuantity = 1 + threads * addsPerThread;
+        assertThat(cart.getItems()).hasSize(1);
+        assertThat(cart.getItems().get(0).getQuantity()).isEqualTo(expectedQuantity);
+        assertThat(cart.getItems().get(0).getTotalPrice()).isEqualTo(10.5 * expectedQuantity);
+        assertThat(cart.getTotalPrice()).isEqualTo(10.5 * expectedQuantity);
+    }
+
+    @Test
+    void concurrentFirstAddsOfDifferentItemsShareOneCart() throws Exception {
+        int threads = 16;
+        AtomicInteger nextId = new AtomicInteger();
+        runConcurrently(threads, () -> {
+            cartService.addItemToCart("c1", "r1", item("item-" + nextId.getAndIncrement(), 2, 3.0));
+            return null;
+        });
+
+        Cart cart = cartService.getCart("c1", "r1");
+        assertThat(cart.getItems()).hasSize(threads);
+        assertThat(cart.getTotalPrice()).isEqualTo(threads * 6.0);
+        assertThat(mongoTemplate.count(new Query(), Cart.class)).isEqualTo(1);
+    }
+
+    @Test
+    void readingOrEditingAMissingCartWritesNothing() {
+        Cart cart = cartService.getCart("c1", "r1");
+        assertThat(cart.getId()).isNull();
+        assertThat(cart.getItems()).isEmpty();
+
+        cartService.updateCartItemQuantity("c1", "r1", "pizza", 2);
+        cartService.removeItemFromCart("c1", "r1", "pizza");
+        assertThat(mongoTemplate.count(new Query(), Cart.class)).isZero();
+    }
+
+    @Test
+    void updateAndRemoveKeepTheTotalInStep() {
+        cartService.addItemToCart("c1", "r1", item("pizza", 2, 10.0));
+        Cart cart = cartService.addItemToCart("c1", "r1", item("burger", 1, 6.0));
+        assertThat(cart.getTotalPrice()).isEqualTo(26.0);
+
+        cart = cartService.updateCartItemQuantity("c1", "r1", "pizza", 5);
+        assertThat(cart.getItems()).extracting(CartItem::getQuantity).containsExactly(5, 1);
+        assertThat(cart.getTotalPrice()).isEqualTo(56.0);
+
+        cart = cartService.removeItemFromCart("c1", "r1", "burger");
+        assertThat(cart.getItems()).extracting(CartItem::getItemId).containsExactly("pizza");
+        assertThat(cart.getTotalPrice()).isEqualTo(50.0);
+
+        cart = cartService.updateCartItemQuantity("c1", "r1", "pizza", 0);
+        assertThat(cart.getItems()).isEmpty();
+        assertThat(cart.getTotalPrice()).isZero();
+    }
+
+    @Test
+    void itemIdsAreNeverInterpretedAsExpressions() {
+        Cart cart = cartService.addItemToCart("c1", "r1", item("$items", 1, 4.0));
+        cart = cartService.updateCartItemQuantity("c1", "r1", "$items", 3);
+
+        assertThat(cart.getItems()).extracting(CartItem::getItemId).containsExactly("$items");
+        assertThat(cart.getTotalPrice()).isEqualTo(12.0);
+    }
+
+    private static void runConcurrently(int threads, Callable<Void> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static CartService.CartItemRequest item(String itemId, int quantity, double unitPrice) {
+        CartService.CartItemRequest request = new CartService.CartItemRequest();
+        request.setItemId(itemId);
+        request.setItemName(itemId);
+        request.setQuantity(quantity);
+        request.setPotionSize(CartItem.PotionSize.Medium);
+        request.setUnitPrice(unitPrice);
+        return request;
+    }
+}
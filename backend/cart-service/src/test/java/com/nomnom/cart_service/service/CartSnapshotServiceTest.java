@@ -0,0 +1,100 @@
+package com.nomnom.cart_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.cart_service.dto.CartSnapshotDTO;
+import com.nomnom.cart_service.model.Cart;
+import com.nomnom.cart_service.model.CartItem;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CartSnapshotServiceTest {
+
+    private static final String SECRET = "test-secret";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void signedSnapshotVerifiesAndCarriesTheCart() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        String token = new CartSnapshotService(SECRET, 900, objectMapper).sign(cart()).orElseThrow();
+
+        CartSnapshotDTO snapshot = verify(token, SECRET).orElseThrow();
+        assertThat(snapshot.getCustomerId()).isEqualTo("c1");
+        assertThat(snapshot.getRestaurantId()).isEqualTo("r1");
+        assertThat(snapshot.getExpiresAt()).isBetween(now + 900, now + 901);
+        assertThat(snapshot.getItems()).extracting(CartSnapshotDTO.Item::getItemId, CartSnapshotDTO.Item::getQuantity,
+                        CartSnapshotDTO.Item::getPotionSize, CartSnapshotDTO.Item::getPrice)
+                .containsExactly(tuple("pizza", 2, "Large", 12.0));
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() throws Exception {
+        String token = new CartSnapshotService(SECRET, 900, objectMapper).sign(cart()).orElseThrow();
+        CartSnapshotDTO snapshot = verify(token, SECRET).orElseThrow();
+        snapshot.getItems().get(0).setPrice(0.01);
+        String forgedPayload = encode(objectMapper.writeValueAsBytes(snapshot));
+
+        assertThat(verify(forgedPayload + token.substring(token.lastIndexOf('.')), SECRET)).isEmpty();
+    }
+
+    @Test
+    void tokenIsRejectedUnderAnotherKey() throws Exception {
+        String token = new CartSnapshotService(SECRET, 900, objectMapper).sign(cart()).orElseThrow();
+
+        assertThat(verify(token, "some-other-secret")).isEmpty();
+    }
+
+    @Test
+    void tokenCarriesAnExpiryThatLapses() throws Exception {
+        String token = new CartSnapshotService(SECRET, -1, objectMapper).sign(cart()).orElseThrow();
+
+        assertThat(verify(token, SECRET)).isEmpty();
+    }
+
+    @Test
+    void noTokenWithoutASecretOrForAnEmptyCart() {
+        assertThat(new CartSnapshotService("", 900, objectMapper).sign(cart())).isEmpty();
+
+        Cart empty = cart();
+        empty.getItems().clear();
+        assertThat(new CartSnapshotService(SECRET, 900, objectMapper).sign(empty)).isEmpty();
+    }
+
+    private static Cart cart() {
+        List<CartItem> items = new ArrayList<>();
+        items.add(new CartItem("pizza", "Pizza", 2, CartItem.PotionSize.Large, 12.0, null));
+        return new Cart("cart-1", "c1", "r1", items, 24.0, null, null);
+    }
+
+    // The checks order-service's CartSnapshotVerifier applies: signature first, then expiry
+    private Optional<CartSnapshotDTO> verify(String token, String secret) throws Exception {
+        int separator = token.lastIndexOf('.');
+        String payload = token.substring(0, separator);
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] expected = mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        if (!MessageDigest.isEqual(expected, Base64.getUrlDecoder().decode(token.substring(separator + 1)))) {
+            return Optional.empty();
+        }
+        CartSnapshotDTO snapshot = objectMapper.readValue(Base64.getUrlDecoder().decode(payload), CartSnapshotDTO.class);
+        if (snapshot.getExpiresAt() <= System.currentTimeMillis() / 1000) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshot);
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,156 @@
+package com.nomnom.cart_service.writeback;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.cart_service.MongoIntegrationTest;
+import com.nomnom.cart_service.model.Cart;
+import com.nomnom.cart_service.model.CartItem;
+import com.nomnom.cart_service.repository.CartRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteBackCartStoreTest extends MongoIntegrationTest {
+
+    private static MongoTemplate mongoTemplate;
+    private static CartRepository cartRepository;
+
+    @TempDir
+    Path journalDir;
+
+    @BeforeAll
+    static void setUp() {
+        mongoTemplate = templateFor("cart_write_back_test");
+        cartRepository = cartRepository(mongoTemplate);
+    }
+
+    @BeforeEach
+    void reset() {
+        mongoTemplate.remove(new Query(), Cart.class);
+    }
+
+    @Test
+    void mutationsReachMongoOnFlushAndTrimTheJournal() throws IOException {
+        WriteBackCartStore store = store(100);
+        addPizza(store, "c1", 2);
+        addPizza(store, "c1", 3);
+
+        assertThat(store.find("c1", "r1").getTotalPrice()).isEqualTo(50.0);
+        assertThat(cartRepository.count()).isZero();
+
+        store.flush();
+        Cart stored = cartRepository.findByCustomerIdAndRestaurantId("c1", "r1").orElseThrow();
+        assertThat(stored.getId()).isEqualTo(store.find("c1", "r1").getId());
+        assertThat(stored.getItems()).extracting(CartItem::getQuantity).containsExactly(5);
+        assertThat(stored.getTotalPrice()).isEqualTo(50.0);
+        assertThat(journalFiles()).isZero();
+    }
+
+    @Test
+    void clearedCartIsDeletedOnFlush() {
+        WriteBackCartStore store = store(100);
+        addPizza(store, "c1", 1);
+        store.flush();
+
+        store.clear("c1", "r1");
+        assertThat(store.find("c1", "r1")).isNull();
+        store.flush();
+        assertThat(cartRepository.count()).isZero();
+    }
+
+    @Test
+    void unflushedMutationsAreReplayedAfterACrash() {
+        WriteBackCartStore crashed = store(100);
+        addPizza(crashed, "c1", 4);
+        crashed.clear("c2", "r1");
+
+        // A new instance over the same journal stands in for a restart without a shutdown flush
+        WriteBackCartStore restarted = store(100);
+        assertThat(restarted.find("c1", "r1").getItems()).extracting(CartItem::getQuantity).containsExactly(4);
+
+        restarted.flush();
+        assertThat(cartRepository.findByCustomerIdAndRestaurantId("c1", "r1").orElseThrow().getTotalPrice())
+                .isEqualTo(40.0);
+    }
+
+    @Test
+    void expiredCartIsNotRevivedByAReplay() {
+        WriteBackCartStore crashed = store(100);
+        addPizza(crashed, "c1", 1);
+        crashed.expire(new Date(System.currentTimeMillis() + 60_000));
+
+        WriteBackCartStore restarted = store(100);
+        assertThat(restarted.find("c1", "r1")).isNull();
+        restarted.flush();
+        assertThat(cartRepository.count()).isZero();
+    }
+
+    @Test
+    void dirtyCartIsWrittenBeforeItIsEvicted() {
+        WriteBackCartStore store = store(2);
+        addPizza(store, "c1", 1);
+        addPizza(store, "c2", 1);
+        assertThat(cartRepository.count()).isZero();
+
+        // Over capacity, but the request thread neither evicts nor writes
+        addPizza(store, "c3", 1);
+        assertThat(cartRepository.count()).isZero();
+
+        store.flush();
+        assertThat(cartRepository.findByCustomerIdAndRestaurantId("c1", "r1")).isPresent();
+        // Served from Mongo now that it has left the tier
+        assertThat(store.find("c1", "r1").getTotalPrice()).isEqualTo(10.0);
+    }
+
+    @Test
+    void leastRecentlyUsedCartIsEvictedFirst() {
+        WriteBackCartStore store = store(2);
+        addPizza(store, "c1", 1);
+        addPizza(store, "c2", 1);
+        store.find("c1", "r1");
+        addPizza(store, "c3", 1);
+        store.flush();
+
+        // With Mongo emptied behind the tier's back, only the carts still in the tier can be found
+        mongoTemplate.remove(new Query(), Cart.class);
+        assertThat(store.find("c1", "r1")).isNotNull();
+        assertThat(store.find("c3", "r1")).isNotNull();
+        assertThat(store.find("c2", "r1")).isNull();
+    }
+
+    private WriteBackCartStore store(int maxCarts) {
+        return new WriteBackCartStore(cartRepository, mongoTemplate, new ObjectMapper(), true, maxCarts, 500,
+                journalDir.toString(), false);
+    }
+
+    private static void addPizza(WriteBackCartStore store, String customerId, int quantity) {
+        store.update(customerId, "r1", cart -> {
+            cart.getItems().stream()
+                    .filter(item -> item.getItemId().equals("pizza"))
+                    .findFirst()
+                    .ifPresentOrElse(item -> {
+                        item.setQuantity(item.getQuantity() + quantity);
+                        item.updateTotalPrice();
+                    }, () -> cart.getItems().add(
+                            new CartItem("pizza", "Pizza", quantity, CartItem.PotionSize.Large, 10.0, null)));
+            cart.recalculateTotalPrice();
+            return true;
+        });
+    }
+
+    private long journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.count();
+        }
+    }
+}
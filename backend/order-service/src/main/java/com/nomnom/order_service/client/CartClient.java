@@ -0,0 +1,72 @@
+package com.nomnom.order_service.client;
+
+import com.nomnom.order_service.dto.CartDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+public class CartClient implements ICartClient {
+
+    private final RestTemplate restTemplate;
+    private final String cartServiceUrl;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBudget retryBudget;
+    private final int maxAttempts;
+    private final MeterRegistry meterRegistry;
+
+    public CartClient(RestTemplate restTemplate, String cartServiceUrl, CircuitBreaker circuitBreaker,
+                      RetryBudget retryBudget, int maxAttempts, MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.cartServiceUrl = cartServiceUrl;
+        this.circuitBreaker = circuitBreaker;
+        this.retryBudget = retryBudget;
+        this.maxAttempts = maxAttempts;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public CartDTO getCart(String customerId, String restaurantId) {
+        long start = System.nanoTime();
+        if (!circuitBreaker.tryAcquire()) {
+            record("short_circuited", start);
+            throw new CartServiceException("Cart service is unavailable (circuit open)");
+        }
+        retryBudget.recordRequest();
+
+        RestClientException lastFailure = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                CartDTO cart = restTemplate.getForObject(cartServiceUrl + "/{customerId}/{restaurantId}",
+                        CartDTO.class, customerId, restaurantId);
+                circuitBreaker.onSuccess();
+                record("success", start);
+                return cart;
+            } catch (HttpClientErrorException e) {
+                // A 4xx is an answer, not an outage: don't retry it or count it against the circuit
+                circuitBreaker.onSuccess();
+                record("client_error", start);
+                throw new CartServiceException("Cart service rejected the request: " + e.getStatusCode(), e);
+            } catch (RestClientException e) {
+                lastFailure = e;
+                if (attempt == maxAttempts || !retryBudget.tryAcquireRetry()) {
+                    break;
+                }
+                meterRegistry.counter("cart.client.retries").increment();
+            }
+        }
+        circuitBreaker.onFailure();
+        record("failure", start);
+        throw new CartServiceException("Cart service is unavailable", lastFailure);
+    }
+
+    private void record(String outcome, long startNanos) {
+        Timer.builder("cart.client.requests")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
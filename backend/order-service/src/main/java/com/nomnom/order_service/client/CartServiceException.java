@@ -0,0 +1,12 @@
+package com.nomnom.order_service.client;
+
+public class CartServiceException extends RuntimeException {
+
+    public CartServiceException(String message) {
+        super(message);
+    }
+
+    public CartServiceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,27 @@
+package com.nomnom.order_service.client;
+
+import com.nomnom.order_service.dto.DriverDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Component
+public class DriverClient implements IDriverClient {
+
+    private final RestTemplate restTemplate;
+    private final String userServiceUrl;
+
+    public DriverClient(RestTemplate restTemplate, @Value("${user.service.url}") String userServiceUrl) {
+        this.restTemplate = restTemplate;
+        this.userServiceUrl = userServiceUrl;
+    }
+
+    @Override
+    public List<DriverDTO> getDrivers() {
+        DriverDTO[] drivers = restTemplate.getForObject(userServiceUrl + "/type/DRIVER", DriverDTO[].class);
+        return drivers == null ? List.of() : Arrays.asList(drivers);
+    }
+}
@@ -0,0 +1,7 @@
+package com.nomnom.order_service.client;
+
+import com.nomnom.order_service.dto.CartDTO;
+
+public interface ICartClient {
+    CartDTO getCart(String customerId, String restaurantId);
+}
@@ -0,0 +1,9 @@
+package com.nomnom.order_service.client;
+
+import com.nomnom.order_service.dto.DriverDTO;
+
+import java.util.List;
+
+public interface IDriverClient {
+    List<DriverDTO> getDrivers();
+}
@@ -0,0 +1,9 @@
+package com.nomnom.order_service.client;
+
+import com.nomnom.order_service.dto.MenuItemDTO;
+
+import java.util.List;
+
+public interface IMenuClient {
+    List<MenuItemDTO> getMenuItems(String restaurantId);
+}
@@ -0,0 +1,7 @@
+package com.nomnom.order_service.client;
+
+import com.nomnom.order_service.dto.RestaurantDTO;
+
+public interface IRestaurantClient {
+    RestaurantDTO getRestaurant(String restaurantId);
+}
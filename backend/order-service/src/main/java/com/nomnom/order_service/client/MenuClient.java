@@ -0,0 +1,29 @@
+package com.nomnom.order_service.client;
+
+import com.nomnom.order_service.dto.MenuItemDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Component
+public class MenuClient implements IMenuClient {
+
+    private final RestTemplate restTemplate;
+    private final String menuServiceUrl;
+
+    public MenuClient(RestTemplate restTemplate, @Value("${menu.service.url}") String menuServiceUrl) {
+        this.restTemplate = restTemplate;
+        this.menuServiceUrl = menuServiceUrl;
+    }
+
+    @Override
+    public List<MenuItemDTO> getMenuItems(String restaurantId) {
+        // menu-service answers 204 with no body when the restaurant has no items
+        MenuItemDTO[] items = restTemplate.getForObject(menuServiceUrl + "/restaurant/{restaurantId}",
+                MenuItemDTO[].class, restaurantId);
+        return items == null ? List.of() : Arrays.asList(items);
+    }
+}
@@ -0,0 +1,32 @@
+package com.nomnom.order_service.client;
+
+import com.nomnom.order_service.dto.RestaurantDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+@Component
+public class RestaurantClient implements IRestaurantClient {
+
+    private final RestTemplate restTemplate;
+    private final String userServiceUrl;
+
+    public RestaurantClient(RestTemplate restTemplate, @Value("${user.service.url}") String userServiceUrl) {
+        this.restTemplate = restTemplate;
+        this.userServiceUrl = userServiceUrl;
+    }
+
+    @Override
+    public RestaurantDTO getRestaurant(String restaurantId) {
+        try {
+            RestaurantDTO restaurant = restTemplate.getForObject(userServiceUrl + "/{id}", RestaurantDTO.class, restaurantId);
+            if (restaurant == null) {
+                throw new RuntimeException("Restaurant not found");
+            }
+            return restaurant;
+        } catch (HttpClientErrorException.NotFound e) {
+            throw new RuntimeException("Restaurant not found");
+        }
+    }
+}
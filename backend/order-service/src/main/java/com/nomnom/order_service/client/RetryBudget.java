@@ -0,0 +1,39 @@
+package com.nomnom.order_service.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps retries to a fraction of live traffic so a struggling dependency isn't hit with a retry storm.
+ * Every first attempt deposits {@code retryRatio} tokens, every retry withdraws one, and the balance is
+ * bounded by {@code maxRetryBurst}.
+ */
+public class RetryBudget {
+
+    // Balances are kept in thousandths of a token so fractional ratios stay exact with integer CAS
+    private static final long SCALE = 1000;
+
+    private final long depositPerRequest;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public RetryBudget(double retryRatio, int maxRetryBurst) {
+        this.depositPerRequest = Math.round(retryRatio * SCALE);
+        this.maxBalance = maxRetryBurst * SCALE;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    public void recordRequest() {
+        balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maxBalance, current + deposit));
+    }
+
+    public boolean tryAcquireRetry() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+}
@@ -0,0 +1,38 @@
+package com.nomnom.order_service.config;
+
+import com.nomnom.order_service.client.CartClient;
+import com.nomnom.order_service.client.CircuitBreaker;
+import com.nomnom.order_service.client.ICartClient;
+import com.nomnom.order_service.client.RetryBudget;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class CartClientConfig {
+
+    @Bean
+    public ICartClient cartClient(
+            @Value("${cart.service.url}") String cartServiceUrl,
+            @Value("${cart.client.max-connections:50}") int maxConnections,
+            @Value("${cart.client.connect-timeout-ms:500}") long connectTimeoutMs,
+            @Value("${cart.client.read-timeout-ms:2000}") long readTimeoutMs,
+            @Value("${cart.client.max-attempts:2}") int maxAttempts,
+            @Value("${cart.client.retry-ratio:0.2}") double retryRatio,
+            @Value("${cart.client.circuit-failure-threshold:5}") int circuitFailureThreshold,
+            @Value("${cart.client.circuit-open-ms:10000}") long circuitOpenMs,
+            MeterRegistry meterRegistry) {
+        RestTemplate restTemplate = new RestTemplate(
+                AppConfig.pooledRequestFactory(maxConnections, connectTimeoutMs, readTimeoutMs));
+        return new CartClient(
+                restTemplate,
+                cartServiceUrl,
+                new CircuitBreaker(circuitFailureThreshold, circuitOpenMs),
+                new RetryBudget(retryRatio, Math.max(1, maxConnections / 5)),
+                maxAttempts,
+                meterRegistry
+        );
+    }
+}
@@ -0,0 +1,53 @@
+package com.nomnom.order_service.config;
+
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.model.DriverReservation;
+import com.nomnom.order_service.model.Order;
+import com.nomnom.order_service.model.OrderRollupState;
+import com.nomnom.order_service.model.RevenueRollup;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared on our documents at startup. Spring's automatic index creation is off by default,
+ * and every query path in this service relies on these indexes to avoid collection scans.
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(
+            Order.class, OrderEvent.class, RevenueRollup.class, OrderRollupState.class, DriverReservation.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mongoMappingContext;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate, MongoMappingContext mongoMappingContext) {
+        this.mongoTemplate = mongoTemplate;
+        this.mongoMappingContext = mongoMappingContext;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        for (Class<?> document : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(document);
+            resolver.resolveIndexFor(document).forEach(indexOps::ensureIndex);
+        }
+        // The archive is only read by order id and by customer history
+        mongoTemplate.indexOps(Order.ARCHIVE_COLLECTION).ensureIndex(new Index()
+                .on("customerId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("customer_createdAt_orderId"));
+    }
+}
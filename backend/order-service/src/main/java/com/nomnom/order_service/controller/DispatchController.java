@@ -0,0 +1,33 @@
+package com.nomnom.order_service.controller;
+
+import com.nomnom.order_service.dispatch.DriverDispatcher;
+import com.nomnom.order_service.dto.DriverCandidateDTO;
+import com.nomnom.order_service.request.DriverLocationRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/order/dispatch")
+public class DispatchController {
+
+    private final DriverDispatcher driverDispatcher;
+
+    public DispatchController(DriverDispatcher driverDispatcher) {
+        this.driverDispatcher = driverDispatcher;
+    }
+
+    // Location pings from the driver app
+    @PutMapping("/drivers/{driverId}/location")
+    public ResponseEntity<Void> updateDriverLocation(@PathVariable String driverId, @RequestBody DriverLocationRequest request) {
+        boolean known = driverDispatcher.updateDriverLocation(driverId, request.getLatitude(), request.getLongitude());
+        return known ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/candidates/{orderId}")
+    public ResponseEntity<List<DriverCandidateDTO>> getCandidates(@PathVariable String orderId,
+                                                                  @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(driverDispatcher.candidatesFor(orderId, limit));
+    }
+}
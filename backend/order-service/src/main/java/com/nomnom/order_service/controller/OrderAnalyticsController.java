@@ -0,0 +1,40 @@
+package com.nomnom.order_service.controller;
+
+import com.nomnom.order_service.dto.RevenueRollupDTO;
+import com.nomnom.order_service.service.IOrderAnalyticsService;
+import com.nomnom.order_service.shared.enums.RollupGranularity;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/order/analytics")
+public class OrderAnalyticsController {
+
+    private final IOrderAnalyticsService orderAnalyticsService;
+
+    public OrderAnalyticsController(IOrderAnalyticsService orderAnalyticsService) {
+        this.orderAnalyticsService = orderAnalyticsService;
+    }
+
+    @GetMapping("/restaurant/{restaurantId}")
+    public ResponseEntity<List<RevenueRollupDTO>> getRestaurantRevenue(
+            @PathVariable String restaurantId,
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        return ResponseEntity.ok(orderAnalyticsService.getRestaurantRevenue(restaurantId, granularity, from, to));
+    }
+
+    @GetMapping("/restaurants/top")
+    public ResponseEntity<List<RevenueRollupDTO>> getTopRestaurants(
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(orderAnalyticsService.getTopRestaurants(granularity, from, to, limit));
+    }
+}
@@ -1,12 +1,21 @@
 package com.nomnom.order_service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.order_service.dto.DeliveryQuoteDTO;
 import com.nomnom.order_service.dto.OrderDTO;
+import com.nomnom.order_service.dto.OrderPageDTO;
+import com.nomnom.order_service.dto.OrderSummaryPageDTO;
 import com.nomnom.order_service.request.*;
 import com.nomnom.order_service.response.*;
 import com.nomnom.order_service.service.IOrderService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -14,14 +23,27 @@ import java.util.List;
 public class OrderController {
 
     private final IOrderService orderService;
+    private final ObjectMapper objectMapper;
 
-    public OrderController(IOrderService orderService) {
+    public OrderController(IOrderService orderService, ObjectMapper objectMapper) {
         this.orderService = orderService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/create")
-    public ResponseEntity<OrderDTO> createOrder(@RequestBody CreateOrderRequest request) {
-        return ResponseEntity.ok(orderService.createOrder(request));
+    public ResponseEntity<OrderDTO> createOrder(
+            @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(orderService.createOrder(request, idempotencyKey));
+    }
+
+    // Delivery fee and ETA for the cart page, priced exactly as createOrder will price it
+    @GetMapping("/quote")
+    public ResponseEntity<DeliveryQuoteDTO> quoteDelivery(
+            @RequestParam String restaurantId,
+            @RequestParam double latitude,
+            @RequestParam double longitude) {
+        return ResponseEntity.ok(orderService.quoteDelivery(restaurantId, latitude, longitude));
     }
 
     @GetMapping("/{orderId}")
@@ -30,9 +52,43 @@ public class OrderController {
     }
 
 
+    // Same JSON array as before, but written from a Mongo cursor one order at a time instead of built in memory
     @GetMapping("/getAll")
-    public ResponseEntity<List<OrderDTO>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<StreamingResponseBody> getAllOrders() {
+        StreamingResponseBody body = out -> {
+            out.write('[');
+            boolean[] first = {true};
+            orderService.forEachOrder(order -> {
+                if (!first[0]) {
+                    writeRaw(out, ',');
+                }
+                first[0] = false;
+                writeOrder(out, order);
+            });
+            out.write(']');
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrders() {
+        StreamingResponseBody body = out -> orderService.forEachOrder(order -> {
+            writeOrder(out, order);
+            writeRaw(out, '\n');
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<OrderPageDTO> getOrderPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(orderService.getOrderPage(cursor, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<OrderDTO>> searchOrders(OrderSearchRequest request) {
+        return ResponseEntity.ok(orderService.searchOrders(request));
     }
 
     @GetMapping("/customer/{customerId}")
@@ -40,37 +96,71 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrdersByCustomer(customerId));
     }
 
+    // Slim, paged history list: restaurant, total, status and date only
+    @GetMapping("/customer/{customerId}/summary")
+    public ResponseEntity<OrderSummaryPageDTO> getOrderSummaries(
+            @PathVariable String customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(orderService.getOrderSummaries(customerId, cursor, limit));
+    }
+
     @PutMapping("/cancel/{orderId}")
     public ResponseEntity<CancelOrderResponse> cancelOrder(@PathVariable String orderId) {
-        orderService.cancelOrder(orderId);
-        OrderDTO updatedOrder = orderService.getOrderById(orderId);
+        OrderDTO updatedOrder = orderService.cancelOrder(orderId);
         CancelOrderResponse response = new CancelOrderResponse("Order has been successfully canceled", updatedOrder);
         return ResponseEntity.ok(response);
     }
 
     @PutMapping("/assign-driver/{orderId}")
     public ResponseEntity<AssignDriverResponse> assignDriver(@PathVariable String orderId, @RequestBody AssignDriverRequest request) {
-        orderService.assignDriver(orderId, request);
-        OrderDTO updatedOrder = orderService.getOrderById(orderId);
+        OrderDTO updatedOrder = orderService.assignDriver(orderId, request);
         AssignDriverResponse response = new AssignDriverResponse("Driver has been successfully assigned to the order", updatedOrder);
         return ResponseEntity.ok(response);
     }
 
+    // The driver has collected the order; their reservation no longer expires
+    @PutMapping("/pickup/{orderId}")
+    public ResponseEntity<OrderResponse> confirmPickup(@PathVariable String orderId) {
+        OrderDTO order = orderService.confirmPickup(orderId);
+        return ResponseEntity.ok(new OrderResponse("Order has been picked up", order));
+    }
+
     @PutMapping("/apply-discount/{orderId}")
     public ResponseEntity<ApplyDiscountResponse> applyDiscount(@PathVariable String orderId, @RequestBody ApplyDiscountRequest request) {
-        orderService.applyDiscount(orderId, request);
-        OrderDTO updatedOrder = orderService.getOrderById(orderId);
+        OrderDTO updatedOrder = orderService.applyDiscount(orderId, request);
         ApplyDiscountResponse response = new ApplyDiscountResponse("Discount has been successfully applied to the order", updatedOrder);
         return ResponseEntity.ok(response);
     }
 
+    // Many (orderId, operation) pairs in one unordered bulk write; each item gets its own result
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkOrderResponse> bulkUpdate(@RequestBody BulkOrderRequest request) {
+        return ResponseEntity.ok(orderService.bulkUpdate(request));
+    }
+
     @PutMapping("/update-status/{orderId}")
     public ResponseEntity<UpdateOrderStatusResponse> updateOrderStatus(
             @PathVariable String orderId,
             @RequestParam String status) {
-        orderService.updateOrderStatus(orderId, status);
-        OrderDTO updatedOrder = orderService.getOrderById(orderId);
+        OrderDTO updatedOrder = orderService.updateOrderStatus(orderId, status);
         UpdateOrderStatusResponse response = new UpdateOrderStatusResponse("Order status has been successfully updated", updatedOrder);
         return ResponseEntity.ok(response);
     }
+
+    private void writeOrder(OutputStream out, OrderDTO order) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(order));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeRaw(OutputStream out, char c) {
+        try {
+            out.write(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
\ No newline at end of file
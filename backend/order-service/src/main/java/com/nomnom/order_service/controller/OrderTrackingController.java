@@ -0,0 +1,32 @@
+package com.nomnom.order_service.controller;
+
+import com.nomnom.order_service.service.OrderTrackingService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/order/track")
+public class OrderTrackingController {
+
+    private final OrderTrackingService orderTrackingService;
+
+    public OrderTrackingController(OrderTrackingService orderTrackingService) {
+        this.orderTrackingService = orderTrackingService;
+    }
+
+    @GetMapping(value = "/{orderId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter trackOrder(@PathVariable String orderId) {
+        return orderTrackingService.trackOrder(orderId);
+    }
+
+    @GetMapping(value = "/customer/{customerId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter trackCustomer(@PathVariable String customerId) {
+        return orderTrackingService.trackCustomer(customerId);
+    }
+
+    @GetMapping(value = "/restaurant/{restaurantId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter trackRestaurant(@PathVariable String restaurantId) {
+        return orderTrackingService.trackRestaurant(restaurantId);
+    }
+}
@@ -0,0 +1,46 @@
+package com.nomnom.order_service.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// One dispatch tick's worth of matching: candidate search per order, then a joint assignment over all of them
+public class DispatchPlanner {
+
+    private static final double EPSILON_KM = 0.01;
+
+    private final DriverLocationIndex driverIndex;
+    private final int candidatesPerOrder;
+    private final double maxRadiusKm;
+    private final double unassignedPenaltyKm;
+
+    public DispatchPlanner(DriverLocationIndex driverIndex, int candidatesPerOrder, double maxRadiusKm,
+                           double unassignedPenaltyKm) {
+        this.driverIndex = driverIndex;
+        this.candidatesPerOrder = candidatesPerOrder;
+        this.maxRadiusKm = maxRadiusKm;
+        this.unassignedPenaltyKm = unassignedPenaltyKm;
+    }
+
+    public List<DispatchAssignment> plan(List<Pickup> pickups) {
+        List<List<DriverCandidate>> candidates = new ArrayList<>(pickups.size());
+        for (Pickup pickup : pickups) {
+            candidates.add(driverIndex.nearest(pickup.latitude(), pickup.longitude(), pickup.vehicleTypeIds(),
+                    candidatesPerOrder, maxRadiusKm));
+        }
+        int[] chosen = DispatchSolver.solve(candidates, unassignedPenaltyKm, EPSILON_KM);
+        List<DispatchAssignment> assignments = new ArrayList<>();
+        for (int i = 0; i < chosen.length; i++) {
+            if (chosen[i] >= 0) {
+                assignments.add(new DispatchAssignment(pickups.get(i).orderId(), candidates.get(i).get(chosen[i])));
+            }
+        }
+        return assignments;
+    }
+
+    public record Pickup(String orderId, double latitude, double longitude, Collection<String> vehicleTypeIds) {
+    }
+
+    public record DispatchAssignment(String orderId, DriverCandidate driver) {
+    }
+}
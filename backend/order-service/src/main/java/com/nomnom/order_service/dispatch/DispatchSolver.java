@@ -0,0 +1,88 @@
+package com.nomnom.order_service.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns drivers to a whole batch of orders at once with an auction over each order's candidate list. Orders bid
+ * for their best driver net of the driver's current price, raising it by how much they prefer it to their next
+ * option; an outbid order bids again. The result is within {@code epsilonKm} per order of the minimum total pickup
+ * distance, where a greedy pass would hand the closest driver to whichever order happened to come first.
+ *
+ * <p>Leaving an order unassigned costs {@code unassignedPenaltyKm}, which keeps the auction finite when orders
+ * compete for too few drivers: an order whose every candidate has become too expensive waits for the next tick.
+ */
+final class DispatchSolver {
+
+    private DispatchSolver() {
+    }
+
+    /**
+     * @return for each order, the index into its candidate list of the chosen driver, or -1 when unassigned
+     */
+    static int[] solve(List<List<DriverCandidate>> candidatesPerOrder, double unassignedPenaltyKm, double epsilonKm) {
+        int orders = candidatesPerOrder.size();
+        Map<String, Integer> driverIndex = new HashMap<>();
+        int[][] drivers = new int[orders][];
+        double[][] costs = new double[orders][];
+        for (int i = 0; i < orders; i++) {
+            List<DriverCandidate> candidates = candidatesPerOrder.get(i);
+            drivers[i] = new int[candidates.size()];
+            costs[i] = new double[candidates.size()];
+            for (int slot = 0; slot < candidates.size(); slot++) {
+                DriverCandidate candidate = candidates.get(slot);
+                Integer index = driverIndex.get(candidate.driverId());
+                if (index == null) {
+                    index = driverIndex.size();
+                    driverIndex.put(candidate.driverId(), index);
+                }
+                drivers[i][slot] = index;
+                costs[i][slot] = candidate.distanceKm();
+            }
+        }
+
+        double[] price = new double[driverIndex.size()];
+        int[] owner = new int[driverIndex.size()];
+        Arrays.fill(owner, -1);
+        int[] assignment = new int[orders];
+        Arrays.fill(assignment, -1);
+        ArrayDeque<Integer> bidders = new ArrayDeque<>(orders);
+        for (int i = 0; i < orders; i++) {
+            bidders.add(i);
+        }
+
+        while (!bidders.isEmpty()) {
+            int order = bidders.poll();
+            // Values are negated costs; waiting for the next tick is always an option worth -penalty
+            double best = -unassignedPenaltyKm;
+            double secondBest = -unassignedPenaltyKm;
+            int bestSlot = -1;
+            for (int slot = 0; slot < drivers[order].length; slot++) {
+                double value = -costs[order][slot] - price[drivers[order][slot]];
+                if (value > best) {
+                    secondBest = best;
+                    best = value;
+                    bestSlot = slot;
+                } else if (value > secondBest) {
+                    secondBest = value;
+                }
+            }
+            if (bestSlot < 0) {
+                continue;
+            }
+            int driver = drivers[order][bestSlot];
+            price[driver] += best - secondBest + epsilonKm;
+            int outbid = owner[driver];
+            owner[driver] = order;
+            assignment[order] = bestSlot;
+            if (outbid >= 0) {
+                assignment[outbid] = -1;
+                bidders.add(outbid);
+            }
+        }
+        return assignment;
+    }
+}
@@ -0,0 +1,5 @@
+package com.nomnom.order_service.dispatch;
+
+public record DriverCandidate(String driverId, String driverName, String vehicleNumber, String vehicleTypeId,
+                              double distanceKm) {
+}
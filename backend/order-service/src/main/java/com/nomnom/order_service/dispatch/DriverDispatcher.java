@@ -0,0 +1,196 @@
+package com.nomnom.order_service.dispatch;
+
+import com.nomnom.order_service.client.IDriverClient;
+import com.nomnom.order_service.dto.DriverCandidateDTO;
+import com.nomnom.order_service.dto.DriverDTO;
+import com.nomnom.order_service.dto.GeoPointDTO;
+import com.nomnom.order_service.dto.OrderDTO;
+import com.nomnom.order_service.model.Order;
+import com.nomnom.order_service.pricing.RestaurantLocations;
+import com.nomnom.order_service.request.AssignDriverRequest;
+import com.nomnom.order_service.service.IOrderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Automatic dispatch. Every tick, orders that are waiting for a driver are matched against the driver index as one
+ * batch and the winners are assigned through {@link IOrderService#assignDriver}. Off by default
+ * ({@code order.dispatch.enabled}); drivers are assigned manually until it is switched on.
+ *
+ * <p>With {@code order.batching.enabled}, compatible orders are first grouped into multi-drop batches; a batch is
+ * matched like a single order at its first pickup and assigned through {@link IOrderService#assignDriverToBatch}.
+ */
+@Component
+public class DriverDispatcher {
+
+    private final MongoTemplate mongoTemplate;
+    private final IOrderService orderService;
+    private final RestaurantLocations restaurantLocations;
+    private final IDriverClient driverClient;
+    private final DriverLocationIndex driverIndex;
+    private final DriverReservations driverReservations;
+    private final DispatchPlanner planner;
+    private final RouteBatcher batcher;
+    private final boolean enabled;
+    private final List<String> waitingStatuses;
+    private final List<String> vehicleTypeIds;
+    private final int maxOrdersPerTick;
+    private final int candidatesPerOrder;
+    private final double maxRadiusKm;
+
+    public DriverDispatcher(MongoTemplate mongoTemplate,
+                            IOrderService orderService,
+                            RestaurantLocations restaurantLocations,
+                            IDriverClient driverClient,
+                            DriverLocationIndex driverIndex,
+                            DriverReservations driverReservations,
+                            @Value("${order.dispatch.enabled:false}") boolean enabled,
+                            @Value("${order.dispatch.waiting-statuses:Ready}") List<String> waitingStatuses,
+                            @Value("${order.dispatch.vehicle-type-ids:}") List<String> vehicleTypeIds,
+                            @Value("${order.dispatch.max-orders-per-tick:5000}") int maxOrdersPerTick,
+                            @Value("${order.dispatch.candidates-per-order:8}") int candidatesPerOrder,
+                            @Value("${order.dispatch.max-radius-km:10}") double maxRadiusKm,
+                            @Value("${order.dispatch.unassigned-penalty-km:20}") double unassignedPenaltyKm,
+                            @Value("${order.batching.enabled:false}") boolean batchingEnabled,
+                            @Value("${order.batching.pickup-radius-km:0.3}") double batchPickupRadiusKm,
+                            @Value("${order.batching.window-ms:600000}") long batchWindowMillis,
+                            @Value("${order.batching.drop-spread-km:3}") double batchDropSpreadKm,
+                            @Value("${order.batching.max-orders:3}") int maxOrdersPerBatch,
+                            @Value("${order.batching.solve-budget-ms:5}") long batchSolveBudgetMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.orderService = orderService;
+        this.restaurantLocations = restaurantLocations;
+        this.driverClient = driverClient;
+        this.driverIndex = driverIndex;
+        this.driverReservations = driverReservations;
+        this.enabled = enabled;
+        this.waitingStatuses = waitingStatuses;
+        this.vehicleTypeIds = vehicleTypeIds;
+        this.maxOrdersPerTick = maxOrdersPerTick;
+        this.candidatesPerOrder = candidatesPerOrder;
+        this.maxRadiusKm = maxRadiusKm;
+        this.planner = new DispatchPlanner(driverIndex, candidatesPerOrder, maxRadiusKm, unassignedPenaltyKm);
+        this.batcher = batchingEnabled ? new RouteBatcher(batchPickupRadiusKm, batchWindowMillis, batchDropSpreadKm,
+                maxOrdersPerBatch, batchSolveBudgetMillis * 1_000_000) : null;
+    }
+
+    // Full refresh from user-service: picks up new drivers, status and vehicle changes; pings keep positions fresh.
+    // Drivers holding a reservation stay out of the index until it is released.
+    @Scheduled(fixedDelayString = "${order.dispatch.driver-sync-ms:30000}")
+    public void syncDrivers() {
+        if (!enabled) {
+            return;
+        }
+        Set<String> busy = driverReservations.findBusyDriverIds();
+        Set<String> known = new HashSet<>();
+        for (DriverDTO driver : driverClient.getDrivers()) {
+            if (driver.getLocation() == null) {
+                continue;
+            }
+            known.add(driver.getId());
+            driverIndex.upsert(driver.getId(), driver.getFirstName() + " " + driver.getLastName(),
+                    driver.getVehicleNumber(), driver.getVehicleTypeId(),
+                    driver.getLocation().getY(), driver.getLocation().getX(),
+                    driver.isActive() && "ONLINE".equals(driver.getDriverStatus()) && !busy.contains(driver.getId()));
+        }
+        driverIndex.retainOnly(known);
+    }
+
+    @Scheduled(fixedDelayString = "${order.dispatch.tick-ms:2000}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        Query waiting = new Query(Criteria.where("orderStatus").in(waitingStatuses).and("driverDetails").is(null))
+                .with(Sort.by("createdAt"))
+                .limit(maxOrdersPerTick);
+        waiting.fields().include("orderId", "restaurantId", "restaurantLocation", "customerDetails", "createdAt");
+        List<DispatchPlanner.Pickup> pickups = new ArrayList<>();
+        List<RouteBatcher.BatchOrder> batchable = new ArrayList<>();
+        for (Order order : mongoTemplate.find(waiting, Order.class)) {
+            GeoPointDTO pickupPoint = order.getRestaurantLocation() != null
+                    ? new GeoPointDTO(order.getRestaurantLocation().getLongitude(), order.getRestaurantLocation().getLatitude())
+                    : restaurantLocation(order.getRestaurantId());
+            if (pickupPoint == null) {
+                continue;
+            }
+            if (batcher != null && order.getCustomerDetails() != null) {
+                batchable.add(new RouteBatcher.BatchOrder(order.getOrderId(), pickupPoint.getY(), pickupPoint.getX(),
+                        order.getCustomerDetails().getLatitude(), order.getCustomerDetails().getLongitude(),
+                        order.getCreatedAt().getTime()));
+            } else {
+                pickups.add(new DispatchPlanner.Pickup(order.getOrderId(), pickupPoint.getY(), pickupPoint.getX(), vehicleTypeIds));
+            }
+        }
+        // Batches are planned under a key of their own; single orders keep their order id
+        Map<String, RouteBatcher.DeliveryBatch> batchesByKey = new HashMap<>();
+        if (!batchable.isEmpty()) {
+            for (RouteBatcher.DeliveryBatch batch : batcher.batch(batchable)) {
+                String key = batch.dropSequence().size() > 1 ? UUID.randomUUID().toString() : batch.dropSequence().get(0);
+                if (batch.dropSequence().size() > 1) {
+                    batchesByKey.put(key, batch);
+                }
+                pickups.add(new DispatchPlanner.Pickup(key, batch.firstPickupLatitude(), batch.firstPickupLongitude(), vehicleTypeIds));
+            }
+        }
+
+        for (DispatchPlanner.DispatchAssignment assignment : planner.plan(pickups)) {
+            DriverCandidate driver = assignment.driver();
+            driverIndex.setAvailable(driver.driverId(), false);
+            AssignDriverRequest request = new AssignDriverRequest(driver.driverId(), driver.driverName(), driver.vehicleNumber());
+            RouteBatcher.DeliveryBatch batch = batchesByKey.get(assignment.orderId());
+            try {
+                if (batch != null) {
+                    orderService.assignDriverToBatch(assignment.orderId(), batch.dropSequence(), request);
+                } else {
+                    orderService.assignDriver(assignment.orderId(), request);
+                }
+            } catch (DriverUnavailableException e) {
+                // Reserved elsewhere (another instance, or by hand) since the last sync; stays out of the index
+            } catch (RuntimeException e) {
+                // The order moved on (cancelled, assigned by hand) since we read it; the driver is still free
+                driverIndex.setAvailable(driver.driverId(), true);
+            }
+        }
+    }
+
+    public boolean updateDriverLocation(String driverId, double latitude, double longitude) {
+        return driverIndex.updateLocation(driverId, latitude, longitude);
+    }
+
+    // Nearest suitable available drivers for one order, for manual assignment screens
+    public List<DriverCandidateDTO> candidatesFor(String orderId, int limit) {
+        OrderDTO order = orderService.getOrderById(orderId);
+        GeoPointDTO pickupPoint = restaurantLocation(order.getRestaurantId());
+        if (pickupPoint == null) {
+            return List.of();
+        }
+        return driverIndex.nearest(pickupPoint.getY(), pickupPoint.getX(), vehicleTypeIds,
+                        Math.max(1, Math.min(limit, 50)), maxRadiusKm).stream()
+                .map(candidate -> new DriverCandidateDTO(candidate.driverId(), candidate.driverName(),
+                        candidate.vehicleNumber(), candidate.vehicleTypeId(), candidate.distanceKm()))
+                .toList();
+    }
+
+    // Shared with delivery quotes, which keep it refreshed; an unknown restaurant is skipped rather than failing the tick
+    private GeoPointDTO restaurantLocation(String restaurantId) {
+        try {
+            return restaurantLocations.location(restaurantId);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
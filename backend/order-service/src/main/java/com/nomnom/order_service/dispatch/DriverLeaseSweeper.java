@@ -0,0 +1,34 @@
+package com.nomnom.order_service.dispatch;
+
+import com.nomnom.order_service.model.DriverReservation;
+import com.nomnom.order_service.service.IOrderService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Frees drivers whose reserved order was never picked up and puts those orders back in the dispatch queue
+@Component
+public class DriverLeaseSweeper {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final DriverReservations driverReservations;
+    private final IOrderService orderService;
+    private final DriverLocationIndex driverIndex;
+
+    public DriverLeaseSweeper(DriverReservations driverReservations, IOrderService orderService,
+                              DriverLocationIndex driverIndex) {
+        this.driverReservations = driverReservations;
+        this.orderService = orderService;
+        this.driverIndex = driverIndex;
+    }
+
+    @Scheduled(fixedDelayString = "${order.dispatch.lease-sweep-ms:5000}")
+    public void sweep() {
+        for (DriverReservation reservation : driverReservations.findExpired(BATCH_SIZE)) {
+            if (driverReservations.expire(reservation)) {
+                orderService.unassignDriver(reservation.getOrderId(), reservation.getDriverId());
+                driverIndex.setAvailable(reservation.getDriverId(), true);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.nomnom.order_service.dispatch;
+
+import com.nomnom.order_service.geo.GeoMath;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of drivers for dispatch: a uniform lat/lon grid per vehicle type, holding only drivers that are
+ * currently available. A k-nearest query scans rings of cells outward from the pickup point and stops as soon as no
+ * unscanned cell can hold anything closer than the k-th best so far, so its cost depends on local density rather
+ * than on the total number of drivers.
+ *
+ * <p>Seeded and refreshed from user-service; location pings from driver apps move drivers between cells in between.
+ */
+@Component
+public class DriverLocationIndex {
+
+    static final double CELL_DEGREES = 0.01; // ~1.1 km north-south
+    private static final long PING_FRESH_MILLIS = 120_000;
+
+    private final Map<String, DriverEntry> drivers = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, Set<DriverEntry>>> gridsByVehicleType = new ConcurrentHashMap<>();
+
+    /**
+     * Adds or refreshes a driver from its user-service record. A location from a recent ping is newer than the
+     * stored one, so it is kept.
+     */
+    public void upsert(String driverId, String driverName, String vehicleNumber, String vehicleTypeId,
+                       double latitude, double longitude, boolean available) {
+        String vehicleType = vehicleTypeId != null ? vehicleTypeId : "";
+        DriverEntry entry = drivers.compute(driverId, (id, current) -> {
+            if (current != null && current.vehicleTypeId.equals(vehicleType)) {
+                return current;
+            }
+            if (current != null) {
+                current.place(current.position, false);
+            }
+            return new DriverEntry(id, driverName, vehicleNumber, vehicleType);
+        });
+        entry.driverName = driverName;
+        entry.vehicleNumber = vehicleNumber;
+        boolean pingIsFresh = System.currentTimeMillis() - entry.pingedAt < PING_FRESH_MILLIS;
+        entry.place(pingIsFresh && entry.position != null ? entry.position : new Position(latitude, longitude), available);
+    }
+
+    // Returns false for drivers we haven't loaded yet
+    public boolean updateLocation(String driverId, double latitude, double longitude) {
+        DriverEntry entry = drivers.get(driverId);
+        if (entry == null) {
+            return false;
+        }
+        entry.pingedAt = System.currentTimeMillis();
+        entry.place(new Position(latitude, longitude), entry.available);
+        return true;
+    }
+
+    public void setAvailable(String driverId, boolean available) {
+        DriverEntry entry = drivers.get(driverId);
+        if (entry != null) {
+            entry.place(entry.position, available);
+        }
+    }
+
+    // Drops drivers that no longer exist upstream
+    public void retainOnly(Set<String> driverIds) {
+        drivers.values().removeIf(entry -> {
+            if (driverIds.contains(entry.driverId)) {
+                return false;
+            }
+            entry.place(entry.position, false);
+            return true;
+        });
+    }
+
+    public int size() {
+        return drivers.size();
+    }
+
+    public void forEachAvailable(PositionConsumer consumer) {
+        for (DriverEntry entry : drivers.values()) {
+            Position position = entry.position;
+            if (entry.available && position != null) {
+                consumer.accept(position.latitude(), position.longitude());
+            }
+        }
+    }
+
+    /**
+     * Up to {@code k} available drivers of any of the given vehicle types (any type when empty) within
+     * {@code maxRadiusKm}, nearest first.
+     */
+    public List<DriverCandidate> nearest(double latitude, double longitude, Collection<String> vehicleTypeIds,
+                                         int k, double maxRadiusKm) {
+        List<Map<Long, Set<DriverEntry>>> grids = new ArrayList<>();
+        if (vehicleTypeIds == null || vehicleTypeIds.isEmpty()) {
+            grids.addAll(gridsByVehicleType.values());
+        } else {
+            for (String vehicleTypeId : vehicleTypeIds) {
+                Map<Long, Set<DriverEntry>> grid = gridsByVehicleType.get(vehicleTypeId);
+                if (grid != null) {
+                    grids.add(grid);
+                }
+            }
+        }
+        if (grids.isEmpty() || k <= 0) {
+            return List.of();
+        }
+
+        int row = GeoMath.cellIndex(latitude, CELL_DEGREES);
+        int column = GeoMath.cellIndex(longitude, CELL_DEGREES);
+        // Cells are narrower east-west away from the equator; that width bounds how far each ring reaches
+        double ringWidthKm = CELL_DEGREES * GeoMath.KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        PriorityQueue<DriverCandidate> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(DriverCandidate::distanceKm).reversed());
+        for (int ring = 0; ; ring++) {
+            if (ring == 0) {
+                scanCell(grids, row, column, latitude, longitude, k, maxRadiusKm, best);
+            } else {
+                for (int offset = -ring; offset <= ring; offset++) {
+                    scanCell(grids, row - ring, column + offset, latitude, longitude, k, maxRadiusKm, best);
+                    scanCell(grids, row + ring, column + offset, latitude, longitude, k, maxRadiusKm, best);
+                }
+                for (int offset = -ring + 1; offset < ring; offset++) {
+                    scanCell(grids, row + offset, column - ring, latitude, longitude, k, maxRadiusKm, best);
+                    scanCell(grids, row + offset, column + ring, latitude, longitude, k, maxRadiusKm, best);
+                }
+            }
+            // Everything outside this ring is at least this far away
+            double reachedKm = ring * ringWidthKm;
+            if ((best.size() == k && best.peek().distanceKm() <= reachedKm) || reachedKm > maxRadiusKm) {
+                break;
+            }
+        }
+        List<DriverCandidate> nearest = new ArrayList<>(best);
+        nearest.sort(Comparator.comparingDouble(DriverCandidate::distanceKm));
+        return nearest;
+    }
+
+    private static void scanCell(List<Map<Long, Set<DriverEntry>>> grids, int row, int column,
+                                 double latitude, double longitude, int k, double maxRadiusKm,
+                                 PriorityQueue<DriverCandidate> best) {
+        long cell = GeoMath.cellKey(row, column);
+        for (Map<Long, Set<DriverEntry>> grid : grids) {
+            Set<DriverEntry> entries = grid.get(cell);
+            if (entries == null) {
+                continue;
+            }
+            for (DriverEntry entry : entries) {
+                Position position = entry.position;
+                double distanceKm = GeoMath.distanceKm(latitude, longitude, position.latitude(), position.longitude());
+                if (distanceKm > maxRadiusKm || (best.size() == k && distanceKm >= best.peek().distanceKm())) {
+                    continue;
+                }
+                best.add(new DriverCandidate(entry.driverId, entry.driverName, entry.vehicleNumber,
+                        entry.vehicleTypeId, distanceKm));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+        }
+    }
+
+    public interface PositionConsumer {
+        void accept(double latitude, double longitude);
+    }
+
+    private record Position(double latitude, double longitude) {
+    }
+
+    private final class DriverEntry {
+        private final String driverId;
+        private final String vehicleTypeId;
+        private volatile String driverName;
+        private volatile String vehicleNumber;
+        private volatile Position position;
+        private volatile boolean available;
+        private volatile long pingedAt;
+        private long cell;
+        private boolean indexed;
+
+        private DriverEntry(String driverId, String driverName, String vehicleNumber, String vehicleTypeId) {
+            this.driverId = driverId;
+            this.driverName = driverName;
+            this.vehicleNumber = vehicleNumber;
+            this.vehicleTypeId = vehicleTypeId;
+        }
+
+        // Moves the entry into the cell for its new position, or out of the grid when it stops being available
+        synchronized void place(Position newPosition, boolean nowAvailable) {
+            long newCell = newPosition != null ? GeoMath.cellKey(newPosition.latitude(), newPosition.longitude(), CELL_DEGREES) : 0;
+            boolean shouldBeIndexed = nowAvailable && newPosition != null;
+            if (indexed && (!shouldBeIndexed || newCell != cell)) {
+                Map<Long, Set<DriverEntry>> grid = gridsByVehicleType.get(vehicleTypeId);
+                grid.computeIfPresent(cell, (key, entries) -> {
+                    entries.remove(this);
+                    return entries.isEmpty() ? null : entries;
+                });
+                indexed = false;
+            }
+            position = newPosition;
+            available = nowAvailable;
+            if (shouldBeIndexed && !indexed) {
+                // Added inside compute so a concurrent removal can't drop the cell's set from under us
+                gridsByVehicleType.computeIfAbsent(vehicleTypeId, type -> new ConcurrentHashMap<>())
+                        .compute(newCell, (key, entries) -> {
+                            Set<DriverEntry> cellEntries = entries != null ? entries : ConcurrentHashMap.newKeySet();
+                            cellEntries.add(this);
+                            return cellEntries;
+                        });
+                cell = newCell;
+                indexed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.nomnom.order_service.dispatch;
+
+import com.nomnom.order_service.model.DriverReservation;
+import com.nomnom.order_service.shared.enums.DriverReservationStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Driver reservation lifecycle: AVAILABLE, then RESERVED for one order under a lease, then ON_DELIVERY once the
+ * order is picked up, then AVAILABLE again when it is delivered or cancelled.
+ *
+ * <p>Mongo decides: each transition is a single conditional update, so of any number of concurrent attempts across
+ * instances exactly one can move a driver out of AVAILABLE. In front of that, a per-driver compare-and-set lets only
+ * one thread of this instance attempt a reservation at a time; the others fail fast without a round trip.
+ */
+@Component
+public class DriverReservations {
+
+    private final MongoTemplate mongoTemplate;
+    private final long leaseMillis;
+    private final Map<String, AtomicReference<String>> inFlight = new ConcurrentHashMap<>();
+
+    public DriverReservations(MongoTemplate mongoTemplate,
+                              @Value("${order.dispatch.reservation-lease-ms:900000}") long leaseMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * Reserves the driver for the order. Succeeds if the driver is AVAILABLE (or has never been reserved), or is
+     * already reserved for this same order; the latter renews the lease, so retries are safe.
+     */
+    public boolean reserve(String driverId, String orderId) {
+        AtomicReference<String> claim = inFlight.computeIfAbsent(driverId, id -> new AtomicReference<>());
+        if (!claim.compareAndSet(null, orderId)) {
+            return false;
+        }
+        try {
+            Date now = new Date();
+            Query claimable = new Query(Criteria.where("driverId").is(driverId).orOperator(
+                    Criteria.where("status").is(DriverReservationStatus.AVAILABLE),
+                    Criteria.where("status").is(DriverReservationStatus.RESERVED).and("orderId").is(orderId)));
+            Update reserve = new Update()
+                    .set("status", DriverReservationStatus.RESERVED)
+                    .set("orderId", orderId)
+                    .set("leaseExpiresAt", new Date(now.getTime() + leaseMillis))
+                    .set("updatedAt", now);
+            // No match and no document: the upsert creates it. No match but a document: its _id collides.
+            mongoTemplate.upsert(claimable, reserve, DriverReservation.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        } finally {
+            claim.set(null);
+        }
+    }
+
+    // RESERVED -> ON_DELIVERY; fails once the lease has been swept. Repeating it (the next order of a batch) is a no-op
+    public boolean startDelivery(String driverId, String orderId) {
+        Query reserved = new Query(Criteria.where("driverId").is(driverId)
+                .and("status").in(DriverReservationStatus.RESERVED, DriverReservationStatus.ON_DELIVERY)
+                .and("orderId").is(orderId));
+        Update onDelivery = new Update()
+                .set("status", DriverReservationStatus.ON_DELIVERY)
+                .unset("leaseExpiresAt")
+                .set("updatedAt", new Date());
+        return mongoTemplate.updateFirst(reserved, onDelivery, DriverReservation.class).getMatchedCount() == 1;
+    }
+
+    // Back to AVAILABLE, but only if the driver is still committed to this order
+    public boolean release(String driverId, String orderId) {
+        Query held = new Query(Criteria.where("driverId").is(driverId).and("orderId").is(orderId));
+        return mongoTemplate.updateFirst(held, available(), DriverReservation.class).getModifiedCount() == 1;
+    }
+
+    public Set<String> findBusyDriverIds() {
+        Query busy = new Query(Criteria.where("status").ne(DriverReservationStatus.AVAILABLE));
+        busy.fields().include("driverId");
+        return mongoTemplate.find(busy, DriverReservation.class).stream()
+                .map(DriverReservation::getDriverId)
+                .collect(Collectors.toSet());
+    }
+
+    List<DriverReservation> findExpired(int limit) {
+        Query expired = new Query(Criteria.where("status").is(DriverReservationStatus.RESERVED)
+                .and("leaseExpiresAt").lt(new Date()))
+                .limit(limit);
+        return mongoTemplate.find(expired, DriverReservation.class);
+    }
+
+    // Releases a reservation whose lease ran out, unless it was picked up or renewed in the meantime
+    boolean expire(DriverReservation reservation) {
+        Query stillExpired = new Query(Criteria.where("driverId").is(reservation.getDriverId())
+                .and("status").is(DriverReservationStatus.RESERVED)
+                .and("orderId").is(reservation.getOrderId())
+                .and("leaseExpiresAt").lt(new Date()));
+        return mongoTemplate.updateFirst(stillExpired, available(), DriverReservation.class).getModifiedCount() == 1;
+    }
+
+    private static Update available() {
+        return new Update()
+                .set("status", DriverReservationStatus.AVAILABLE)
+                .unset("orderId")
+                .unset("leaseExpiresAt")
+                .set("updatedAt", new Date());
+    }
+}
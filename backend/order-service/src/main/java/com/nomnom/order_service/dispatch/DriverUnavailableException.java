@@ -0,0 +1,7 @@
+package com.nomnom.order_service.dispatch;
+
+public class DriverUnavailableException extends RuntimeException {
+    public DriverUnavailableException(String driverId) {
+        super("Driver " + driverId + " is not available");
+    }
+}
@@ -0,0 +1,161 @@
+package com.nomnom.order_service.dispatch;
+
+import com.nomnom.order_service.geo.GeoMath;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups waiting orders into multi-drop batches for one driver. Orders are compatible when their pickups are within
+ * {@code pickupRadiusKm} of each other (the same restaurant, or neighbours in a food court), they were placed within
+ * {@code windowMillis} of each other and their drop-offs lie within {@code dropSpreadKm}; every pair of orders in a
+ * batch is compatible. Oldest orders seed batches first, so no order waits behind newer ones; each batch's pickup and
+ * drop-off sequence is then solved.
+ */
+public class RouteBatcher {
+
+    private final double pickupRadiusKm;
+    private final long windowMillis;
+    private final double dropSpreadKm;
+    private final int maxBatchSize;
+    private final long solveBudgetNanos;
+
+    public RouteBatcher(double pickupRadiusKm, long windowMillis, double dropSpreadKm, int maxBatchSize,
+                        long solveBudgetNanos) {
+        this.pickupRadiusKm = pickupRadiusKm;
+        this.windowMillis = windowMillis;
+        this.dropSpreadKm = dropSpreadKm;
+        this.maxBatchSize = maxBatchSize;
+        this.solveBudgetNanos = solveBudgetNanos;
+    }
+
+    /**
+     * Every order ends up in exactly one batch; orders with nothing compatible form a batch of their own.
+     */
+    public List<DeliveryBatch> batch(List<BatchOrder> orders) {
+        double cellDegrees = pickupRadiusKm / GeoMath.KM_PER_DEGREE;
+        Map<Long, List<BatchOrder>> byPickupCell = new HashMap<>();
+        for (BatchOrder order : orders) {
+            byPickupCell.computeIfAbsent(GeoMath.cellKey(order.pickupLatitude(), order.pickupLongitude(), cellDegrees),
+                    cell -> new ArrayList<>()).add(order);
+        }
+        List<BatchOrder> oldestFirst = new ArrayList<>(orders);
+        oldestFirst.sort(Comparator.comparingLong(BatchOrder::createdAtMillis));
+
+        Set<String> taken = new HashSet<>();
+        List<DeliveryBatch> batches = new ArrayList<>();
+        for (BatchOrder seed : oldestFirst) {
+            if (!taken.add(seed.orderId())) {
+                continue;
+            }
+            List<BatchOrder> members = new ArrayList<>();
+            members.add(seed);
+            if (maxBatchSize > 1) {
+                List<BatchOrder> compatible = compatibleWith(seed, byPickupCell, cellDegrees, taken);
+                compatible.sort(Comparator.comparingDouble(other -> GeoMath.distanceKm(
+                        seed.dropLatitude(), seed.dropLongitude(), other.dropLatitude(), other.dropLongitude())));
+                for (BatchOrder other : compatible) {
+                    if (members.size() == maxBatchSize) {
+                        break;
+                    }
+                    // Checked against every member, not just the seed, so two members can't be twice the limits apart
+                    if (members.stream().allMatch(member -> isCompatible(member, other))) {
+                        taken.add(other.orderId());
+                        members.add(other);
+                    }
+                }
+            }
+            batches.add(route(members));
+        }
+        return batches;
+    }
+
+    private List<BatchOrder> compatibleWith(BatchOrder seed, Map<Long, List<BatchOrder>> byPickupCell,
+                                            double cellDegrees, Set<String> taken) {
+        // Cells are square in degrees, so away from the equator a radius spans more columns than rows
+        int rowSpan = 1;
+        int columnSpan = (int) Math.ceil(1 / Math.max(Math.cos(Math.toRadians(seed.pickupLatitude())), 0.01));
+        List<BatchOrder> compatible = new ArrayList<>();
+        for (int row = -rowSpan; row <= rowSpan; row++) {
+            for (int column = -columnSpan; column <= columnSpan; column++) {
+                List<BatchOrder> cell = byPickupCell.get(GeoMath.cellKey(seed.pickupLatitude() + row * cellDegrees,
+                        seed.pickupLongitude() + column * cellDegrees, cellDegrees));
+                if (cell == null) {
+                    continue;
+                }
+                for (BatchOrder other : cell) {
+                    if (!taken.contains(other.orderId()) && isCompatible(seed, other)) {
+                        compatible.add(other);
+                    }
+                }
+            }
+        }
+        return compatible;
+    }
+
+    private boolean isCompatible(BatchOrder order, BatchOrder other) {
+        return Math.abs(other.createdAtMillis() - order.createdAtMillis()) <= windowMillis
+                && GeoMath.distanceKm(order.pickupLatitude(), order.pickupLongitude(),
+                        other.pickupLatitude(), other.pickupLongitude()) <= pickupRadiusKm
+                && GeoMath.distanceKm(order.dropLatitude(), order.dropLongitude(),
+                        other.dropLatitude(), other.dropLongitude()) <= dropSpreadKm;
+    }
+
+    // Pickups first, nearest-next from the oldest order's restaurant; then the drop-offs from the last pickup
+    DeliveryBatch route(List<BatchOrder> members) {
+        List<BatchOrder> pickups = new ArrayList<>(members.size());
+        List<BatchOrder> remaining = new ArrayList<>(members);
+        BatchOrder at = remaining.remove(0);
+        pickups.add(at);
+        while (!remaining.isEmpty()) {
+            BatchOrder from = at;
+            at = remaining.stream()
+                    .min(Comparator.comparingDouble(next -> GeoMath.distanceKm(from.pickupLatitude(),
+                            from.pickupLongitude(), next.pickupLatitude(), next.pickupLongitude())))
+                    .orElseThrow();
+            remaining.remove(at);
+            pickups.add(at);
+        }
+
+        double[] latitudes = new double[members.size() + 1];
+        double[] longitudes = new double[members.size() + 1];
+        latitudes[0] = at.pickupLatitude();
+        longitudes[0] = at.pickupLongitude();
+        for (int i = 0; i < members.size(); i++) {
+            latitudes[i + 1] = members.get(i).dropLatitude();
+            longitudes[i + 1] = members.get(i).dropLongitude();
+        }
+        int[] stops = RouteSolver.solve(latitudes, longitudes, solveBudgetNanos);
+
+        double distanceKm = 0;
+        for (int i = 1; i < pickups.size(); i++) {
+            distanceKm += GeoMath.distanceKm(pickups.get(i - 1).pickupLatitude(), pickups.get(i - 1).pickupLongitude(),
+                    pickups.get(i).pickupLatitude(), pickups.get(i).pickupLongitude());
+        }
+        List<String> drops = new ArrayList<>(stops.length);
+        int previous = 0;
+        for (int stop : stops) {
+            distanceKm += GeoMath.distanceKm(latitudes[previous], longitudes[previous], latitudes[stop], longitudes[stop]);
+            drops.add(members.get(stop - 1).orderId());
+            previous = stop;
+        }
+        return new DeliveryBatch(pickups.stream().map(BatchOrder::orderId).toList(), drops,
+                pickups.get(0).pickupLatitude(), pickups.get(0).pickupLongitude(), distanceKm);
+    }
+
+    public record BatchOrder(String orderId, double pickupLatitude, double pickupLongitude,
+                             double dropLatitude, double dropLongitude, long createdAtMillis) {
+    }
+
+    /**
+     * @param dropSequence the batch's orders in drop-off order; the first pickup is where the driver starts
+     */
+    public record DeliveryBatch(List<String> pickupSequence, List<String> dropSequence,
+                                double firstPickupLatitude, double firstPickupLongitude, double distanceKm) {
+    }
+}
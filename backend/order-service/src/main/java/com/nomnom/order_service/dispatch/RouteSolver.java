@@ -0,0 +1,83 @@
+package com.nomnom.order_service.dispatch;
+
+import com.nomnom.order_service.geo.GeoMath;
+
+/**
+ * Near-optimal visiting order for a driver's drop-offs: an open path that starts at the (last) pickup and need not
+ * return. A nearest-neighbour tour is improved with 2-opt moves until no move shortens it or the time budget runs
+ * out, whichever comes first; the best path found so far is always a valid answer.
+ */
+final class RouteSolver {
+
+    private static final double IMPROVEMENT_KM = 1e-9;
+
+    private RouteSolver() {
+    }
+
+    /**
+     * @param latitudes  index 0 is the start, 1..n the stops
+     * @return the stops' indices (1..n) in visiting order
+     */
+    static int[] solve(double[] latitudes, double[] longitudes, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int points = latitudes.length;
+        double[][] distance = new double[points][points];
+        for (int a = 0; a < points; a++) {
+            for (int b = a + 1; b < points; b++) {
+                distance[a][b] = distance[b][a] = GeoMath.distanceKm(latitudes[a], longitudes[a], latitudes[b], longitudes[b]);
+            }
+        }
+        int[] path = nearestNeighbour(distance);
+        twoOpt(path, distance, deadline);
+        int[] stops = new int[points - 1];
+        System.arraycopy(path, 1, stops, 0, stops.length);
+        return stops;
+    }
+
+    private static int[] nearestNeighbour(double[][] distance) {
+        int points = distance.length;
+        int[] path = new int[points];
+        boolean[] visited = new boolean[points];
+        visited[0] = true;
+        for (int i = 1; i < points; i++) {
+            int from = path[i - 1];
+            int next = -1;
+            for (int candidate = 1; candidate < points; candidate++) {
+                if (!visited[candidate] && (next < 0 || distance[from][candidate] < distance[from][next])) {
+                    next = candidate;
+                }
+            }
+            path[i] = next;
+            visited[next] = true;
+        }
+        return path;
+    }
+
+    // Reversing path[i..j] swaps edges (i-1, i) and (j, j+1) for (i-1, j) and (i, j+1); the start never moves,
+    // and when j is the last stop there is no (j, j+1) edge to pay for
+    private static void twoOpt(int[] path, double[][] distance, long deadline) {
+        int last = path.length - 1;
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = false;
+            for (int i = 1; i < last; i++) {
+                for (int j = i + 1; j <= last; j++) {
+                    double before = distance[path[i - 1]][path[i]] + (j < last ? distance[path[j]][path[j + 1]] : 0);
+                    double after = distance[path[i - 1]][path[j]] + (j < last ? distance[path[i]][path[j + 1]] : 0);
+                    if (after < before - IMPROVEMENT_KM) {
+                        reverse(path, i, j);
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void reverse(int[] path, int from, int to) {
+        while (from < to) {
+            int swap = path[from];
+            path[from++] = path[to];
+            path[to--] = swap;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeliveryQuoteDTO {
+    private Double distanceKm; // road estimate; null when the restaurant has no location on record
+    private double deliveryFee;
+    private double surgeMultiplier; // already applied to deliveryFee
+    private int prepMinutes;
+    private int travelMinutes;
+    private int etaMinutes;
+}
@@ -0,0 +1,16 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DriverCandidateDTO {
+    private String driverId;
+    private String driverName;
+    private String vehicleNumber;
+    private String vehicleTypeId;
+    private double distanceKm; // from the driver to the restaurant
+}
@@ -0,0 +1,20 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Subset of user-service's Driver document that dispatch needs
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DriverDTO {
+    private String id;
+    private String firstName;
+    private String lastName;
+    private String vehicleTypeId;
+    private String vehicleNumber;
+    private String driverStatus; // ONLINE, OFFLINE, ON_ROUTE or AT_CAPACITY
+    private GeoPointDTO location;
+    private boolean active;
+}
@@ -0,0 +1,14 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Spring Data's Point as user-service serializes it: x is longitude, y is latitude
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GeoPointDTO {
+    private double x;
+    private double y;
+}
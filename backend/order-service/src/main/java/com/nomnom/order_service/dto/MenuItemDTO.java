@@ -0,0 +1,26 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// Subset of menu-service's MenuItems entity used for price verification
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MenuItemDTO {
+    private Long id;
+    private String restaurantId;
+    private String itemName;
+    private Boolean availabilityStatus;
+    private List<PortionDTO> portions;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PortionDTO {
+        private String portionSize; // free text, e.g. "Small (8 inch)"
+        private double price;
+    }
+}
@@ -24,6 +24,11 @@ public class OrderDTO {
     private DriverDetailsDTO driverDetails;
     private Date createdAt;
     private Date updatedAt;
+    private Date estimatedDeliveryAt;
+    private String batchId;
+    private Integer deliverySequence;
+    private Date scheduledFor;
+    private long revision; // bumped by every change; matches the revision on the order's events
 
     @Data
     @AllArgsConstructor
@@ -0,0 +1,21 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderStatusEventDTO {
+    private String orderId;
+    private String customerId;
+    private String restaurantId;
+    private String type;
+    private String orderStatus;
+    private double totalAmount;
+    private String driverId;
+    private long revision;
+    private Date occurredAt;
+}
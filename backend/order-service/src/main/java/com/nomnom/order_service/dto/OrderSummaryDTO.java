@@ -0,0 +1,17 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSummaryDTO {
+    private String orderId;
+    private String restaurantId;
+    private double totalAmount;
+    private String orderStatus;
+    private Date createdAt;
+}
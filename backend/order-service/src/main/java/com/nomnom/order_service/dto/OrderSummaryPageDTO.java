@@ -0,0 +1,14 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSummaryPageDTO {
+    private List<OrderSummaryDTO> orders;
+    private String nextCursor; // null when there are no more pages
+}
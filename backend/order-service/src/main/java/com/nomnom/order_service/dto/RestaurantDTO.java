@@ -0,0 +1,17 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Subset of user-service's Restaurant document that order-service needs
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RestaurantDTO {
+    private String id;
+    private String restaurantName;
+    private String restaurantStatus; // ONLINE, OFFLINE or AT_CAPACITY
+    private boolean active;
+    private GeoPointDTO location;
+}
@@ -0,0 +1,20 @@
+package com.nomnom.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevenueRollupDTO {
+    private String restaurantId;
+    private String granularity;
+    private Date bucketStart;
+    private long orderCount;
+    private double orderTotal;
+    private double deliveryFee;
+    private long cancelledCount;
+    private double averageBasket;
+}
@@ -0,0 +1,30 @@
+package com.nomnom.order_service.event;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Hands relayed events to listeners inside this JVM; also the sink tests subscribe to
+@Component
+public class InProcessOrderEventSink implements OrderEventSink {
+
+    private final List<OrderEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(OrderEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(OrderEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void publish(List<OrderEvent> events) {
+        for (OrderEvent event : events) {
+            for (OrderEventListener listener : listeners) {
+                listener.onOrderEvent(event);
+            }
+        }
+    }
+}
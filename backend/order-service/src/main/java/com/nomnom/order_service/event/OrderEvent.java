@@ -0,0 +1,42 @@
+package com.nomnom.order_service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Outbox record written in the same transaction as the order change it describes. {@code revision} is the
+ * order's revision after the change, so consumers can order and de-duplicate events per order.
+ */
+@Document(collection = "order_outbox")
+@CompoundIndex(name = "pending", def = "{'publishedAt': 1, 'occurredAt': 1, '_id': 1}")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderEvent {
+    @Id
+    private String id;
+    private String orderId;
+    private long revision;
+    private OrderEventType type;
+    private String customerId;
+    private String restaurantId;
+    private String orderStatus;
+    private double orderTotal;
+    private double deliveryFee;
+    private double totalAmount;
+    private String driverId;
+    private Double restaurantLatitude;
+    private Double restaurantLongitude;
+    private Date releaseAt; // scheduled orders only: when the kitchen was (or will be) asked to start
+    private Date orderCreatedAt;
+    private Date occurredAt;
+    @Indexed(name = "published_ttl", expireAfter = "7d") // published events are kept a week for replay, then dropped
+    private Date publishedAt;
+}
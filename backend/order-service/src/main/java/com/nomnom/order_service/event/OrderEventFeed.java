@@ -0,0 +1,69 @@
+package com.nomnom.order_service.event;
+
+import org.bson.Document;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tails the outbox with a change stream so that every instance sees every order event as soon as it commits,
+ * whichever instance wrote it. Unlike the relay (one publisher per cluster), this is for instance-local
+ * consumers such as live tracking connections.
+ */
+@Component
+public class OrderEventFeed implements SmartLifecycle {
+
+    private final MongoTemplate mongoTemplate;
+    private final List<OrderEventListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile MessageListenerContainer container;
+
+    public OrderEventFeed(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void subscribe(OrderEventListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void start() {
+        MessageListener<ChangeStreamDocument<Document>, OrderEvent> onInsert = message -> {
+            OrderEvent event = message.getBody();
+            if (event != null) {
+                listeners.forEach(listener -> listener.onOrderEvent(event));
+            }
+        };
+        ChangeStreamRequest<OrderEvent> request = ChangeStreamRequest.builder(onInsert)
+                .collection(mongoTemplate.getCollectionName(OrderEvent.class))
+                .filter(Aggregation.newAggregation(Aggregation.match(Criteria.where("operationType").is("insert"))))
+                .build();
+        MessageListenerContainer listenerContainer = new DefaultMessageListenerContainer(mongoTemplate);
+        listenerContainer.register(request, OrderEvent.class);
+        listenerContainer.start();
+        container = listenerContainer;
+    }
+
+    @Override
+    public void stop() {
+        if (container != null) {
+            container.stop();
+            container = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return container != null && container.isRunning();
+    }
+}
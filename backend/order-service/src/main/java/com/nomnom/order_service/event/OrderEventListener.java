@@ -0,0 +1,5 @@
+package com.nomnom.order_service.event;
+
+public interface OrderEventListener {
+    void onOrderEvent(OrderEvent event);
+}
@@ -0,0 +1,11 @@
+package com.nomnom.order_service.event;
+
+import java.util.List;
+
+/**
+ * Destination for relayed order events. Delivery is at-least-once: a batch is redelivered until every sink has
+ * accepted it, so implementations must tolerate duplicates (use {@link OrderEvent#getRevision()}).
+ */
+public interface OrderEventSink {
+    void publish(List<OrderEvent> events);
+}
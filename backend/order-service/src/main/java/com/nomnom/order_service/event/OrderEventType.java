@@ -0,0 +1,5 @@
+package com.nomnom.order_service.event;
+
+public enum OrderEventType {
+    CREATED, STATUS_CHANGED, CANCELLED, DRIVER_ASSIGNED, DRIVER_UNASSIGNED, DISCOUNT_APPLIED
+}
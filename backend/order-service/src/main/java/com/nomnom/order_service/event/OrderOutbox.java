@@ -0,0 +1,53 @@
+package com.nomnom.order_service.event;
+
+import com.nomnom.order_service.model.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+// Must be called inside the transaction that writes the order so the event commits (or rolls back) with it
+@Component
+public class OrderOutbox {
+
+    private final MongoTemplate mongoTemplate;
+
+    public OrderOutbox(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void append(Order order, OrderEventType type) {
+        mongoTemplate.insert(toEvent(order, type));
+    }
+
+    // One insert for a whole batch of changed orders
+    public void appendAll(List<Order> orders, Function<Order, OrderEventType> typeOf) {
+        if (!orders.isEmpty()) {
+            mongoTemplate.insert(orders.stream().map(order -> toEvent(order, typeOf.apply(order))).toList(), OrderEvent.class);
+        }
+    }
+
+    private static OrderEvent toEvent(Order order, OrderEventType type) {
+        return new OrderEvent(
+                null,
+                order.getOrderId(),
+                order.getRevision(),
+                type,
+                order.getCustomerId(),
+                order.getRestaurantId(),
+                order.getOrderStatus(),
+                order.getOrderTotal(),
+                order.getDeliveryFee(),
+                order.getTotalAmount(),
+                order.getDriverDetails() != null ? order.getDriverDetails().getDriverId() : null,
+                order.getRestaurantLocation() != null ? order.getRestaurantLocation().getLatitude() : null,
+                order.getRestaurantLocation() != null ? order.getRestaurantLocation().getLongitude() : null,
+                order.getReleaseAt(),
+                order.getCreatedAt(),
+                new Date(),
+                null
+        );
+    }
+}
@@ -0,0 +1,134 @@
+package com.nomnom.order_service.event;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes pending outbox events to every {@link OrderEventSink} in batches. Only the instance holding the relay
+ * lease publishes, and the lease is renewed before every batch, so a relay that loses it stops at the next batch
+ * boundary. Within a batch each order's events go out in revision order. A batch is marked published only after
+ * all sinks accept it, so a failure means the whole batch is retried (at-least-once).
+ */
+@Component
+public class OrderOutboxRelay {
+
+    private static final String LEASE_COLLECTION = "order_outbox_lease";
+    private static final String LEASE_ID = "relay";
+
+    private final MongoTemplate mongoTemplate;
+    private final List<OrderEventSink> sinks;
+    private final int batchSize;
+    private final long leaseMillis;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public OrderOutboxRelay(MongoTemplate mongoTemplate,
+                            List<OrderEventSink> sinks,
+                            @Value("${order.outbox.batch-size:200}") int batchSize,
+                            @Value("${order.outbox.lease-ms:10000}") long leaseMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.sinks = sinks;
+        this.batchSize = batchSize;
+        this.leaseMillis = leaseMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.relay-interval-ms:500}")
+    public void relay() {
+        // Drain while there is a backlog rather than waiting a full interval per batch
+        int published;
+        do {
+            if (!acquireLease()) {
+                return;
+            }
+            published = relayBatch();
+        } while (published >= batchSize);
+    }
+
+    int relayBatch() {
+        Query pending = new Query(Criteria.where("publishedAt").is(null))
+                .with(Sort.by("occurredAt", "id")) // ObjectIds break ties in insertion order
+                .limit(batchSize);
+        List<OrderEvent> batch = mongoTemplate.find(pending, OrderEvent.class);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch = inRevisionOrder(withEarlierRevisions(batch));
+        for (OrderEventSink sink : sinks) {
+            sink.publish(batch);
+        }
+        List<String> ids = batch.stream().map(OrderEvent::getId).toList();
+        mongoTemplate.updateMulti(new Query(Criteria.where("id").in(ids)),
+                new Update().set("publishedAt", new Date()), OrderEvent.class);
+        return batch.size();
+    }
+
+    /**
+     * occurredAt comes from the clock of whichever instance made the change, so an order's later revision can sort
+     * ahead of an earlier one that is still pending. Those earlier revisions are pulled into the batch, which means
+     * an event never goes out before its predecessors. The lookup only touches pending events.
+     */
+    private List<OrderEvent> withEarlierRevisions(List<OrderEvent> batch) {
+        Map<String, Long> newestRevision = new HashMap<>();
+        for (OrderEvent event : batch) {
+            newestRevision.merge(event.getOrderId(), event.getRevision(), Math::max);
+        }
+        Set<String> ids = batch.stream().map(OrderEvent::getId).collect(Collectors.toSet());
+        Query earlier = new Query(Criteria.where("publishedAt").is(null)
+                .and("orderId").in(newestRevision.keySet())
+                .and("id").nin(ids));
+        List<OrderEvent> stragglers = mongoTemplate.find(earlier, OrderEvent.class).stream()
+                .filter(event -> event.getRevision() < newestRevision.get(event.getOrderId()))
+                .toList();
+        if (stragglers.isEmpty()) {
+            return batch;
+        }
+        List<OrderEvent> extended = new ArrayList<>(batch);
+        extended.addAll(stragglers);
+        return extended;
+    }
+
+    // Keeps the batch's time order across orders, but fills each order's positions with its events by revision
+    private static List<OrderEvent> inRevisionOrder(List<OrderEvent> batch) {
+        Map<String, Queue<OrderEvent>> byOrder = new HashMap<>();
+        batch.stream()
+                .sorted(Comparator.comparingLong(OrderEvent::getRevision))
+                .forEach(event -> byOrder.computeIfAbsent(event.getOrderId(), orderId -> new ArrayDeque<>()).add(event));
+        return batch.stream().map(event -> byOrder.get(event.getOrderId()).poll()).toList();
+    }
+
+    // Renews our lease, or takes it over once the previous holder's has expired
+    private boolean acquireLease() {
+        Date now = new Date();
+        Query query = new Query(Criteria.where("_id").is(LEASE_ID).orOperator(
+                Criteria.where("owner").is(instanceId),
+                Criteria.where("expiresAt").lt(now)));
+        Update update = new Update()
+                .set("owner", instanceId)
+                .set("expiresAt", new Date(now.getTime() + leaseMillis));
+        try {
+            mongoTemplate.upsert(query, update, LEASE_COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Someone else holds a live lease, so our upsert tried to insert a second "relay" document
+            return false;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.nomnom.order_service.geo;
+
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    public static final double KM_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_KM;
+
+    private GeoMath() {
+    }
+
+    // Equirectangular approximation: well under 0.1% error at city distances, and no trig beyond one cosine
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double x = Math.toRadians(longitude2 - longitude1) * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+        double y = Math.toRadians(latitude2 - latitude1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_KM;
+    }
+
+    // Identifies the cellDegrees x cellDegrees lat/lon grid cell a point falls in
+    public static long cellKey(double latitude, double longitude, double cellDegrees) {
+        return cellKey(cellIndex(latitude, cellDegrees), cellIndex(longitude, cellDegrees));
+    }
+
+    // Row (for a latitude) or column (for a longitude) of the grid cell a coordinate falls in
+    public static int cellIndex(double degrees, double cellDegrees) {
+        return (int) Math.floor(degrees / cellDegrees);
+    }
+
+    public static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
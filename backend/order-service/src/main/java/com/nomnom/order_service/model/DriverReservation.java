@@ -0,0 +1,29 @@
+package com.nomnom.order_service.model;
+
+import com.nomnom.order_service.shared.enums.DriverReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Which order, if any, a driver is committed to. This is the single source of truth for "a driver never gets two
+ * orders": every transition is a conditional update on the driver's document.
+ */
+@Document(collection = "driver_reservations")
+@CompoundIndex(name = "status_leaseExpiresAt", def = "{'status': 1, 'leaseExpiresAt': 1}")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DriverReservation {
+    @Id
+    private String driverId;
+    private DriverReservationStatus status;
+    private String orderId;
+    private Date leaseExpiresAt; // RESERVED only: released automatically if the order isn't picked up by then
+    private Date updatedAt;
+}
@@ -4,15 +4,27 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.util.Date;
 import java.util.List;
 
 @Document(collection = "orders")
+@CompoundIndexes({
+        @CompoundIndex(name = "createdAt_orderId", def = "{'createdAt': -1, '_id': -1}"), // keyset pagination
+        @CompoundIndex(name = "customer_createdAt_orderId", def = "{'customerId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "restaurant_createdAt", def = "{'restaurantId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "restaurant_status_createdAt", def = "{'restaurantId': 1, 'orderStatus': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "status_createdAt", def = "{'orderStatus': 1, 'createdAt': -1, '_id': -1}")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class Order {
+    public static final String ARCHIVE_COLLECTION = "orders_archive"; // terminal orders moved out by OrderArchiver
+
     @Id
     private String orderId;
     private String customerId;
@@ -27,6 +39,18 @@ public class Order {
     private DriverDetails driverDetails; // Ensure this field exists
     private Date createdAt = new Date();
     private Date updatedAt = new Date();
+    @Indexed(unique = true, sparse = true)
+    private String idempotencyKey; // "<customerId>:<Idempotency-Key header>", only set when the client sent one
+    private long revision; // bumped by every write, carried on the order's outbox events
+    private String lastOperationId; // tags the write of a bulk operation so its outcome can be read back
+    private Date estimatedDeliveryAt; // quoted at checkout: rolling prep time plus travel time
+    private Location restaurantLocation; // pickup point at checkout; null if the restaurant had none on record
+    @Indexed(sparse = true)
+    private String batchId; // set when the order is delivered as part of a multi-drop batch
+    private Integer deliverySequence; // 1-based position of this drop-off in its batch's route
+    private Date scheduledFor; // customer's requested delivery time for orders placed ahead
+    @Indexed(sparse = true)
+    private Date releaseAt; // when a scheduled order goes to the kitchen (Scheduled -> Pending)
 
     @Data
     @AllArgsConstructor
@@ -61,6 +85,14 @@ public class Order {
         }
     }
 
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Location {
+        private double longitude;
+        private double latitude;
+    }
+
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
@@ -0,0 +1,29 @@
+package com.nomnom.order_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.util.Date;
+
+// Last order revision folded into the rollups, so replayed or stale events are not counted twice
+@Document(collection = "order_rollup_state")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderRollupState {
+    // Must match the TTL below. updatedAt is never earlier than the order's creation, so the state of any order
+    // younger than this is still present, and the analytics service ignores events for older orders.
+    public static final Duration RETENTION = Duration.ofDays(90);
+
+    @Id
+    private String orderId;
+    private long revision;
+    private boolean cancelled;
+    @Indexed(name = "updatedAt_ttl", expireAfter = "90d")
+    private Date updatedAt;
+}
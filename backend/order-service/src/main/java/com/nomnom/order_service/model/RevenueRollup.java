@@ -0,0 +1,36 @@
+package com.nomnom.order_service.model;
+
+import com.nomnom.order_service.shared.enums.RollupGranularity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Pre-aggregated order figures for one restaurant and one hour or day, keyed by when the orders were placed.
+ * Maintained incrementally from order events; dashboards read these instead of scanning {@code orders}.
+ */
+@Document(collection = "order_revenue_rollups")
+@CompoundIndexes({
+        @CompoundIndex(name = "restaurant_bucket", def = "{'restaurantId': 1, 'granularity': 1, 'bucketStart': 1}", unique = true),
+        @CompoundIndex(name = "granularity_bucket", def = "{'granularity': 1, 'bucketStart': 1}")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevenueRollup {
+    @Id
+    private String id;
+    private String restaurantId;
+    private RollupGranularity granularity;
+    private Date bucketStart;
+    private long orderCount;
+    private double orderTotal;
+    private double deliveryFee;
+    private long cancelledCount;
+}
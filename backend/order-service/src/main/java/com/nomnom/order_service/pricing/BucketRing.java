@@ -0,0 +1,91 @@
+package com.nomnom.order_service.pricing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed ring of time buckets covering a sliding window. Each slot packs the bucket's epoch (high bits) and its value
+ * (low bits) into one long, so a write that lands in a slot still holding an older bucket resets it in the same
+ * compare-and-set as the write itself: no locks, and no counts lost to a reset racing an increment.
+ */
+final class BucketRing {
+
+    private static final int VALUE_BITS = 24;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    private final AtomicLongArray slots;
+
+    BucketRing(int buckets) {
+        this.slots = new AtomicLongArray(buckets);
+    }
+
+    void increment(long epoch) {
+        int slot = slot(epoch);
+        long current;
+        long next;
+        do {
+            current = slots.get(slot);
+            long value = epochOf(current) == epoch ? valueOf(current) : 0;
+            next = pack(epoch, Math.min(value + 1, VALUE_MASK));
+        } while (!slots.compareAndSet(slot, current, next));
+    }
+
+    void set(long epoch, long value) {
+        slots.set(slot(epoch), pack(epoch, Math.min(value, VALUE_MASK)));
+    }
+
+    // Sum over the buckets still inside the window ending at epoch
+    long sum(long epoch) {
+        long sum = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            long packed = slots.get(i);
+            if (inWindow(epochOf(packed), epoch)) {
+                sum += valueOf(packed);
+            }
+        }
+        return sum;
+    }
+
+    // Mean over the buckets written inside the window, or 0 if none were
+    double mean(long epoch) {
+        long sum = 0;
+        int written = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            long packed = slots.get(i);
+            if (packed != 0 && inWindow(epochOf(packed), epoch)) {
+                sum += valueOf(packed);
+                written++;
+            }
+        }
+        return written == 0 ? 0 : (double) sum / written;
+    }
+
+    boolean isIdle(long epoch) {
+        for (int i = 0; i < slots.length(); i++) {
+            long packed = slots.get(i);
+            if (packed != 0 && inWindow(epochOf(packed), epoch)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean inWindow(long bucketEpoch, long epoch) {
+        return bucketEpoch <= epoch && bucketEpoch > epoch - slots.length();
+    }
+
+    private int slot(long epoch) {
+        return (int) Math.floorMod(epoch, slots.length());
+    }
+
+    private static long pack(long epoch, long value) {
+        return (epoch << VALUE_BITS) | value;
+    }
+
+    private static long epochOf(long packed) {
+        return packed >>> VALUE_BITS;
+    }
+
+    private static long valueOf(long packed) {
+        return packed & VALUE_MASK;
+    }
+}
@@ -0,0 +1,93 @@
+package com.nomnom.order_service.pricing;
+
+import com.nomnom.order_service.dto.DeliveryQuoteDTO;
+import com.nomnom.order_service.dto.GeoPointDTO;
+import com.nomnom.order_service.geo.GeoMath;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delivery fee and ETA for a restaurant and a drop-off point. Pure arithmetic over configuration and the rolling
+ * prep-time averages and surge multipliers: no I/O and nothing allocated but the result, so it is cheap enough for
+ * cart-page quotes.
+ *
+ * <p>Fees come from distance tiers ({@code order.pricing.fee-tiers}, "upToKm:fee" pairs in ascending order), with
+ * a per-km charge beyond the last tier. Straight-line distance is stretched by a road factor before it is priced,
+ * and the fee is then scaled by the surge multiplier of the restaurant's cell.
+ */
+@Component
+public class DeliveryQuoter {
+
+    private final double[] tierUpToKm;
+    private final double[] tierFee;
+    private final double perKmBeyondTiers;
+    private final double defaultFee;
+    private final double maxDistanceKm;
+    private final double roadFactor;
+    private final double averageSpeedKmh;
+    private final int defaultTravelMinutes;
+    private final PrepTimeTracker prepTimes;
+    private final SurgePricing surgePricing;
+
+    public DeliveryQuoter(PrepTimeTracker prepTimes,
+                          SurgePricing surgePricing,
+                          @Value("${order.pricing.fee-tiers:2:2.5,5:4.0,8:5.5}") String feeTiers,
+                          @Value("${order.pricing.per-km-beyond-tiers:0.8}") double perKmBeyondTiers,
+                          @Value("${order.pricing.default-fee:5.0}") double defaultFee,
+                          @Value("${order.pricing.max-distance-km:30}") double maxDistanceKm,
+                          @Value("${order.pricing.road-factor:1.3}") double roadFactor,
+                          @Value("${order.pricing.average-speed-kmh:25}") double averageSpeedKmh,
+                          @Value("${order.pricing.default-travel-minutes:20}") int defaultTravelMinutes) {
+        String[] tiers = feeTiers.split(",");
+        this.tierUpToKm = new double[tiers.length];
+        this.tierFee = new double[tiers.length];
+        for (int i = 0; i < tiers.length; i++) {
+            String[] tier = tiers[i].trim().split(":");
+            tierUpToKm[i] = Double.parseDouble(tier[0]);
+            tierFee[i] = Double.parseDouble(tier[1]);
+            if (i > 0 && tierUpToKm[i] <= tierUpToKm[i - 1]) {
+                throw new IllegalArgumentException("order.pricing.fee-tiers must be in ascending order of distance");
+            }
+        }
+        this.perKmBeyondTiers = perKmBeyondTiers;
+        this.defaultFee = defaultFee;
+        this.maxDistanceKm = maxDistanceKm;
+        this.roadFactor = roadFactor;
+        this.averageSpeedKmh = averageSpeedKmh;
+        this.defaultTravelMinutes = defaultTravelMinutes;
+        this.prepTimes = prepTimes;
+        this.surgePricing = surgePricing;
+    }
+
+    /**
+     * @param restaurantLocation may be null for restaurants without a location; they get the flat default fee
+     */
+    public DeliveryQuoteDTO quote(String restaurantId, GeoPointDTO restaurantLocation,
+                                  double customerLatitude, double customerLongitude) {
+        int prepMinutes = (int) Math.ceil(prepTimes.averageMinutes(restaurantId));
+        if (restaurantLocation == null) {
+            return new DeliveryQuoteDTO(null, defaultFee, 1.0, prepMinutes, defaultTravelMinutes,
+                    prepMinutes + defaultTravelMinutes);
+        }
+        double distanceKm = roadFactor * GeoMath.distanceKm(
+                restaurantLocation.getY(), restaurantLocation.getX(), customerLatitude, customerLongitude);
+        if (distanceKm > maxDistanceKm) {
+            throw new RuntimeException("Delivery address is too far from the restaurant");
+        }
+        int travelMinutes = (int) Math.ceil(distanceKm / averageSpeedKmh * 60);
+        double surge = surgePricing.multiplier(restaurantLocation.getY(), restaurantLocation.getX());
+        return new DeliveryQuoteDTO(Math.round(distanceKm * 100) / 100.0, Math.round(fee(distanceKm) * surge * 100) / 100.0,
+                surge, prepMinutes, travelMinutes, prepMinutes + travelMinutes);
+    }
+
+    double fee(double distanceKm) {
+        for (int i = 0; i < tierUpToKm.length; i++) {
+            if (distanceKm <= tierUpToKm[i]) {
+                return tierFee[i];
+            }
+        }
+        int last = tierUpToKm.length - 1;
+        double fee = tierFee[last] + (distanceKm - tierUpToKm[last]) * perKmBeyondTiers;
+        return Math.round(fee * 100) / 100.0;
+    }
+}
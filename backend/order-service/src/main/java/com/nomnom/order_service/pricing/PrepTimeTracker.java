@@ -0,0 +1,68 @@
+package com.nomnom.order_service.pricing;
+
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.event.OrderEventFeed;
+import com.nomnom.order_service.event.OrderEventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rolling (exponentially weighted) average of each restaurant's prep time, from order creation (or, for scheduled
+ * orders, release to the kitchen) to "Ready". Fed by
+ * the order event feed on every instance; the average is stored as the bits of a double so readers never lock.
+ */
+@Component
+public class PrepTimeTracker {
+
+    private static final long MAX_PLAUSIBLE_PREP_MILLIS = 3 * 60 * 60 * 1000L; // orders left open for hours are noise
+
+    private final double weight;
+    private final double defaultMinutes;
+    private final Map<String, AtomicLong> averageMinutes = new ConcurrentHashMap<>();
+
+    public PrepTimeTracker(OrderEventFeed orderEventFeed,
+                           @Value("${order.pricing.prep-average-weight:0.2}") double weight,
+                           @Value("${order.pricing.default-prep-minutes:15}") double defaultMinutes) {
+        this.weight = weight;
+        this.defaultMinutes = defaultMinutes;
+        orderEventFeed.subscribe(this::onOrderEvent);
+    }
+
+    void onOrderEvent(OrderEvent event) {
+        if (event.getType() != OrderEventType.STATUS_CHANGED || !"Ready".equals(event.getOrderStatus())
+                || event.getOrderCreatedAt() == null || event.getOccurredAt() == null) {
+            return;
+        }
+        Date startedAt = event.getReleaseAt() != null ? event.getReleaseAt() : event.getOrderCreatedAt();
+        long prepMillis = event.getOccurredAt().getTime() - startedAt.getTime();
+        if (prepMillis > 0 && prepMillis <= MAX_PLAUSIBLE_PREP_MILLIS) {
+            record(event.getRestaurantId(), prepMillis / 60_000.0);
+        }
+    }
+
+    void record(String restaurantId, double minutes) {
+        AtomicLong average = averageMinutes.computeIfAbsent(restaurantId,
+                id -> new AtomicLong(Double.doubleToRawLongBits(Double.NaN)));
+        long current;
+        long next;
+        do {
+            current = average.get();
+            double previous = Double.longBitsToDouble(current);
+            next = Double.doubleToRawLongBits(Double.isNaN(previous) ? minutes : previous + weight * (minutes - previous));
+        } while (!average.compareAndSet(current, next));
+    }
+
+    public double averageMinutes(String restaurantId) {
+        AtomicLong average = averageMinutes.get(restaurantId);
+        if (average == null) {
+            return defaultMinutes;
+        }
+        double minutes = Double.longBitsToDouble(average.get());
+        return Double.isNaN(minutes) ? defaultMinutes : minutes;
+    }
+}
@@ -0,0 +1,86 @@
+package com.nomnom.order_service.pricing;
+
+import com.nomnom.order_service.client.IRestaurantClient;
+import com.nomnom.order_service.dto.GeoPointDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process copy of restaurant locations for delivery quotes, so a cart-page quote never waits on user-service.
+ * Only the first quote for a restaurant loads its location synchronously. After that a background pass reloads
+ * entries older than the TTL and drops restaurants nobody has asked about for a while. A failed reload keeps
+ * serving the old location, since restaurants almost never move.
+ */
+@Component
+public class RestaurantLocations {
+
+    private static final long READ_STAMP_GRANULARITY_MILLIS = 1000; // hot restaurants don't rewrite their stamp per quote
+
+    private final IRestaurantClient restaurantClient;
+    private final long ttlMillis;
+    private final long maxIdleMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public RestaurantLocations(IRestaurantClient restaurantClient,
+                               @Value("${order.pricing.location-cache.ttl-ms:300000}") long ttlMillis,
+                               @Value("${order.pricing.location-cache.max-idle-ms:3600000}") long maxIdleMillis) {
+        this.restaurantClient = restaurantClient;
+        this.ttlMillis = ttlMillis;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    /**
+     * @return the restaurant's location, or null if it has none on record
+     */
+    public GeoPointDTO location(String restaurantId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(restaurantId);
+        if (entry == null) {
+            // Not found propagates and is not cached
+            entry = new Entry(restaurantClient.getRestaurant(restaurantId).getLocation(), now);
+            entries.put(restaurantId, entry);
+        } else if (now - entry.lastReadAt > READ_STAMP_GRANULARITY_MILLIS) {
+            entry.lastReadAt = now;
+        }
+        return entry.location;
+    }
+
+    @Scheduled(fixedDelayString = "${order.pricing.location-cache.refresh-ms:60000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+            Entry entry = cached.getValue();
+            if (now - entry.lastReadAt > maxIdleMillis) {
+                entries.remove(cached.getKey(), entry);
+            } else if (now - entry.loadedAt >= ttlMillis) {
+                try {
+                    Entry reloaded = new Entry(restaurantClient.getRestaurant(cached.getKey()).getLocation(), now);
+                    reloaded.lastReadAt = entry.lastReadAt;
+                    entries.replace(cached.getKey(), entry, reloaded);
+                } catch (RuntimeException e) {
+                    // Keep serving the old location; the next pass tries again
+                }
+            }
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final GeoPointDTO location;
+        private final long loadedAt;
+        private volatile long lastReadAt;
+
+        private Entry(GeoPointDTO location, long loadedAt) {
+            this.location = location;
+            this.loadedAt = loadedAt;
+            this.lastReadAt = loadedAt;
+        }
+    }
+}
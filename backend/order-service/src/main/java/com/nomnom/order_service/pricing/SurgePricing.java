@@ -0,0 +1,140 @@
+package com.nomnom.order_service.pricing;
+
+import com.nomnom.order_service.dispatch.DriverLocationIndex;
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.event.OrderEventFeed;
+import com.nomnom.order_service.event.OrderEventType;
+import com.nomnom.order_service.geo.GeoMath;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per geo cell surge multiplier from recent demand and supply. Demand is orders placed at restaurants in the cell
+ * (from the order event feed, so every instance counts every order); supply is available drivers in the cell,
+ * sampled from the dispatch index once per bucket. Both are kept in sliding windows of time buckets.
+ *
+ * <p>Each tick the multiplier moves a fraction of the way toward its target and the whole set is published as one
+ * immutable map, so {@link #multiplier} is a single hash lookup with no locking or I/O.
+ */
+@Component
+public class SurgePricing {
+
+    private final DriverLocationIndex driverIndex;
+    private final boolean enabled;
+    private final double cellDegrees;
+    private final long bucketMillis;
+    private final int windowBuckets;
+    private final double pressureThreshold;
+    private final double sensitivity;
+    private final double maxMultiplier;
+    private final double smoothing;
+    private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+    private volatile Map<Long, Double> published = Map.of();
+
+    public SurgePricing(OrderEventFeed orderEventFeed,
+                        DriverLocationIndex driverIndex,
+                        @Value("${order.surge.enabled:false}") boolean enabled,
+                        @Value("${order.surge.cell-degrees:0.05}") double cellDegrees,
+                        @Value("${order.surge.bucket-ms:30000}") long bucketMillis,
+                        @Value("${order.surge.window-buckets:10}") int windowBuckets,
+                        @Value("${order.surge.pressure-threshold:1.0}") double pressureThreshold,
+                        @Value("${order.surge.sensitivity:0.5}") double sensitivity,
+                        @Value("${order.surge.max-multiplier:2.5}") double maxMultiplier,
+                        @Value("${order.surge.smoothing:0.3}") double smoothing) {
+        this.driverIndex = driverIndex;
+        this.enabled = enabled;
+        this.cellDegrees = cellDegrees;
+        this.bucketMillis = bucketMillis;
+        this.windowBuckets = windowBuckets;
+        this.pressureThreshold = pressureThreshold;
+        this.sensitivity = sensitivity;
+        this.maxMultiplier = maxMultiplier;
+        this.smoothing = smoothing;
+        if (enabled) {
+            orderEventFeed.subscribe(this::onOrderEvent);
+        }
+    }
+
+    public double multiplier(double latitude, double longitude) {
+        return published.getOrDefault(GeoMath.cellKey(latitude, longitude, cellDegrees), 1.0);
+    }
+
+    void onOrderEvent(OrderEvent event) {
+        if (event.getType() == OrderEventType.CREATED && event.getRestaurantLatitude() != null
+                && event.getRestaurantLongitude() != null) {
+            recordDemand(event.getRestaurantLatitude(), event.getRestaurantLongitude(), System.currentTimeMillis());
+        }
+    }
+
+    void recordDemand(double latitude, double longitude, long now) {
+        long cellKey = GeoMath.cellKey(latitude, longitude, cellDegrees);
+        Cell cell;
+        do {
+            cell = cell(cellKey);
+            cell.demand.increment(now / bucketMillis);
+            // A prune between the lookup and the increment dropped the cell it went to; count it in the new one
+        } while (cells.get(cellKey) != cell);
+    }
+
+    @Scheduled(fixedDelayString = "${order.surge.bucket-ms:30000}")
+    public void tick() {
+        if (enabled) {
+            tick(System.currentTimeMillis());
+        }
+    }
+
+    void tick(long now) {
+        long epoch = now / bucketMillis;
+        Map<Long, Integer> availableByCell = new HashMap<>();
+        driverIndex.forEachAvailable((latitude, longitude) ->
+                availableByCell.merge(GeoMath.cellKey(latitude, longitude, cellDegrees), 1, Integer::sum));
+        availableByCell.forEach((cellKey, available) -> cell(cellKey).supply.set(epoch, available));
+
+        Map<Long, Double> next = new HashMap<>();
+        List<Map.Entry<Long, Cell>> idle = new ArrayList<>();
+        for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+            Cell cell = entry.getValue();
+            if (!availableByCell.containsKey(entry.getKey())) {
+                cell.supply.set(epoch, 0);
+            }
+            double pressure = cell.demand.sum(epoch) / Math.max(cell.supply.mean(epoch), 1.0);
+            double target = Math.min(maxMultiplier, 1 + sensitivity * Math.max(0, pressure - pressureThreshold));
+            cell.multiplier += smoothing * (target - cell.multiplier);
+            if (cell.multiplier >= 1.005) {
+                next.put(entry.getKey(), Math.round(cell.multiplier * 100) / 100.0);
+            }
+            if (cell.demand.isIdle(epoch) && cell.multiplier < 1.005) {
+                idle.add(entry);
+            }
+        }
+        // Cells with no orders in the window and no surge left to decay are dropped, unless demand arrived since
+        for (Map.Entry<Long, Cell> entry : idle) {
+            if (entry.getValue().demand.isIdle(epoch)) {
+                cells.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        published = Map.copyOf(next);
+    }
+
+    private Cell cell(long cellKey) {
+        return cells.computeIfAbsent(cellKey, key -> new Cell(windowBuckets));
+    }
+
+    private static final class Cell {
+        private final BucketRing demand;
+        private final BucketRing supply;
+        private double multiplier = 1.0; // only touched by tick
+
+        private Cell(int windowBuckets) {
+            this.demand = new BucketRing(windowBuckets);
+            this.supply = new BucketRing(windowBuckets);
+        }
+    }
+}
@@ -6,8 +6,10 @@ import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends MongoRepository<Order, String> {
     List<Order> findByCustomerId(String customerId);
+    Optional<Order> findByIdempotencyKey(String idempotencyKey);
 }
\ No newline at end of file
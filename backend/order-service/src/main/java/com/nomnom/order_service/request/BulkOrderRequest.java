@@ -0,0 +1,29 @@
+package com.nomnom.order_service.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkOrderRequest {
+    private List<Operation> operations;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Operation {
+        private String orderId;
+        private OperationType type;
+        private String status;              // UPDATE_STATUS only
+        private AssignDriverRequest driver; // ASSIGN_DRIVER only
+        private String expectedStatus;      // optional: only apply if the order is currently in this status
+
+        public enum OperationType {
+            UPDATE_STATUS, ASSIGN_DRIVER, CANCEL
+        }
+    }
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Date;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -16,6 +18,8 @@ public class CreateOrderRequest {
     private double latitude;  // Updated field
     private String paymentType;
     private DriverDetails driverDetails;
+    private String cartSnapshot; // signed token from cart-service's X-Cart-Snapshot header, optional
+    private Date scheduledFor; // deliver at this time rather than as soon as possible, optional
 
     @Data
     @AllArgsConstructor
@@ -0,0 +1,13 @@
+package com.nomnom.order_service.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DriverLocationRequest {
+    private double latitude;
+    private double longitude;
+}
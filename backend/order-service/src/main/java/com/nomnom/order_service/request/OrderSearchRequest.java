@@ -0,0 +1,24 @@
+package com.nomnom.order_service.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSearchRequest {
+    private String restaurantId;
+    private List<String> status; // any of these statuses
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Date from; // inclusive
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Date to;   // exclusive
+    private String sort = "desc"; // by createdAt: "asc" or "desc"
+    private int page = 0;
+    private int size = 50;
+}
@@ -0,0 +1,30 @@
+package com.nomnom.order_service.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkOrderResponse {
+    private int applied;
+    private int failed;
+    private List<ItemResult> results; // same order as the request's operations
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ItemResult {
+        private String orderId;
+        private Outcome outcome;
+        private String orderStatus; // after the operation, or the current status when it was not applied
+        private String message;
+
+        public enum Outcome {
+            APPLIED, NOT_FOUND, PRECONDITION_FAILED, INVALID
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.nomnom.order_service.schedule;
+
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.event.OrderEventFeed;
+import com.nomnom.order_service.event.OrderEventType;
+import com.nomnom.order_service.model.Order;
+import com.nomnom.order_service.service.IOrderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Releases scheduled orders to the kitchen (Scheduled -> Pending) at their release time. Every instance holds every
+ * pending release in an in-memory timing wheel: loaded from Mongo once at startup, then kept current from the order
+ * event feed, so the database is never polled for what is due. Releasing is a conditional update, so when all
+ * instances fire for the same order only one of them changes it.
+ *
+ * <p>A slow catch-up pass picks up anything whose release was missed, e.g. while the event feed was reconnecting;
+ * it only ever reads orders that are already overdue, so it normally finds nothing.
+ */
+@Component
+public class ScheduledOrderReleaser {
+
+    private static final int[] WHEEL_SLOTS = {60, 60, 24, 64}; // seconds, minutes, hours, days: a 64-day horizon
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final IOrderService orderService;
+    private final long catchUpGraceMillis;
+    private final TimingWheel<String> wheel = new TimingWheel<>(1000, WHEEL_SLOTS, System.currentTimeMillis());
+
+    public ScheduledOrderReleaser(MongoTemplate mongoTemplate,
+                                  IOrderService orderService,
+                                  OrderEventFeed orderEventFeed,
+                                  @Value("${order.scheduling.catch-up-grace-ms:60000}") long catchUpGraceMillis,
+                                  @Value("${order.scheduling.max-days-ahead:30}") long maxDaysAhead) {
+        // Release times come before the scheduled time, so orders accepted up to this far ahead always fit the wheel
+        if (Duration.ofDays(maxDaysAhead).toMillis() >= wheel.horizonMillis()) {
+            throw new IllegalStateException("order.scheduling.max-days-ahead must be less than the release wheel's horizon of "
+                    + Duration.ofMillis(wheel.horizonMillis()).toDays() + " days");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.orderService = orderService;
+        this.catchUpGraceMillis = catchUpGraceMillis;
+        // Subscribed before the load, so nothing scheduled in between is missed; adding a key twice is harmless
+        orderEventFeed.subscribe(this::onOrderEvent);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadScheduledOrders() {
+        Query scheduled = new Query(Criteria.where("releaseAt").gte(new Date(0)).and("orderStatus").is("Scheduled"))
+                .cursorBatchSize(LOAD_BATCH_SIZE);
+        scheduled.fields().include("orderId", "releaseAt");
+        try (Stream<Order> orders = mongoTemplate.stream(scheduled, Order.class)) {
+            orders.forEach(order -> schedule(order.getOrderId(), order.getReleaseAt()));
+        }
+    }
+
+    void onOrderEvent(OrderEvent event) {
+        if (event.getType() == OrderEventType.CREATED && event.getReleaseAt() != null) {
+            schedule(event.getOrderId(), event.getReleaseAt());
+        } else if (event.getType() == OrderEventType.CANCELLED) {
+            synchronized (wheel) {
+                wheel.cancel(event.getOrderId());
+            }
+        }
+    }
+
+    private void schedule(String orderId, Date releaseAt) {
+        boolean scheduled;
+        synchronized (wheel) {
+            scheduled = wheel.add(orderId, releaseAt.getTime());
+        }
+        if (!scheduled) {
+            release(List.of(orderId));
+        }
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void tick() {
+        List<String> due;
+        synchronized (wheel) {
+            due = wheel.advance(System.currentTimeMillis());
+        }
+        release(due);
+    }
+
+    @Scheduled(fixedDelayString = "${order.scheduling.catch-up-ms:300000}")
+    public void catchUp() {
+        Query overdue = new Query(Criteria.where("releaseAt").lt(new Date(System.currentTimeMillis() - catchUpGraceMillis))
+                .and("orderStatus").is("Scheduled"));
+        overdue.fields().include("orderId");
+        release(mongoTemplate.find(overdue, Order.class).stream().map(Order::getOrderId).toList());
+    }
+
+    private void release(List<String> orderIds) {
+        for (String orderId : orderIds) {
+            try {
+                orderService.releaseScheduledOrder(orderId);
+            } catch (RuntimeException e) {
+                // Left Scheduled; the catch-up pass retries it
+            }
+        }
+    }
+}
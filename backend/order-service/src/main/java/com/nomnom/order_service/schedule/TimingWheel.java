@@ -0,0 +1,144 @@
+package com.nomnom.order_service.schedule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel (Varghese and Lauck). Level 0 has one slot per tick; each higher level has one slot per
+ * full rotation of the level below. A timer sits in the coarsest level that can still tell its slot apart and is
+ * cascaded down a level each time the clock reaches that slot, so adding, cancelling and expiring are all O(1) and
+ * advancing the clock only ever touches the slots that are due, however many timers are waiting further out.
+ *
+ * <p>Keys are unique: adding a key again replaces its timer. Not thread-safe on its own; callers synchronize.
+ */
+final class TimingWheel<K> {
+
+    private final long tickMillis;
+    private final int[] slotsPerLevel;
+    private final long[] ticksPerSlot;
+    private final long horizonTicks;
+    private final List<Deque<Timer<K>>[]> levels = new ArrayList<>();
+    private final Map<K, Timer<K>> timers = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, int[] slotsPerLevel, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.slotsPerLevel = slotsPerLevel.clone();
+        this.ticksPerSlot = new long[slotsPerLevel.length];
+        long span = 1;
+        for (int level = 0; level < slotsPerLevel.length; level++) {
+            ticksPerSlot[level] = span;
+            span = Math.multiplyExact(span, slotsPerLevel[level]);
+            Deque<Timer<K>>[] slots = new Deque[slotsPerLevel[level]];
+            for (int slot = 0; slot < slots.length; slot++) {
+                slots[slot] = new ArrayDeque<>();
+            }
+            levels.add(slots);
+        }
+        this.horizonTicks = span;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    long horizonMillis() {
+        return horizonTicks * tickMillis;
+    }
+
+    /**
+     * @return false if the timer is already due; it is then not scheduled and the caller should act on it now
+     */
+    boolean add(K key, long expiryMillis) {
+        cancel(key);
+        Timer<K> timer = new Timer<>(key, expiryMillis / tickMillis);
+        if (!place(timer)) {
+            return false;
+        }
+        timers.put(key, timer);
+        return true;
+    }
+
+    // Cancelled timers stay in their slot until it is reached and are skipped then
+    void cancel(K key) {
+        Timer<K> timer = timers.remove(key);
+        if (timer != null) {
+            timer.cancelled = true;
+        }
+    }
+
+    int size() {
+        return timers.size();
+    }
+
+    /**
+     * Moves the clock forward to {@code nowMillis} and returns the keys whose timers expired on the way, earliest
+     * first. Ticks with nothing due cost one empty slot check each.
+     */
+    List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Coarsest first, so a timer cascading through several levels at once lands in the right slot
+            for (int level = levels.size() - 1; level > 0; level--) {
+                if (currentTick % ticksPerSlot[level] == 0) {
+                    Deque<Timer<K>> slot = slot(level, currentTick);
+                    List<Timer<K>> cascading = new ArrayList<>(slot);
+                    slot.clear();
+                    for (Timer<K> timer : cascading) {
+                        if (!timer.cancelled && !place(timer)) {
+                            expire(timer, expired);
+                        }
+                    }
+                }
+            }
+            Deque<Timer<K>> due = slot(0, currentTick);
+            Timer<K> timer;
+            while ((timer = due.poll()) != null) {
+                if (!timer.cancelled) {
+                    expire(timer, expired);
+                }
+            }
+        }
+        return expired;
+    }
+
+    private boolean place(Timer<K> timer) {
+        long delta = timer.expiryTick - currentTick;
+        if (delta <= 0) {
+            return false;
+        }
+        if (delta >= horizonTicks) {
+            throw new IllegalArgumentException("Timer is beyond the wheel's horizon of " + horizonMillis() + " ms");
+        }
+        int level = 0;
+        while (level + 1 < levels.size() && delta >= ticksPerSlot[level + 1]) {
+            level++;
+        }
+        slot(level, timer.expiryTick).add(timer);
+        return true;
+    }
+
+    private void expire(Timer<K> timer, List<K> expired) {
+        timers.remove(timer.key, timer);
+        expired.add(timer.key);
+    }
+
+    private Deque<Timer<K>> slot(int level, long tick) {
+        return levels.get(level)[(int) ((tick / ticksPerSlot[level]) % slotsPerLevel[level])];
+    }
+
+    private static final class Timer<K> {
+        private final K key;
+        private final long expiryTick;
+        private boolean cancelled;
+
+        private Timer(K key, long expiryTick) {
+            this.key = key;
+            this.expiryTick = expiryTick;
+        }
+    }
+}
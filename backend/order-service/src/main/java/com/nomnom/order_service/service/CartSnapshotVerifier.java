@@ -0,0 +1,83 @@
+package com.nomnom.order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.order_service.dto.CartDTO;
+import com.nomnom.order_service.dto.CartSnapshotDTO;
+import com.nomnom.order_service.shared.enums.PotionSize;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Verifies cart snapshot tokens signed by cart-service so createOrder can skip the cart fetch. Any problem with
+ * the token (missing, malformed, bad signature, expired, wrong cart) yields an empty result and the caller falls
+ * back to fetching the cart from cart-service.
+ */
+@Component
+public class CartSnapshotVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final byte[] secret;
+    private final ObjectMapper objectMapper;
+
+    public CartSnapshotVerifier(@Value("${cart.snapshot.secret:}") String secret, ObjectMapper objectMapper) {
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.objectMapper = objectMapper;
+    }
+
+    public Optional<CartDTO> verify(String token, String customerId, String restaurantId) {
+        if (secret.length == 0 || token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            int separator = token.lastIndexOf('.');
+            if (separator <= 0) {
+                return Optional.empty();
+            }
+            String payload = token.substring(0, separator);
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            byte[] expected = mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+            if (!MessageDigest.isEqual(expected, signature)) {
+                return Optional.empty();
+            }
+
+            CartSnapshotDTO snapshot = objectMapper.readValue(Base64.getUrlDecoder().decode(payload), CartSnapshotDTO.class);
+            if (snapshot.getExpiresAt() <= System.currentTimeMillis() / 1000
+                    || !Objects.equals(snapshot.getCustomerId(), customerId)
+                    || !Objects.equals(snapshot.getRestaurantId(), restaurantId)
+                    || snapshot.getItems() == null || snapshot.getItems().isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(toCartDTO(snapshot));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    private CartDTO toCartDTO(CartSnapshotDTO snapshot) {
+        List<CartDTO.CartItemDTO> items = snapshot.getItems().stream()
+                .map(item -> new CartDTO.CartItemDTO(
+                        item.getItemId(),
+                        item.getItemName(),
+                        item.getQuantity(),
+                        item.getPotionSize() != null ? PotionSize.valueOf(item.getPotionSize()) : null,
+                        item.getPrice(),
+                        item.getPrice() * item.getQuantity(),
+                        item.getImage()
+                )).toList();
+        double totalPrice = items.stream().mapToDouble(CartDTO.CartItemDTO::getTotalPrice).sum();
+        return new CartDTO(null, snapshot.getCustomerId(), snapshot.getRestaurantId(), items, totalPrice, null, null);
+    }
+}
@@ -0,0 +1,90 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.dto.OrderDTO;
+import com.nomnom.order_service.event.OrderEventFeed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, time-expiring cache of each customer's order history. Only histories of up to a page are kept, and the
+ * cache as a whole holds at most a fixed number of orders, so a handful of long histories can't crowd out everyone
+ * else. A longer history is only remembered as too long: later reads go straight to the loader, so every read of it
+ * costs one load rather than a cache load followed by a full one. Concurrent misses for the same customer share one load, so a reconnect storm costs one query per
+ * customer. Writes invalidate the customer's entry directly on the instance that made them, and through the order
+ * event feed on every other instance; an entry invalidated while its load is still running is dropped, so a load
+ * that raced a write is never served to later readers.
+ */
+@Component
+public class CustomerOrderHistoryCache {
+
+    private static final History TOO_LONG = new History(null);
+
+    private final int pageSize;
+    private final SingleFlightCache<String, History> histories;
+
+    public CustomerOrderHistoryCache(OrderEventFeed orderEventFeed,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${order.history-cache.ttl-ms:60000}") long ttlMillis,
+                                     @Value("${order.history-cache.max-entries:50000}") int maxEntries,
+                                     @Value("${order.history-cache.page-size:50}") int pageSize,
+                                     @Value("${order.history-cache.max-orders:500000}") long maxOrders) {
+        this.pageSize = pageSize;
+        Counter hits = meterRegistry.counter("order.history.cache", "result", "hit");
+        Counter misses = meterRegistry.counter("order.history.cache", "result", "miss");
+        Counter evictions = meterRegistry.counter("order.history.cache.evictions");
+        this.histories = new SingleFlightCache<>(ttlMillis, maxEntries, maxOrders,
+                history -> history.orders() != null ? history.orders().size() : 0,
+                new SingleFlightCache.Listener() {
+                    @Override
+                    public void onHit() {
+                        hits.increment();
+                    }
+
+                    @Override
+                    public void onMiss() {
+                        misses.increment();
+                    }
+
+                    @Override
+                    public void onEviction() {
+                        evictions.increment();
+                    }
+                });
+        meterRegistry.gauge("order.history.cache.size", List.of(), histories, SingleFlightCache::size);
+        meterRegistry.gauge("order.history.cache.orders", List.of(), histories, SingleFlightCache::weight);
+        orderEventFeed.subscribe(event -> invalidate(event.getCustomerId()));
+    }
+
+    /**
+     * Returns the customer's whole history, newest first, as {@code loader} reads it. The caller whose load found
+     * the history too long to cache gets that load's result directly.
+     */
+    public List<OrderDTO> get(String customerId, Supplier<List<OrderDTO>> loader) {
+        AtomicReference<List<OrderDTO>> loadedHere = new AtomicReference<>();
+        History history = histories.get(customerId, () -> {
+            List<OrderDTO> orders = loader.get();
+            loadedHere.set(orders);
+            return orders.size() > pageSize ? TOO_LONG : new History(List.copyOf(orders));
+        });
+        if (loadedHere.get() != null) {
+            return loadedHere.get();
+        }
+        return history.orders() != null ? history.orders() : loader.get();
+    }
+
+    public void invalidate(String customerId) {
+        if (customerId != null) {
+            histories.invalidate(customerId);
+        }
+    }
+
+    // orders is null for a history too long to cache
+    private record History(List<OrderDTO> orders) {
+    }
+}
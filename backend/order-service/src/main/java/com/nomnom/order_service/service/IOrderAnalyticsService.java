@@ -0,0 +1,12 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.dto.RevenueRollupDTO;
+import com.nomnom.order_service.shared.enums.RollupGranularity;
+
+import java.util.Date;
+import java.util.List;
+
+public interface IOrderAnalyticsService {
+    List<RevenueRollupDTO> getRestaurantRevenue(String restaurantId, RollupGranularity granularity, Date from, Date to);
+    List<RevenueRollupDTO> getTopRestaurants(RollupGranularity granularity, Date from, Date to, int limit);
+}
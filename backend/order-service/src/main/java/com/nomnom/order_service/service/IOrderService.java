@@ -1,21 +1,38 @@
 package com.nomnom.order_service.service;
 
+import com.nomnom.order_service.dto.DeliveryQuoteDTO;
 import com.nomnom.order_service.dto.OrderDTO;
+import com.nomnom.order_service.dto.OrderPageDTO;
+import com.nomnom.order_service.dto.OrderSummaryPageDTO;
 import com.nomnom.order_service.request.CreateOrderRequest;
 import com.nomnom.order_service.request.ApplyDiscountRequest;
 import com.nomnom.order_service.request.AssignDriverRequest;
+import com.nomnom.order_service.request.BulkOrderRequest;
+import com.nomnom.order_service.request.OrderSearchRequest;
+import com.nomnom.order_service.response.BulkOrderResponse;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 
 public interface IOrderService {
     OrderDTO createOrder(CreateOrderRequest request);
+    OrderDTO createOrder(CreateOrderRequest request, String idempotencyKey);
+    DeliveryQuoteDTO quoteDelivery(String restaurantId, double latitude, double longitude);
     OrderDTO getOrderById(String orderId);
-    void updateOrderStatus(String orderId, String status);
-    List<OrderDTO> getAllOrders();
+    OrderDTO updateOrderStatus(String orderId, String status);
+    OrderPageDTO getOrderPage(String cursor, int limit);
+    void forEachOrder(Consumer<OrderDTO> consumer);
     List<OrderDTO> getOrdersByCustomer(String customerId);
-    void cancelOrder(String orderId);
-    void assignDriver(String orderId, AssignDriverRequest request);
-    void applyDiscount(String orderId, ApplyDiscountRequest request);
+    OrderSummaryPageDTO getOrderSummaries(String customerId, String cursor, int limit);
+    List<OrderDTO> searchOrders(OrderSearchRequest request);
+    OrderDTO cancelOrder(String orderId);
+    OrderDTO assignDriver(String orderId, AssignDriverRequest request);
+    List<OrderDTO> assignDriverToBatch(String batchId, List<String> dropSequence, AssignDriverRequest request);
+    OrderDTO confirmPickup(String orderId);
+    void unassignDriver(String orderId, String driverId);
+    void releaseScheduledOrder(String orderId);
+    OrderDTO applyDiscount(String orderId, ApplyDiscountRequest request);
+    BulkOrderResponse bulkUpdate(BulkOrderRequest request);
 
 }
\ No newline at end of file
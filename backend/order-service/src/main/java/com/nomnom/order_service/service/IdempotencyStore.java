@@ -0,0 +1,27 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.dto.OrderDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Bounded, time-expiring record of recently used idempotency keys. A duplicate that arrives while the first
+ * request is still running waits for and shares its result rather than creating a second order; a failed attempt
+ * is not remembered, otherwise a retry could never succeed.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final SingleFlightCache<String, OrderDTO> results;
+
+    public IdempotencyStore(@Value("${order.idempotency.ttl-ms:600000}") long ttlMillis,
+                            @Value("${order.idempotency.max-entries:100000}") int maxEntries) {
+        this.results = new SingleFlightCache<>(ttlMillis, maxEntries);
+    }
+
+    public OrderDTO getOrCompute(String key, Supplier<OrderDTO> loader) {
+        return results.get(key, loader);
+    }
+}
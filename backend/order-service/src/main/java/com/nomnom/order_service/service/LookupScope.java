@@ -0,0 +1,71 @@
+package com.nomnom.order_service.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a handful of independent remote lookups concurrently under one deadline. Results are collected in
+ * completion order, so the first failure (or the deadline) cancels the remaining lookups straight away instead
+ * of waiting for the slower ones to finish.
+ */
+class LookupScope {
+
+    private final Executor executor;
+    private final List<Future<?>> forked = new ArrayList<>();
+    private final BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
+
+    LookupScope(Executor executor) {
+        this.executor = executor;
+    }
+
+    <T> Future<T> fork(Callable<T> lookup) {
+        FutureTask<T> task = new FutureTask<>(lookup) {
+            @Override
+            protected void done() {
+                completed.add(this);
+            }
+        };
+        forked.add(task);
+        executor.execute(task);
+        return task;
+    }
+
+    void join(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (int i = 0; i < forked.size(); i++) {
+                Future<?> next = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    throw new RuntimeException("Checkout lookups timed out");
+                }
+                next.get();
+            }
+        } catch (ExecutionException e) {
+            cancelAll();
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for checkout lookups", e);
+        } catch (RuntimeException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    private void cancelAll() {
+        forked.forEach(future -> future.cancel(true));
+    }
+}
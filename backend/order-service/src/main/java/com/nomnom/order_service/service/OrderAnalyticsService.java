@@ -0,0 +1,172 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.dto.RevenueRollupDTO;
+import com.nomnom.order_service.event.InProcessOrderEventSink;
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.model.OrderRollupState;
+import com.nomnom.order_service.model.RevenueRollup;
+import com.nomnom.order_service.shared.enums.RollupGranularity;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+@Service
+public class OrderAnalyticsService implements IOrderAnalyticsService {
+
+    private static final String CANCELLED = "Cancelled";
+    private static final int MAX_BUCKETS = 2000;
+    private static final int MAX_TOP_RESTAURANTS = 100;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneId zone;
+
+    public OrderAnalyticsService(MongoTemplate mongoTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 InProcessOrderEventSink orderEventSink,
+                                 @Value("${order.analytics.zone:UTC}") String zone) {
+        this.mongoTemplate = mongoTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.zone = ZoneId.of(zone);
+        orderEventSink.subscribe(this::apply);
+    }
+
+    /**
+     * Folds one relayed order event into the hourly and daily rollups of the restaurant, in the buckets of the
+     * order's creation time. An order is counted the first time any of its events is seen; later events only move
+     * the cancellation count. Delivery is at-least-once, so the per-order state only ever moves forward by
+     * revision and replays are dropped before any counter is touched. Events for orders older than the state's
+     * retention are dropped too: their state may be gone, and they would otherwise count the order a second time.
+     */
+    void apply(OrderEvent event) {
+        Instant placedAt = (event.getOrderCreatedAt() != null ? event.getOrderCreatedAt() : event.getOccurredAt()).toInstant();
+        if (placedAt.isBefore(Instant.now().minus(OrderRollupState.RETENTION))) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!applyInTransaction(event, placedAt)) {
+                        status.setRollbackOnly();
+                    }
+                });
+                return;
+            } catch (DuplicateKeyException e) {
+                // Another writer created one of the buckets first; everything was rolled back, so apply it again
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // False if this revision (or a newer one) was already applied, in which case the transaction must roll back
+    private boolean applyInTransaction(OrderEvent event, Instant placedAt) {
+        boolean cancelled = CANCELLED.equals(event.getOrderStatus());
+        OrderRollupState previous;
+        try {
+            // Matches only if we are behind this revision; otherwise the upsert collides on _id
+            previous = mongoTemplate.findAndModify(
+                    new Query(Criteria.where("orderId").is(event.getOrderId()).and("revision").lt(event.getRevision())),
+                    new Update()
+                            .set("revision", event.getRevision())
+                            .set("cancelled", cancelled)
+                            .set("updatedAt", new Date()),
+                    FindAndModifyOptions.options().upsert(true),
+                    OrderRollupState.class);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+
+        Update delta = new Update();
+        if (previous == null) {
+            delta.inc("orderCount", 1)
+                    .inc("orderTotal", event.getOrderTotal())
+                    .inc("deliveryFee", event.getDeliveryFee())
+                    .inc("cancelledCount", cancelled ? 1 : 0);
+        } else if (previous.isCancelled() != cancelled) {
+            delta.inc("cancelledCount", cancelled ? 1 : -1);
+        } else {
+            return true;
+        }
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            mongoTemplate.upsert(new Query(Criteria.where("restaurantId").is(event.getRestaurantId())
+                            .and("granularity").is(granularity)
+                            .and("bucketStart").is(Date.from(granularity.bucketStart(placedAt, zone)))),
+                    delta, RevenueRollup.class);
+        }
+        return true;
+    }
+
+    @Override
+    public List<RevenueRollupDTO> getRestaurantRevenue(String restaurantId, RollupGranularity granularity, Date from, Date to) {
+        Date[] range = resolveRange(granularity, from, to);
+        Query query = new Query(Criteria.where("restaurantId").is(restaurantId)
+                .and("granularity").is(granularity)
+                .and("bucketStart").gte(range[0]).lt(range[1]))
+                .with(Sort.by(Sort.Direction.ASC, "bucketStart"));
+        return mongoTemplate.find(query, RevenueRollup.class).stream()
+                .map(rollup -> toDTO(rollup.getRestaurantId(), granularity, rollup.getBucketStart(), rollup.getOrderCount(),
+                        rollup.getOrderTotal(), rollup.getDeliveryFee(), rollup.getCancelledCount()))
+                .toList();
+    }
+
+    @Override
+    public List<RevenueRollupDTO> getTopRestaurants(RollupGranularity granularity, Date from, Date to, int limit) {
+        Date[] range = resolveRange(granularity, from, to);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("granularity").is(granularity).and("bucketStart").gte(range[0]).lt(range[1])),
+                Aggregation.group("restaurantId")
+                        .sum("orderCount").as("orderCount")
+                        .sum("orderTotal").as("orderTotal")
+                        .sum("deliveryFee").as("deliveryFee")
+                        .sum("cancelledCount").as("cancelledCount"),
+                Aggregation.sort(Sort.Direction.DESC, "orderTotal"),
+                Aggregation.limit(Math.max(1, Math.min(limit, MAX_TOP_RESTAURANTS))));
+        return mongoTemplate.aggregate(aggregation, RevenueRollup.class, Document.class).getMappedResults().stream()
+                .map(doc -> toDTO(doc.getString("_id"), granularity, range[0],
+                        ((Number) doc.get("orderCount")).longValue(),
+                        ((Number) doc.get("orderTotal")).doubleValue(),
+                        ((Number) doc.get("deliveryFee")).doubleValue(),
+                        ((Number) doc.get("cancelledCount")).longValue()))
+                .toList();
+    }
+
+    // Defaults to the last 48 hours or 30 days, and refuses ranges that would return thousands of buckets
+    private static Date[] resolveRange(RollupGranularity granularity, Date from, Date to) {
+        Date end = to != null ? to : new Date();
+        Duration step = granularity == RollupGranularity.HOUR ? Duration.ofHours(1) : Duration.ofDays(1);
+        Date start = from != null ? from : Date.from(end.toInstant().minus(step.multipliedBy(granularity == RollupGranularity.HOUR ? 48 : 30)));
+        if (!start.before(end)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (Duration.between(start.toInstant(), end.toInstant()).compareTo(step.multipliedBy(MAX_BUCKETS)) > 0) {
+            throw new IllegalArgumentException("Requested range is too large for " + granularity + " granularity");
+        }
+        return new Date[]{start, end};
+    }
+
+    private static RevenueRollupDTO toDTO(String restaurantId, RollupGranularity granularity, Date bucketStart, long orderCount,
+                                          double orderTotal, double deliveryFee, long cancelledCount) {
+        double averageBasket = orderCount > 0 ? orderTotal / orderCount : 0;
+        return new RevenueRollupDTO(restaurantId, granularity.name(), bucketStart, orderCount, orderTotal, deliveryFee,
+                cancelledCount, averageBasket);
+    }
+}
@@ -0,0 +1,106 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.model.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Moves terminal orders past a configurable age from {@code orders} into {@link Order#ARCHIVE_COLLECTION}, so the
+ * hot collection (and its indexes) only holds orders that are still being worked on.
+ *
+ * <p>Each batch is copied first and deleted second. The copy is an upsert and the delete only matches the revision
+ * that was copied, so a crash, a concurrent archiver on another instance, or a write racing the move can at worst
+ * leave an order in both collections for a while, never in neither. Readers prefer the hot copy.
+ */
+@Component
+public class OrderArchiver {
+
+    private final MongoTemplate mongoTemplate;
+    private final List<String> terminalStatuses;
+    private final Duration minAge;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseBetweenBatchesMs;
+    private final Counter archived;
+
+    public OrderArchiver(MongoTemplate mongoTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${order.archive.terminal-statuses:Delivered,Cancelled}") List<String> terminalStatuses,
+                         @Value("${order.archive.min-age-days:7}") long minAgeDays,
+                         @Value("${order.archive.batch-size:500}") int batchSize,
+                         @Value("${order.archive.max-batches-per-run:100}") int maxBatchesPerRun,
+                         @Value("${order.archive.pause-between-batches-ms:200}") long pauseBetweenBatchesMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.terminalStatuses = terminalStatuses;
+        this.minAge = Duration.ofDays(minAgeDays);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseBetweenBatchesMs = pauseBetweenBatchesMs;
+        this.archived = meterRegistry.counter("order.archive.moved");
+    }
+
+    @Scheduled(fixedDelayString = "${order.archive.interval-ms:600000}", initialDelayString = "${order.archive.initial-delay-ms:60000}")
+    public void archive() {
+        Date cutoff = Date.from(new Date().toInstant().minus(minAge));
+        // Bounded per run and paced between batches so archiving never competes with live traffic for long
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            if (archiveBatch(cutoff) < batchSize) {
+                return;
+            }
+            try {
+                Thread.sleep(pauseBetweenBatchesMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    int archiveBatch(Date cutoff) {
+        List<Order> orders = findCandidates(cutoff);
+        if (!orders.isEmpty()) {
+            archived.increment(move(orders));
+        }
+        return orders.size();
+    }
+
+    List<Order> findCandidates(Date cutoff) {
+        // Served by the status_createdAt index
+        Query candidates = new Query(Criteria.where("orderStatus").in(terminalStatuses).and("createdAt").lt(cutoff))
+                .limit(batchSize);
+        return mongoTemplate.find(candidates, Order.class);
+    }
+
+    // Returns how many orders actually left the hot collection
+    long move(List<Order> orders) {
+        BulkOperations copy = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class, Order.ARCHIVE_COLLECTION);
+        BulkOperations delete = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        for (Order order : orders) {
+            copy.replaceOne(new Query(Criteria.where("orderId").is(order.getOrderId())), order, FindAndReplaceOptions.options().upsert());
+            delete.remove(new Query(Criteria.where("orderId").is(order.getOrderId())
+                    .andOperator(revisionIs(order.getRevision()))));
+        }
+        copy.execute();
+        return delete.execute().getDeletedCount();
+    }
+
+    // Orders written before revisions existed have no field at all, which reads back as 0
+    private static Criteria revisionIs(long revision) {
+        if (revision != 0) {
+            return Criteria.where("revision").is(revision);
+        }
+        return new Criteria().orOperator(Criteria.where("revision").is(0L), Criteria.where("revision").exists(false));
+    }
+}
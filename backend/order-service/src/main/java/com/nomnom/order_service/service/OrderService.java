@@ -1,47 +1,168 @@
 package com.nomnom.order_service.service;
 
+import com.nomnom.order_service.client.ICartClient;
+import com.nomnom.order_service.client.IMenuClient;
+import com.nomnom.order_service.client.IRestaurantClient;
+import com.nomnom.order_service.dispatch.DriverReservations;
+import com.nomnom.order_service.dispatch.DriverUnavailableException;
+import com.nomnom.order_service.pricing.DeliveryQuoter;
+import com.nomnom.order_service.pricing.RestaurantLocations;
 import com.nomnom.order_service.dto.CartDTO;
 import com.nomnom.order_service.dto.CartItemDTO;
+import com.nomnom.order_service.dto.DeliveryQuoteDTO;
+import com.nomnom.order_service.dto.MenuItemDTO;
 import com.nomnom.order_service.dto.OrderDTO;
+import com.nomnom.order_service.dto.OrderPageDTO;
+import com.nomnom.order_service.dto.OrderSummaryDTO;
+import com.nomnom.order_service.dto.OrderSummaryPageDTO;
+import com.nomnom.order_service.dto.RestaurantDTO;
+import com.nomnom.order_service.event.OrderEventType;
+import com.nomnom.order_service.event.OrderOutbox;
 import com.nomnom.order_service.model.Order;
 import com.nomnom.order_service.repository.OrderRepository;
 import com.nomnom.order_service.request.*;
+import com.nomnom.order_service.response.BulkOrderResponse;
 import com.nomnom.order_service.shared.enums.PotionSize;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.nomnom.order_service.shared.enums.PotionSize.*;
 
 @Service
 public class OrderService implements IOrderService {
 
-    @Value("${cart.service.url}")
-    private String cartServiceUrl;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final int MAX_BULK_OPERATIONS = 500;
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "orderId");
 
     private final OrderRepository orderRepository;
-    private final RestTemplate restTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final ICartClient cartClient;
+    private final CartSnapshotVerifier cartSnapshotVerifier;
+    private final IRestaurantClient restaurantClient;
+    private final IMenuClient menuClient;
+    private final ExecutorService lookupExecutor;
+    private final Duration lookupTimeout;
+    private final IdempotencyStore idempotencyStore;
+    private final OrderOutbox orderOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final CustomerOrderHistoryCache historyCache;
+    private final DriverReservations driverReservations;
+    private final DeliveryQuoter deliveryQuoter;
+    private final RestaurantLocations restaurantLocations;
+    private final long schedulingLeadMinutes;
+    private final long schedulingMaxDaysAhead;
 
-    public OrderService(OrderRepository orderRepository, RestTemplate restTemplate) {
+    public OrderService(OrderRepository orderRepository,
+                        MongoTemplate mongoTemplate,
+                        ICartClient cartClient,
+                        CartSnapshotVerifier cartSnapshotVerifier,
+                        IRestaurantClient restaurantClient,
+                        IMenuClient menuClient,
+                        ExecutorService lookupExecutor,
+                        @Value("${order.checkout.lookup-timeout-ms:3000}") long lookupTimeoutMs,
+                        IdempotencyStore idempotencyStore,
+                        OrderOutbox orderOutbox,
+                        TransactionTemplate transactionTemplate,
+                        CustomerOrderHistoryCache historyCache,
+                        DriverReservations driverReservations,
+                        DeliveryQuoter deliveryQuoter,
+                        RestaurantLocations restaurantLocations,
+                        @Value("${order.scheduling.lead-minutes:10}") long schedulingLeadMinutes,
+                        @Value("${order.scheduling.max-days-ahead:30}") long schedulingMaxDaysAhead) {
         this.orderRepository = orderRepository;
-        this.restTemplate = restTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.cartClient = cartClient;
+        this.cartSnapshotVerifier = cartSnapshotVerifier;
+        this.restaurantClient = restaurantClient;
+        this.menuClient = menuClient;
+        this.lookupExecutor = lookupExecutor;
+        this.lookupTimeout = Duration.ofMillis(lookupTimeoutMs);
+        this.idempotencyStore = idempotencyStore;
+        this.orderOutbox = orderOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.historyCache = historyCache;
+        this.driverReservations = driverReservations;
+        this.deliveryQuoter = deliveryQuoter;
+        this.restaurantLocations = restaurantLocations;
+        this.schedulingLeadMinutes = schedulingLeadMinutes;
+        this.schedulingMaxDaysAhead = schedulingMaxDaysAhead;
     }
 
     @Override
     public OrderDTO createOrder(CreateOrderRequest request) {
-        // Fetch cart items from Cart Service
-        String cartUrl = cartServiceUrl + "/" + request.getCustomerId() + "/" + request.getRestaurantId();
-        ResponseEntity<CartDTO> response = restTemplate.getForEntity(cartUrl, CartDTO.class);
-        if (response.getBody() == null || response.getBody().getItems().isEmpty()) {
+        return createOrder(request, null);
+    }
+
+    @Override
+    public OrderDTO createOrder(CreateOrderRequest request, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return placeOrder(request, null);
+        }
+        // Keys are scoped per customer so two clients can't collide on the same value
+        String scopedKey = request.getCustomerId() + ":" + idempotencyKey;
+        return idempotencyStore.getOrCompute(scopedKey, () -> orderRepository.findByIdempotencyKey(scopedKey)
+                .map(this::mapToOrderDTO)
+                .orElseGet(() -> placeOrder(request, scopedKey)));
+    }
+
+    private OrderDTO placeOrder(CreateOrderRequest request, String idempotencyKey) {
+        // Cart, restaurant and menu lookups are independent, so checkout waits only as long as the slowest one
+        LookupScope scope = new LookupScope(lookupExecutor);
+        // A valid signed snapshot from cart-service saves the cart round trip entirely
+        Optional<CartDTO> snapshot = cartSnapshotVerifier.verify(
+                request.getCartSnapshot(), request.getCustomerId(), request.getRestaurantId());
+        Future<CartDTO> cart = snapshot.isPresent()
+                ? CompletableFuture.completedFuture(snapshot.get())
+                : scope.fork(() -> cartClient.getCart(request.getCustomerId(), request.getRestaurantId()));
+        Future<RestaurantDTO> restaurant = scope.fork(() -> restaurantClient.getRestaurant(request.getRestaurantId()));
+        Future<List<MenuItemDTO>> menu = scope.fork(() -> menuClient.getMenuItems(request.getRestaurantId()));
+        scope.join(lookupTimeout);
+
+        CartDTO cartDTO = cart.resultNow();
+        if (cartDTO == null || cartDTO.getItems() == null || cartDTO.getItems().isEmpty()) {
             throw new RuntimeException("Cart is empty");
         }
-        CartDTO cartDTO = response.getBody();
+        RestaurantDTO restaurantDTO = restaurant.resultNow();
+        verifyRestaurantIsOpen(restaurantDTO);
+        verifyMenuPrices(cartDTO.getItems(), menu.resultNow());
+        DeliveryQuoteDTO quote = deliveryQuoter.quote(request.getRestaurantId(), restaurantDTO.getLocation(),
+                request.getLatitude(), request.getLongitude());
 
         // Calculate order total
         double orderTotal = cartDTO.getItems().stream()
@@ -70,10 +191,16 @@ public class OrderService implements IOrderService {
                         item.getImage()
                 )).toList());
         order.setOrderTotal(orderTotal);
-        order.setDeliveryFee(5.0); // Example fixed delivery fee
-        order.setTotalAmount(orderTotal + 5.0);
+        order.setDeliveryFee(quote.getDeliveryFee());
+        order.setTotalAmount(orderTotal + quote.getDeliveryFee());
         order.setPaymentType(request.getPaymentType());
         order.setOrderStatus("Pending");
+        order.setCreatedAt(new Date());
+        order.setUpdatedAt(new Date());
+        order.setEstimatedDeliveryAt(new Date(order.getCreatedAt().getTime() + quote.getEtaMinutes() * 60_000L));
+        if (request.getScheduledFor() != null) {
+            schedule(order, request.getScheduledFor(), quote);
+        }
 
         // Map driver details
         if (request.getDriverDetails() != null) {
@@ -83,14 +210,81 @@ public class OrderService implements IOrderService {
                     request.getDriverDetails().getVehicleNumber()
             ));
         }
-        order.setCreatedAt(new Date());
-        order.setUpdatedAt(new Date());
+        if (restaurantDTO.getLocation() != null) {
+            order.setRestaurantLocation(new Order.Location(
+                    restaurantDTO.getLocation().getX(), restaurantDTO.getLocation().getY()));
+        }
+        order.setIdempotencyKey(idempotencyKey);
+        order.setRevision(1);
 
         // Save order
-        Order savedOrder = orderRepository.save(order);
+        Order savedOrder;
+        try {
+            savedOrder = transactionTemplate.execute(status -> {
+                Order inserted = orderRepository.insert(order);
+                orderOutbox.append(inserted, OrderEventType.CREATED);
+                return inserted;
+            });
+        } catch (DuplicateKeyException e) {
+            // Another instance won the race for this idempotency key; hand back its order
+            if (idempotencyKey == null) {
+                throw e;
+            }
+            savedOrder = orderRepository.findByIdempotencyKey(idempotencyKey).orElseThrow(() -> e);
+        }
+        historyCache.invalidate(savedOrder.getCustomerId());
         return mapToOrderDTO(savedOrder);
     }
 
+    @Override
+    public DeliveryQuoteDTO quoteDelivery(String restaurantId, double latitude, double longitude) {
+        return deliveryQuoter.quote(restaurantId, restaurantLocations.location(restaurantId), latitude, longitude);
+    }
+
+    // Held back from the kitchen until the expected prep and travel time, plus a margin, before the requested time
+    private void schedule(Order order, Date scheduledFor, DeliveryQuoteDTO quote) {
+        long now = order.getCreatedAt().getTime();
+        long releaseAt = scheduledFor.getTime() - (quote.getEtaMinutes() + schedulingLeadMinutes) * 60_000L;
+        if (releaseAt <= now) {
+            throw new RuntimeException("The scheduled time is too soon; place the order for now instead");
+        }
+        if (scheduledFor.getTime() - now > Duration.ofDays(schedulingMaxDaysAhead).toMillis()) {
+            throw new RuntimeException("Orders can be scheduled at most " + schedulingMaxDaysAhead + " days ahead");
+        }
+        order.setOrderStatus("Scheduled");
+        order.setScheduledFor(scheduledFor);
+        order.setReleaseAt(new Date(releaseAt));
+        order.setEstimatedDeliveryAt(scheduledFor);
+    }
+
+    private void verifyRestaurantIsOpen(RestaurantDTO restaurant) {
+        if (!restaurant.isActive() || "OFFLINE".equals(restaurant.getRestaurantStatus())) {
+            throw new RuntimeException("Restaurant is not accepting orders");
+        }
+    }
+
+    // The cart stores the unit price seen when the item was added; reject the order if the menu has moved on since
+    private void verifyMenuPrices(List<CartDTO.CartItemDTO> items, List<MenuItemDTO> menu) {
+        Map<String, MenuItemDTO> menuById = new HashMap<>();
+        for (MenuItemDTO menuItem : menu) {
+            menuById.put(String.valueOf(menuItem.getId()), menuItem);
+        }
+        for (CartDTO.CartItemDTO item : items) {
+            MenuItemDTO menuItem = menuById.get(item.getItemId());
+            if (menuItem == null || Boolean.FALSE.equals(menuItem.getAvailabilityStatus())) {
+                throw new RuntimeException(item.getItemName() + " is no longer available");
+            }
+            String size = (item.getPotionSize() != null ? item.getPotionSize() : Small).name().toLowerCase();
+            boolean priceMatches = menuItem.getPortions() != null && menuItem.getPortions().stream()
+                    .anyMatch(portion -> portion.getPortionSize() != null
+                            && portion.getPortionSize().toLowerCase().contains(size)
+                            && Math.abs(portion.getPrice() - item.getPrice()) < 0.005);
+            if (!priceMatches) {
+                throw new RuntimeException("The price of " + item.getItemName() + " has changed");
+            }
+        }
+    }
+
     private Order.CartItem.PotionSize mapPotionSize(PotionSize potionSize) {
         // Handle null potionSize by assigning a default value
         if (potionSize == null) {
@@ -135,7 +329,12 @@ public class OrderService implements IOrderService {
                         order.getDriverDetails().getVehicleNumber()
                 ) : null,
                 order.getCreatedAt(),
-                order.getUpdatedAt()
+                order.getUpdatedAt(),
+                order.getEstimatedDeliveryAt(),
+                order.getBatchId(),
+                order.getDeliverySequence(),
+                order.getScheduledFor(),
+                order.getRevision()
         );
     }
 
@@ -154,66 +353,594 @@ public class OrderService implements IOrderService {
     @Override
     public OrderDTO getOrderById(String orderId) {
         Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+                .orElseGet(() -> mongoTemplate.findById(orderId, Order.class, Order.ARCHIVE_COLLECTION));
+        if (order == null) {
+            throw new RuntimeException("Order not found");
+        }
         return mapToOrderDTO(order);
     }
 
     @Override
-    public void updateOrderStatus(String orderId, String status) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setOrderStatus(status);
-        order.setUpdatedAt(new Date());
-        orderRepository.save(order);
+    public OrderDTO updateOrderStatus(String orderId, String status) {
+        Order order = findAndModify(Criteria.where("orderId").is(orderId), statusUpdate(status),
+                OrderEventType.STATUS_CHANGED);
+        if (order == null) {
+            throw new RuntimeException("Order not found");
+        }
+        releaseDriverIfFinished(order);
+        return mapToOrderDTO(order);
     }
 
     @Override
-    public List<OrderDTO> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(this::mapToOrderDTO)
-                .collect(Collectors.toList());
+    public OrderPageDTO getOrderPage(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Query query = new Query().with(NEWEST_FIRST).limit(pageSize + 1);
+        if (cursor != null && !cursor.isBlank()) {
+            query.addCriteria(afterCursor(cursor));
+        }
+        List<Order> orders = mongoTemplate.find(query, Order.class);
+
+        // One extra row tells us whether another page exists without a count query
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            nextCursor = encodeCursor(orders.get(pageSize - 1));
+        }
+        return new OrderPageDTO(orders.stream().map(this::mapToOrderDTO).toList(), nextCursor);
+    }
+
+    @Override
+    public void forEachOrder(Consumer<OrderDTO> consumer) {
+        // Documents are pulled from the server cursor in batches, so only one batch is ever held in memory
+        Query query = new Query().with(NEWEST_FIRST).cursorBatchSize(STREAM_BATCH_SIZE);
+        try (Stream<Order> orders = mongoTemplate.stream(query, Order.class)) {
+            orders.map(this::mapToOrderDTO).forEach(consumer);
+        }
+    }
+
+    private static String encodeCursor(Order last) {
+        String key = last.getCreatedAt().getTime() + ":" + last.getOrderId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Keyset predicate for (createdAt, orderId) descending: strictly older, or same instant with a smaller id
+    private static Criteria afterCursor(String cursor) {
+        String key;
+        long createdAt;
+        String orderId;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf(':');
+            createdAt = Long.parseLong(key.substring(0, separator));
+            orderId = key.substring(separator + 1);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        Date createdAtDate = new Date(createdAt);
+        return new Criteria().orOperator(
+                Criteria.where("createdAt").lt(createdAtDate),
+                Criteria.where("createdAt").is(createdAtDate).and("orderId").lt(orderId)
+        );
     }
 
     @Override
     public List<OrderDTO> getOrdersByCustomer(String customerId) {
-        return orderRepository.findByCustomerId(customerId).stream()
+        return historyCache.get(customerId, () -> loadOrdersByCustomer(customerId));
+    }
+
+    // The whole history, newest first
+    private List<OrderDTO> loadOrdersByCustomer(String customerId) {
+        Map<String, Order> orders = new HashMap<>();
+        // Live copies are read last so they replace an archived copy of an order caught mid-archive
+        for (String collection : List.of(Order.ARCHIVE_COLLECTION, mongoTemplate.getCollectionName(Order.class))) {
+            Query query = new Query(Criteria.where("customerId").is(customerId)).with(NEWEST_FIRST);
+            mongoTemplate.find(query, Order.class, collection).forEach(order -> orders.put(order.getOrderId(), order));
+        }
+        return orders.values().stream()
+                .sorted(Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getOrderId).reversed())
                 .map(this::mapToOrderDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * History-list read path: only the fields the list shows are fetched, newest first, a page at a time. Live and
+     * archived orders are paged with the same keyset cursor and merged, so paging runs seamlessly into the archive.
+     */
     @Override
-    public void cancelOrder(String orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        if (!order.getOrderStatus().equals("Pending")) {
-            throw new RuntimeException("Cannot cancel an order that is not Pending");
+    public OrderSummaryPageDTO getOrderSummaries(String customerId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Map<String, Order> page = new HashMap<>();
+        for (String collection : List.of(Order.ARCHIVE_COLLECTION, mongoTemplate.getCollectionName(Order.class))) {
+            Query query = new Query(Criteria.where("customerId").is(customerId)).with(NEWEST_FIRST).limit(pageSize + 1);
+            if (cursor != null && !cursor.isBlank()) {
+                query.addCriteria(afterCursor(cursor));
+            }
+            query.fields().include("orderId", "restaurantId", "totalAmount", "orderStatus", "createdAt");
+            // Live copies are read last so they replace an archived copy of the same order
+            mongoTemplate.find(query, Order.class, collection).forEach(order -> page.put(order.getOrderId(), order));
         }
-        order.setOrderStatus("Cancelled");
-        order.setUpdatedAt(new Date());
-        orderRepository.save(order);
+        List<Order> orders = page.values().stream()
+                .sorted(Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getOrderId).reversed())
+                .toList();
+
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            nextCursor = encodeCursor(orders.get(pageSize - 1));
+        }
+        return new OrderSummaryPageDTO(orders.stream()
+                .map(order -> new OrderSummaryDTO(order.getOrderId(), order.getRestaurantId(), order.getTotalAmount(),
+                        order.getOrderStatus(), order.getCreatedAt()))
+                .toList(), nextCursor);
     }
 
     @Override
-    public void assignDriver(String orderId, AssignDriverRequest request) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setDriverDetails(new Order.DriverDetails(
-                request.getDriverId(),
-                request.getDriverName(),
-                request.getVehicleNumber()
-        ));
-        order.setOrderStatus("Out for Delivery");
-        order.setUpdatedAt(new Date());
-        orderRepository.save(order);
+    public List<OrderDTO> searchOrders(OrderSearchRequest request) {
+        return mongoTemplate.find(buildSearchQuery(request), Order.class).stream()
+                .map(this::mapToOrderDTO)
+                .toList();
+    }
+
+    /**
+     * Every combination of filters here is served by one of the compound indexes declared on {@link Order};
+     * sorting is limited to createdAt so the index can always provide the order.
+     */
+    static Query buildSearchQuery(OrderSearchRequest request) {
+        Query query = new Query();
+        if (request.getRestaurantId() != null && !request.getRestaurantId().isBlank()) {
+            query.addCriteria(Criteria.where("restaurantId").is(request.getRestaurantId()));
+        }
+        if (request.getStatus() != null && !request.getStatus().isEmpty()) {
+            query.addCriteria(Criteria.where("orderStatus").in(request.getStatus()));
+        }
+        if (request.getFrom() != null || request.getTo() != null) {
+            Criteria createdAt = Criteria.where("createdAt");
+            if (request.getFrom() != null) {
+                createdAt.gte(request.getFrom());
+            }
+            if (request.getTo() != null) {
+                createdAt.lt(request.getTo());
+            }
+            query.addCriteria(createdAt);
+        }
+        Sort.Direction direction = "asc".equalsIgnoreCase(request.getSort()) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        int size = Math.max(1, Math.min(request.getSize(), MAX_PAGE_SIZE));
+        int page = Math.max(0, request.getPage());
+        return query.with(Sort.by(direction, "createdAt", "orderId"))
+                .skip((long) page * size)
+                .limit(size);
     }
 
     @Override
-    public void applyDiscount(String orderId, ApplyDiscountRequest request) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-        double discountedAmount = order.getTotalAmount() - request.getDiscountAmount();
-        order.setTotalAmount(discountedAmount < 0 ? 0 : discountedAmount);
-        order.setUpdatedAt(new Date());
-        orderRepository.save(order);
+    public OrderDTO cancelOrder(String orderId) {
+        // The Pending precondition is part of the filter, so a concurrent status change can't be overwritten
+        Order order = findAndModify(cancelCriteria(orderId), statusUpdate("Cancelled"), OrderEventType.CANCELLED);
+        if (order == null) {
+            throw orderNotFoundOr(orderId, "Cannot cancel an order that is not Pending or Scheduled");
+        }
+        releaseDriverIfFinished(order);
+        return mapToOrderDTO(order);
+    }
+
+    @Override
+    public OrderDTO assignDriver(String orderId, AssignDriverRequest request) {
+        String driverId = request.getDriverId();
+        if (driverId == null || driverId.isBlank()) {
+            throw new RuntimeException("driverId is required");
+        }
+        boolean reserved = driverReservations.reserve(driverId, orderId);
+        Reassignment reassignment = null;
+        try {
+            if (reserved) {
+                reassignment = reassignDriver(orderId, request, false);
+            }
+            if (reassignment == null) {
+                // Off the hot path: nothing matched or the driver looked busy. Re-sending the order's own driver
+                // lands here; it only refreshes their details and the order keeps its place in a batch.
+                reassignment = reassignDriver(orderId, request, true);
+                if (reassignment != null) {
+                    return mapToOrderDTO(reassignment.order());
+                }
+            }
+        } finally {
+            if (reserved && reassignment == null) {
+                driverReservations.release(driverId, orderId);
+            }
+        }
+        if (reassignment == null) {
+            if (!reserved) {
+                throw new DriverUnavailableException(driverId);
+            }
+            throw orderNotFoundOr(orderId, "Cannot assign a driver to a Cancelled order");
+        }
+        // Taken from the pre-image, so this is exactly the driver the write replaced even if another reassignment got in first
+        if (reassignment.previousDriverId() != null) {
+            releaseDriver(reassignment.previousDriverId(), orderId, reassignment.previousBatchId());
+        }
+        return mapToOrderDTO(reassignment.order());
+    }
+
+    private record Reassignment(Order order, String previousDriverId, String previousBatchId) {
+    }
+
+    /**
+     * Sets the order's driver with one findAndModify that returns the pre-image, or returns null when nothing matched.
+     * With {@code sameDriver} only an order that already has this driver matches, and the driver's reservation (held
+     * per batch for a batched order) is renewed in the same transaction. Otherwise only an order with no or another
+     * driver matches, and it leaves its batch. The post-image is rebuilt from the pre-image for the outbox event.
+     */
+    private Reassignment reassignDriver(String orderId, AssignDriverRequest request, boolean sameDriver) {
+        String driverId = request.getDriverId();
+        Date now = new Date();
+        Criteria criteria = assignDriverCriteria(orderId).and("driverDetails.driverId");
+        Update update = assignDriverUpdate(request).set("updatedAt", now);
+        if (sameDriver) {
+            criteria.is(driverId);
+        } else {
+            criteria.ne(driverId);
+            update.unset("batchId").unset("deliverySequence");
+        }
+        Reassignment reassignment = transactionTemplate.execute(status -> {
+            Order order = mongoTemplate.findAndModify(new Query(criteria), update,
+                    FindAndModifyOptions.options().returnNew(false), Order.class);
+            if (order == null) {
+                return null;
+            }
+            if (sameDriver && !driverReservations.reserve(driverId, order.getBatchId() != null ? order.getBatchId() : orderId)) {
+                throw new DriverUnavailableException(driverId);
+            }
+            Reassignment applied = new Reassignment(order,
+                    order.getDriverDetails() != null ? order.getDriverDetails().getDriverId() : null, order.getBatchId());
+            order.setDriverDetails(new Order.DriverDetails(driverId, request.getDriverName(), request.getVehicleNumber()));
+            order.setOrderStatus("Out for Delivery");
+            order.setUpdatedAt(now);
+            order.setRevision(order.getRevision() + 1);
+            if (!sameDriver) {
+                order.setBatchId(null);
+                order.setDeliverySequence(null);
+            }
+            orderOutbox.append(order, OrderEventType.DRIVER_ASSIGNED);
+            return applied;
+        });
+        if (reassignment != null) {
+            historyCache.invalidate(reassignment.order().getCustomerId());
+        }
+        return reassignment;
+    }
+
+    /**
+     * Assigns one driver to every order of a multi-drop batch, or to none of them: the driver is reserved for the
+     * batch as a whole, and if any order has been cancelled or taken by another driver in the meantime the whole
+     * assignment rolls back.
+     */
+    @Override
+    public List<OrderDTO> assignDriverToBatch(String batchId, List<String> dropSequence, AssignDriverRequest request) {
+        String driverId = request.getDriverId();
+        if (driverId == null || driverId.isBlank()) {
+            throw new RuntimeException("driverId is required");
+        }
+        if (!driverReservations.reserve(driverId, batchId)) {
+            throw new DriverUnavailableException(driverId);
+        }
+        String operationId = UUID.randomUUID().toString();
+        List<Order> assigned;
+        try {
+            assigned = transactionTemplate.execute(status -> {
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+                for (int i = 0; i < dropSequence.size(); i++) {
+                    bulk.updateOne(new Query(assignDriverCriteria(dropSequence.get(i)).and("driverDetails").is(null)),
+                            assignDriverUpdate(request)
+                                    .set("batchId", batchId)
+                                    .set("deliverySequence", i + 1)
+                                    .set("lastOperationId", operationId));
+                }
+                if (bulk.execute().getModifiedCount() != dropSequence.size()) {
+                    throw new RuntimeException("An order in the batch was cancelled or assigned concurrently");
+                }
+                List<Order> changed = mongoTemplate.find(new Query(Criteria.where("orderId").in(dropSequence)
+                        .and("lastOperationId").is(operationId)), Order.class);
+                orderOutbox.appendAll(changed, order -> OrderEventType.DRIVER_ASSIGNED);
+                return changed;
+            });
+        } catch (RuntimeException e) {
+            driverReservations.release(driverId, batchId);
+            throw e;
+        }
+        assigned.forEach(order -> historyCache.invalidate(order.getCustomerId()));
+        return assigned.stream()
+                .sorted(Comparator.comparing(Order::getDeliverySequence))
+                .map(this::mapToOrderDTO)
+                .toList();
+    }
+
+    @Override
+    public OrderDTO confirmPickup(String orderId) {
+        OrderDTO order = getOrderById(orderId);
+        if (order.getDriverDetails() == null) {
+            throw new RuntimeException("No driver is assigned to this order");
+        }
+        String reservedFor = order.getBatchId() != null ? order.getBatchId() : orderId;
+        if (!driverReservations.startDelivery(order.getDriverDetails().getDriverId(), reservedFor)) {
+            throw new RuntimeException("The driver's reservation for this order has expired");
+        }
+        return order;
+    }
+
+    /**
+     * @param orderId the order the driver was reserved for, or the id of the batch they were reserved for
+     */
+    @Override
+    public void unassignDriver(String orderId, String driverId) {
+        // Only while the assignment is still the one whose reservation lapsed
+        Criteria stillAssigned = new Criteria().andOperator(
+                new Criteria().orOperator(Criteria.where("orderId").is(orderId), Criteria.where("batchId").is(orderId)),
+                Criteria.where("driverDetails.driverId").is(driverId).and("orderStatus").is("Out for Delivery"));
+        List<Order> unassigned = transactionTemplate.execute(status -> {
+            Query affected = new Query(stillAssigned);
+            affected.fields().include("orderId");
+            List<String> orderIds = mongoTemplate.find(affected, Order.class).stream().map(Order::getOrderId).toList();
+            if (orderIds.isEmpty()) {
+                return List.<Order>of();
+            }
+            // Same precondition again: a concurrent write to any of these orders aborts the transaction instead
+            mongoTemplate.updateMulti(new Query(new Criteria().andOperator(
+                            Criteria.where("orderId").in(orderIds), stillAssigned)),
+                    new Update()
+                            .unset("driverDetails")
+                            .unset("batchId")
+                            .unset("deliverySequence")
+                            .set("orderStatus", "Ready")
+                            .set("updatedAt", new Date())
+                            .inc("revision", 1),
+                    Order.class);
+            List<Order> changed = mongoTemplate.find(new Query(Criteria.where("orderId").in(orderIds)), Order.class);
+            orderOutbox.appendAll(changed, order -> OrderEventType.DRIVER_UNASSIGNED);
+            return changed;
+        });
+        unassigned.forEach(order -> historyCache.invalidate(order.getCustomerId()));
+    }
+
+    @Override
+    public void releaseScheduledOrder(String orderId) {
+        // No-op if the order was cancelled, or another instance released it first
+        findAndModify(Criteria.where("orderId").is(orderId).and("orderStatus").is("Scheduled"),
+                statusUpdate("Pending"), OrderEventType.STATUS_CHANGED);
+    }
+
+    @Override
+    public OrderDTO applyDiscount(String orderId, ApplyDiscountRequest request) {
+        // totalAmount = max(0, totalAmount - discount), evaluated server-side against the current value
+        double discountAmount = request.getDiscountAmount();
+        AggregationExpression discountedAmount = context -> new Document("$max", Arrays.asList(
+                0, new Document("$subtract", Arrays.asList("$totalAmount", discountAmount))));
+        AggregationExpression nextRevision = context -> new Document("$add", Arrays.asList(
+                new Document("$ifNull", Arrays.asList("$revision", 0)), 1));
+        Order order = findAndModify(Criteria.where("orderId").is(orderId),
+                AggregationUpdate.update()
+                        .set("totalAmount").toValue(discountedAmount)
+                        .set("updatedAt").toValue(new Date())
+                        .set("revision").toValue(nextRevision),
+                OrderEventType.DISCOUNT_APPLIED);
+        if (order == null) {
+            throw new RuntimeException("Order not found");
+        }
+        return mapToOrderDTO(order);
+    }
+
+    /**
+     * Runs every operation as one unordered bulk write. Each operation's precondition is part of its update filter,
+     * exactly as in the single-order methods, so a failed precondition is simply a non-match. Matched writes are
+     * tagged with a per-operation id and read back in one query to build their results and outbox events; the
+     * remaining orders are looked up once more only to tell "not found" from "precondition failed".
+     */
+    @Override
+    public BulkOrderResponse bulkUpdate(BulkOrderRequest request) {
+        List<BulkOrderRequest.Operation> operations = request.getOperations() != null ? request.getOperations() : List.of();
+        if (operations.size() > MAX_BULK_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_OPERATIONS + " operations per request");
+        }
+        BulkOrderResponse.ItemResult[] results = new BulkOrderResponse.ItemResult[operations.size()];
+        Map<String, Integer> indexByOperationId = new HashMap<>();
+        Map<String, Integer> indexByOrderId = new HashMap<>();
+
+        List<Pair<Query, UpdateDefinition>> updates = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BulkOrderRequest.Operation operation = operations.get(i);
+            String invalid = validate(operation);
+            if (invalid == null && indexByOrderId.putIfAbsent(operation.getOrderId(), i) != null) {
+                invalid = "Order appears more than once in this request";
+            }
+            if (invalid != null) {
+                results[i] = new BulkOrderResponse.ItemResult(operation.getOrderId(),
+                        BulkOrderResponse.ItemResult.Outcome.INVALID, null, invalid);
+                continue;
+            }
+            if (operation.getType() == BulkOrderRequest.Operation.OperationType.ASSIGN_DRIVER
+                    && !driverReservations.reserve(operation.getDriver().getDriverId(), operation.getOrderId())) {
+                results[i] = new BulkOrderResponse.ItemResult(operation.getOrderId(),
+                        BulkOrderResponse.ItemResult.Outcome.PRECONDITION_FAILED, null,
+                        "Driver " + operation.getDriver().getDriverId() + " is not available");
+                continue;
+            }
+            String operationId = UUID.randomUUID().toString();
+            indexByOperationId.put(operationId, i);
+            Criteria criteria = switch (operation.getType()) {
+                case UPDATE_STATUS -> Criteria.where("orderId").is(operation.getOrderId());
+                // Bulk assignment never replaces another driver, so no other reservation needs releasing
+                case ASSIGN_DRIVER -> assignDriverCriteria(operation.getOrderId())
+                        .and("driverDetails.driverId").in(null, operation.getDriver().getDriverId());
+                case CANCEL -> cancelCriteria(operation.getOrderId());
+            };
+            if (operation.getExpectedStatus() != null) {
+                criteria = new Criteria().andOperator(criteria, Criteria.where("orderStatus").is(operation.getExpectedStatus()));
+            }
+            Update update = switch (operation.getType()) {
+                case UPDATE_STATUS -> statusUpdate(operation.getStatus());
+                case ASSIGN_DRIVER -> assignDriverUpdate(operation.getDriver()).unset("batchId").unset("deliverySequence");
+                case CANCEL -> statusUpdate("Cancelled");
+            };
+            updates.add(Pair.of(new Query(criteria), update.set("lastOperationId", operationId)));
+        }
+
+        if (!updates.isEmpty()) {
+            List<Order> applied;
+            try {
+                applied = transactionTemplate.execute(status -> {
+                    mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class).updateOne(updates).execute();
+                    // Filtering on orderId keeps the read-back on the primary key index
+                    List<Order> changed = mongoTemplate.find(new Query(Criteria.where("orderId").in(indexByOrderId.keySet())
+                            .and("lastOperationId").in(indexByOperationId.keySet())), Order.class);
+                    orderOutbox.appendAll(changed, order -> eventType(operations.get(indexByOperationId.get(order.getLastOperationId())).getType()));
+                    return changed;
+                });
+            } catch (RuntimeException e) {
+                // Nothing was written, so no driver reserved by this request may stay reserved
+                releaseReservations(operations, indexByOperationId.values());
+                throw e;
+            }
+            for (Order order : applied) {
+                results[indexByOperationId.get(order.getLastOperationId())] = new BulkOrderResponse.ItemResult(order.getOrderId(),
+                        BulkOrderResponse.ItemResult.Outcome.APPLIED, order.getOrderStatus(), null);
+                historyCache.invalidate(order.getCustomerId());
+                releaseDriverIfFinished(order);
+            }
+        }
+
+        List<Integer> unmatchedIndexes = indexByOperationId.values().stream()
+                .filter(i -> results[i] == null)
+                .toList();
+        releaseReservations(operations, unmatchedIndexes);
+        List<String> unmatched = unmatchedIndexes.stream().map(i -> operations.get(i).getOrderId()).toList();
+        if (!unmatched.isEmpty()) {
+            Query current = new Query(Criteria.where("orderId").in(unmatched));
+            current.fields().include("orderId", "orderStatus");
+            for (Order order : mongoTemplate.find(current, Order.class)) {
+                results[indexByOrderId.get(order.getOrderId())] = new BulkOrderResponse.ItemResult(order.getOrderId(),
+                        BulkOrderResponse.ItemResult.Outcome.PRECONDITION_FAILED, order.getOrderStatus(),
+                        "Not applicable to an order that is " + order.getOrderStatus());
+            }
+            for (String orderId : unmatched) {
+                int i = indexByOrderId.get(orderId);
+                if (results[i] == null) {
+                    results[i] = new BulkOrderResponse.ItemResult(orderId,
+                            BulkOrderResponse.ItemResult.Outcome.NOT_FOUND, null, "Order not found");
+                }
+            }
+        }
+
+        int applied = (int) Arrays.stream(results)
+                .filter(result -> result.getOutcome() == BulkOrderResponse.ItemResult.Outcome.APPLIED)
+                .count();
+        return new BulkOrderResponse(applied, results.length - applied, Arrays.asList(results));
+    }
+
+    // Gives back the drivers reserved for the given ASSIGN_DRIVER operations
+    private void releaseReservations(List<BulkOrderRequest.Operation> operations, Collection<Integer> indexes) {
+        for (int i : indexes) {
+            BulkOrderRequest.Operation operation = operations.get(i);
+            if (operation.getType() == BulkOrderRequest.Operation.OperationType.ASSIGN_DRIVER) {
+                driverReservations.release(operation.getDriver().getDriverId(), operation.getOrderId());
+            }
+        }
+    }
+
+    private static String validate(BulkOrderRequest.Operation operation) {
+        if (operation.getOrderId() == null || operation.getOrderId().isBlank()) {
+            return "orderId is required";
+        }
+        if (operation.getType() == null) {
+            return "type is required";
+        }
+        if (operation.getType() == BulkOrderRequest.Operation.OperationType.UPDATE_STATUS
+                && (operation.getStatus() == null || operation.getStatus().isBlank())) {
+            return "status is required for UPDATE_STATUS";
+        }
+        if (operation.getType() == BulkOrderRequest.Operation.OperationType.ASSIGN_DRIVER
+                && (operation.getDriver() == null || operation.getDriver().getDriverId() == null)) {
+            return "driver.driverId is required for ASSIGN_DRIVER";
+        }
+        return null;
+    }
+
+    private static OrderEventType eventType(BulkOrderRequest.Operation.OperationType type) {
+        return switch (type) {
+            case UPDATE_STATUS -> OrderEventType.STATUS_CHANGED;
+            case ASSIGN_DRIVER -> OrderEventType.DRIVER_ASSIGNED;
+            case CANCEL -> OrderEventType.CANCELLED;
+        };
+    }
+
+    // Delivered and cancelled orders give their driver back
+    private void releaseDriverIfFinished(Order order) {
+        if (order.getDriverDetails() != null
+                && ("Delivered".equals(order.getOrderStatus()) || "Cancelled".equals(order.getOrderStatus()))) {
+            releaseDriver(order.getDriverDetails().getDriverId(), order.getOrderId(), order.getBatchId());
+        }
+    }
+
+    // A driver reserved for a batch stays reserved until none of the batch's orders are still theirs to deliver
+    private void releaseDriver(String driverId, String orderId, String batchId) {
+        if (batchId == null) {
+            driverReservations.release(driverId, orderId);
+            return;
+        }
+        boolean outstanding = mongoTemplate.exists(new Query(Criteria.where("batchId").is(batchId)
+                .and("driverDetails.driverId").is(driverId)
+                .and("orderStatus").nin("Delivered", "Cancelled")), Order.class);
+        if (!outstanding) {
+            driverReservations.release(driverId, batchId);
+        }
+    }
+
+    private static Criteria cancelCriteria(String orderId) {
+        return Criteria.where("orderId").is(orderId).and("orderStatus").in("Pending", "Scheduled");
+    }
+
+    private static Criteria assignDriverCriteria(String orderId) {
+        return Criteria.where("orderId").is(orderId).and("orderStatus").ne("Cancelled");
+    }
+
+    private static Update statusUpdate(String status) {
+        return new Update().set("orderStatus", status).set("updatedAt", new Date()).inc("revision", 1);
+    }
+
+    private static Update assignDriverUpdate(AssignDriverRequest request) {
+        return new Update()
+                .set("driverDetails", new Order.DriverDetails(
+                        request.getDriverId(),
+                        request.getDriverName(),
+                        request.getVehicleNumber()
+                ))
+                .set("orderStatus", "Out for Delivery")
+                .set("updatedAt", new Date())
+                .inc("revision", 1);
+    }
+
+    /**
+     * Applies the update to the order matching the filter in a single round trip and returns the post-image,
+     * or null when nothing matched. The outbox event is written in the same transaction.
+     */
+    private Order findAndModify(Criteria criteria, UpdateDefinition update, OrderEventType eventType) {
+        Order order = transactionTemplate.execute(status -> {
+            Order modified = mongoTemplate.findAndModify(new Query(criteria), update,
+                    FindAndModifyOptions.options().returnNew(true), Order.class);
+            if (modified != null) {
+                orderOutbox.append(modified, eventType);
+            }
+            return modified;
+        });
+        // After commit, so a reload can't pick up the pre-write state
+        if (order != null) {
+            historyCache.invalidate(order.getCustomerId());
+        }
+        return order;
+    }
+
+    // Only reached on the failure path, so the extra lookup never costs the happy path a round trip
+    private RuntimeException orderNotFoundOr(String orderId, String preconditionMessage) {
+        if (!mongoTemplate.exists(new Query(Criteria.where("orderId").is(orderId)), Order.class)) {
+            return new RuntimeException("Order not found");
+        }
+        return new RuntimeException(preconditionMessage);
     }
 }
\ No newline at end of file
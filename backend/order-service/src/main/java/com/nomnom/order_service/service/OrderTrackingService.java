@@ -0,0 +1,271 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.dto.OrderDTO;
+import com.nomnom.order_service.dto.OrderStatusEventDTO;
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.event.OrderEventFeed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live order tracking over Server-Sent Events. Idle connections cost no thread: each subscriber has a small
+ * bounded buffer, and a virtual thread is started only while there is something to write. A subscriber whose
+ * buffer fills up is too slow to keep up and is disconnected; EventSource clients simply reconnect.
+ */
+@Service
+public class OrderTrackingService {
+
+    private static final OrderStatusEventDTO HEARTBEAT = new OrderStatusEventDTO();
+
+    private final IOrderService orderService;
+    private final long emitterTimeoutMs;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Map<String, Set<Subscriber>> subscribersByTopic = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter evictions;
+
+    public OrderTrackingService(IOrderService orderService,
+                                OrderEventFeed orderEventFeed,
+                                MeterRegistry meterRegistry,
+                                @Value("${order.tracking.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                                @Value("${order.tracking.buffer-size:32}") int bufferSize,
+                                @Value("${order.tracking.max-subscribers:50000}") int maxSubscribers) {
+        this.orderService = orderService;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.evictions = meterRegistry.counter("order.tracking.evictions");
+        meterRegistry.gauge("order.tracking.subscribers", subscriberCount);
+        orderEventFeed.subscribe(this::onOrderEvent);
+    }
+
+    public SseEmitter trackOrder(String orderId) {
+        // Subscribe before loading, so a change committed in between is held rather than missed. The snapshot
+        // then goes out first, and held or later events it already reflects are dropped by revision.
+        Subscriber subscriber = subscribe(orderTopic(orderId), true);
+        OrderDTO order;
+        try {
+            order = orderService.getOrderById(orderId);
+        } catch (RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+        subscriber.startFrom(new OrderStatusEventDTO(order.getOrderId(), order.getCustomerId(),
+                order.getRestaurantId(), "SNAPSHOT", order.getOrderStatus(), order.getTotalAmount(),
+                order.getDriverDetails() != null ? order.getDriverDetails().getDriverId() : null,
+                order.getRevision(), order.getUpdatedAt()));
+        return subscriber.emitter;
+    }
+
+    public SseEmitter trackCustomer(String customerId) {
+        return subscribe(customerTopic(customerId), false).emitter;
+    }
+
+    public SseEmitter trackRestaurant(String restaurantId) {
+        return subscribe(restaurantTopic(restaurantId), false).emitter;
+    }
+
+    private Subscriber subscribe(String topic, boolean awaitSnapshot) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new RuntimeException("Too many live tracking connections, try again later");
+        }
+        Subscriber subscriber = new Subscriber(topic, new SseEmitter(emitterTimeoutMs), awaitSnapshot);
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(error -> subscriber.close());
+        subscribersByTopic.compute(topic, (key, subscribers) -> {
+            Set<Subscriber> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        return subscriber;
+    }
+
+    void onOrderEvent(OrderEvent event) {
+        OrderStatusEventDTO update = new OrderStatusEventDTO(event.getOrderId(), event.getCustomerId(),
+                event.getRestaurantId(), event.getType().name(), event.getOrderStatus(), event.getTotalAmount(),
+                event.getDriverId(), event.getRevision(), event.getOccurredAt());
+        publish(orderTopic(event.getOrderId()), update);
+        publish(customerTopic(event.getCustomerId()), update);
+        publish(restaurantTopic(event.getRestaurantId()), update);
+    }
+
+    private void publish(String topic, OrderStatusEventDTO update) {
+        Set<Subscriber> subscribers = subscribersByTopic.get(topic);
+        if (subscribers != null) {
+            subscribers.forEach(subscriber -> subscriber.enqueue(update));
+        }
+    }
+
+    // Keeps proxies from cutting idle streams and surfaces dead connections as write errors
+    @Scheduled(fixedDelayString = "${order.tracking.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribersByTopic.values().forEach(subscribers -> subscribers.forEach(subscriber -> {
+            if (subscriber.buffer.isEmpty()) {
+                subscriber.enqueue(HEARTBEAT);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribersByTopic.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        writers.shutdownNow();
+    }
+
+    private static String orderTopic(String orderId) {
+        return "order:" + orderId;
+    }
+
+    private static String customerTopic(String customerId) {
+        return "customer:" + customerId;
+    }
+
+    private static String restaurantTopic(String restaurantId) {
+        return "restaurant:" + restaurantId;
+    }
+
+    private final class Subscriber {
+        private final String topic;
+        private final SseEmitter emitter;
+        private final BlockingQueue<OrderStatusEventDTO> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final boolean ordered; // single-order stream: the snapshot first, then only newer revisions
+        // Guarded by this: events held until the snapshot is sent, and the newest revision sent so far
+        private List<OrderStatusEventDTO> held;
+        private long sentRevision = -1;
+
+        private Subscriber(String topic, SseEmitter emitter, boolean awaitSnapshot) {
+            this.topic = topic;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+            this.ordered = awaitSnapshot;
+            this.held = awaitSnapshot ? new ArrayList<>() : null;
+        }
+
+        void enqueue(OrderStatusEventDTO update) {
+            if (closed.get()) {
+                return;
+            }
+            if (!ordered || update == HEARTBEAT) {
+                offer(update);
+                return;
+            }
+            synchronized (this) {
+                if (held != null) {
+                    if (held.size() == bufferSize) {
+                        evict();
+                    } else {
+                        held.add(update);
+                    }
+                    return;
+                }
+                offerInOrder(update);
+            }
+        }
+
+        synchronized void startFrom(OrderStatusEventDTO snapshot) {
+            List<OrderStatusEventDTO> waiting = held;
+            held = null;
+            if (closed.get() || !offer(snapshot)) {
+                return;
+            }
+            sentRevision = snapshot.getRevision();
+            waiting.sort(Comparator.comparingLong(OrderStatusEventDTO::getRevision));
+            for (OrderStatusEventDTO update : waiting) {
+                if (!offerInOrder(update)) {
+                    return;
+                }
+            }
+        }
+
+        // Caller holds this. Drops an update the client has already seen, e.g. one the snapshot reflects.
+        private boolean offerInOrder(OrderStatusEventDTO update) {
+            if (update.getRevision() <= sentRevision) {
+                return true;
+            }
+            if (!offer(update)) {
+                return false;
+            }
+            sentRevision = update.getRevision();
+            return true;
+        }
+
+        private boolean offer(OrderStatusEventDTO update) {
+            if (!buffer.offer(update)) {
+                evict();
+                return false;
+            }
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+            return true;
+        }
+
+        private void evict() {
+            evictions.increment();
+            emitter.complete();
+            close();
+        }
+
+        private void drain() {
+            try {
+                OrderStatusEventDTO next;
+                while ((next = buffer.poll()) != null) {
+                    if (next == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        emitter.send(SseEmitter.event()
+                                .id(next.getOrderId() + ":" + next.getRevision())
+                                .name(next.getType())
+                                .data(next, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away (or the emitter already completed)
+                close();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // Something may have been enqueued after the last poll but before the flag was cleared
+            if (!buffer.isEmpty() && draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscriberCount.decrementAndGet();
+                subscribersByTopic.computeIfPresent(topic, (key, subscribers) -> {
+                    subscribers.remove(this);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.nomnom.order_service.service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded, time-expiring cache whose values are loaded on a miss. Concurrent misses for the same key share one load,
+ * and a failed load is not remembered, so the next caller tries again. Entries all have the same TTL, so insertion
+ * order is expiry order and eviction only ever looks at the head of the queue: it drops entries from there while
+ * they are expired or the cache is over its entry count or total weight. A value is weighed once its load completes.
+ */
+final class SingleFlightCache<K, V> {
+
+    interface Listener {
+        default void onHit() {
+        }
+
+        default void onMiss() {
+        }
+
+        default void onEviction() {
+        }
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final Listener listener;
+    private final Map<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<K, V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    SingleFlightCache(long ttlMillis, int maxEntries) {
+        this(ttlMillis, maxEntries, Long.MAX_VALUE, value -> 0, NO_LISTENER);
+    }
+
+    SingleFlightCache(long ttlMillis, int maxEntries, long maxWeight, ToLongFunction<V> weigher, Listener listener) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.listener = listener;
+    }
+
+    V get(K key, Supplier<V> loader) {
+        Entry<K, V> mine = new Entry<>(key, System.currentTimeMillis() + ttlMillis);
+        while (true) {
+            Entry<K, V> existing = entries.putIfAbsent(key, mine);
+            if (existing == null) {
+                break;
+            }
+            if (existing.isExpired(System.currentTimeMillis())) {
+                if (discard(existing)) {
+                    listener.onEviction();
+                }
+                continue;
+            }
+            listener.onHit();
+            return await(existing.value);
+        }
+        listener.onMiss();
+        insertionOrder.add(mine);
+        evict();
+
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            discard(mine);
+            mine.value.completeExceptionally(e);
+            throw e;
+        }
+        mine.value.complete(value);
+        charge(mine, weigher.applyAsLong(value));
+        // The new value's weight may have pushed the cache over its limit
+        evict();
+        return value;
+    }
+
+    void invalidate(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry != null) {
+            discard(entry);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long weight() {
+        return totalWeight.get();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Entry<K, V> head;
+        while ((head = insertionOrder.peek()) != null
+                && (head.isExpired(now) || entries.size() > maxEntries || totalWeight.get() > maxWeight)) {
+            if (insertionOrder.remove(head) && discard(head)) {
+                listener.onEviction();
+            }
+        }
+    }
+
+    // Whoever removes an entry from the map gives back its weight, whether or not its load has finished yet
+    private boolean discard(Entry<K, V> entry) {
+        if (!entries.remove(entry.key, entry)) {
+            return false;
+        }
+        synchronized (entry) {
+            entry.discarded = true;
+            totalWeight.addAndGet(-entry.weight);
+        }
+        return true;
+    }
+
+    private void charge(Entry<K, V> entry, long weight) {
+        synchronized (entry) {
+            if (!entry.discarded) {
+                entry.weight = weight;
+                totalWeight.addAndGet(weight);
+            }
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<K, V> {
+        private final K key;
+        private final CompletableFuture<V> value = new CompletableFuture<>();
+        private final long expiresAt;
+        private long weight;       // guarded by this
+        private boolean discarded; // guarded by this
+
+        private Entry(K key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
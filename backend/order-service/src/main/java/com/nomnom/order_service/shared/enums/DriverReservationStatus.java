@@ -0,0 +1,5 @@
+package com.nomnom.order_service.shared.enums;
+
+public enum DriverReservationStatus {
+    AVAILABLE, RESERVED, ON_DELIVERY
+}
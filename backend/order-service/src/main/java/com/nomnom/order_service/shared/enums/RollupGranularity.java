@@ -0,0 +1,19 @@
+package com.nomnom.order_service.shared.enums;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public Instant bucketStart(Instant instant, ZoneId zone) {
+        return instant.atZone(zone).truncatedTo(unit).toInstant();
+    }
+}
@@ -0,0 +1,38 @@
+package com.nomnom.order_service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base class for tests that need a real MongoDB. The container runs as a single-node replica set, so
+ * transactions work, and subclasses are skipped when Docker isn't available. Each subclass uses its own database
+ * through {@link #templateFor(String)}.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class MongoIntegrationTest {
+
+    @Container
+    protected static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    protected static MongoClient client;
+
+    @BeforeAll
+    static void openClient() {
+        client = MongoClients.create(mongo.getReplicaSetUrl());
+    }
+
+    @AfterAll
+    static void closeClient() {
+        client.close();
+    }
+
+    protected static MongoTemplate templateFor(String database) {
+        return new MongoTemplate(client, database);
+    }
+}
@@ -0,0 +1,110 @@
+package com.nomnom.order_service.client;
+
+import com.nomnom.order_service.config.AppConfig;
+import com.nomnom.order_service.dto.CartDTO;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CartClientTest {
+
+    private static final String CART_JSON = """
+            {"id":"c1","customerId":"cust-1","restaurantId":"rest-1","totalPrice":20.0,
+             "items":[{"itemId":"i1","itemName":"Pizza","quantity":2,"potionSize":"Large","price":10.0,"totalPrice":20.0}]}
+            """;
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile int failuresBeforeSuccess;
+    private volatile long responseDelayMs;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void startStubCartServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/cart", exchange -> {
+            int hit = hits.incrementAndGet();
+            try {
+                Thread.sleep(responseDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = hit <= failuresBeforeSuccess
+                    ? "{}".getBytes(StandardCharsets.UTF_8)
+                    : CART_JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(hit <= failuresBeforeSuccess ? 503 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void stopStubCartServer() {
+        server.stop(0);
+    }
+
+    private CartClient client(int maxAttempts, CircuitBreaker circuitBreaker) {
+        RestTemplate restTemplate = new RestTemplate(AppConfig.pooledRequestFactory(4, 200, 300));
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/cart";
+        return new CartClient(restTemplate, url, circuitBreaker, new RetryBudget(0.2, 10), maxAttempts, meterRegistry);
+    }
+
+    @Test
+    void fetchesCartFromCartService() {
+        CartDTO cart = client(2, new CircuitBreaker(5, 10_000)).getCart("cust-1", "rest-1");
+
+        assertThat(cart.getItems()).hasSize(1);
+        assertThat(cart.getItems().get(0).getItemName()).isEqualTo("Pizza");
+        assertThat(meterRegistry.get("cart.client.requests").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesTransientServerErrorWithinBudget() {
+        failuresBeforeSuccess = 1;
+
+        CartDTO cart = client(2, new CircuitBreaker(5, 10_000)).getCart("cust-1", "rest-1");
+
+        assertThat(cart.getCustomerId()).isEqualTo("cust-1");
+        assertThat(hits.get()).isEqualTo(2);
+        assertThat(meterRegistry.get("cart.client.retries").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void enforcesReadDeadline() {
+        responseDelayMs = 1_000;
+
+        assertThatThrownBy(() -> client(1, new CircuitBreaker(5, 10_000)).getCart("cust-1", "rest-1"))
+                .isInstanceOf(CartServiceException.class);
+    }
+
+    @Test
+    void opensCircuitAndStopsCallingAfterRepeatedFailures() {
+        failuresBeforeSuccess = Integer.MAX_VALUE;
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, 60_000);
+        CartClient client = client(1, circuitBreaker);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> client.getCart("cust-1", "rest-1")).isInstanceOf(CartServiceException.class);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> client.getCart("cust-1", "rest-1")).isInstanceOf(CartServiceException.class);
+        assertThat(hits.get()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,56 @@
+package com.nomnom.order_service.dispatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One dispatch tick at city scale: 50k drivers, 5k waiting orders. Run with {@code mvn test -Dbenchmark=true
+ * -Dtest=DispatchBenchmarkTest}; prints the median of several ticks after warm-up.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DispatchBenchmarkTest {
+
+    private static final int DRIVERS = 50_000;
+    private static final int ORDERS = 5_000;
+
+    @Test
+    void planTickWith50kDriversAnd5kOrders() {
+        Random random = new Random(42);
+        // Roughly a 40 x 40 km metro area
+        DriverLocationIndex index = new DriverLocationIndex();
+        String[] vehicleTypes = {"bike", "car", "van"};
+        for (int i = 0; i < DRIVERS; i++) {
+            index.upsert("d" + i, "Driver " + i, "V-" + i, vehicleTypes[i % vehicleTypes.length],
+                    6.75 + random.nextDouble() * 0.36, 79.80 + random.nextDouble() * 0.36, true);
+        }
+        List<DispatchPlanner.Pickup> pickups = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            pickups.add(new DispatchPlanner.Pickup("o" + i,
+                    6.75 + random.nextDouble() * 0.36, 79.80 + random.nextDouble() * 0.36, List.of("bike", "car")));
+        }
+        DispatchPlanner planner = new DispatchPlanner(index, 8, 10, 20);
+
+        for (int warmUp = 0; warmUp < 5; warmUp++) {
+            planner.plan(pickups);
+        }
+        long[] nanos = new long[9];
+        int assigned = 0;
+        for (int run = 0; run < nanos.length; run++) {
+            long start = System.nanoTime();
+            assigned = planner.plan(pickups).size();
+            nanos[run] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("dispatch tick: %d drivers, %d orders -> %d assigned, median %.1f ms%n",
+                DRIVERS, ORDERS, assigned, nanos[nanos.length / 2] / 1e6);
+
+        assertThat(assigned).isEqualTo(ORDERS);
+    }
+}
@@ -0,0 +1,40 @@
+package com.nomnom.order_service.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DispatchSolverTest {
+
+    private static DriverCandidate driver(String id, double distanceKm) {
+        return new DriverCandidate(id, id, id, "car", distanceKm);
+    }
+
+    @Test
+    void minimisesTotalDistanceWhereGreedyWouldNot() {
+        // Greedy in arrival order gives "a" to order 0 (1 km) and leaves order 1 with "b" at 9 km: 10 km total.
+        // Jointly, order 0 takes "b" (2 km) and order 1 takes "a" (1.5 km): 3.5 km.
+        List<List<DriverCandidate>> candidates = List.of(
+                List.of(driver("a", 1.0), driver("b", 2.0)),
+                List.of(driver("a", 1.5), driver("b", 9.0)));
+
+        int[] chosen = DispatchSolver.solve(candidates, 20, 0.01);
+
+        assertThat(candidates.get(0).get(chosen[0]).driverId()).isEqualTo("b");
+        assertThat(candidates.get(1).get(chosen[1]).driverId()).isEqualTo("a");
+    }
+
+    @Test
+    void leavesOrdersUnassignedWhenDriversRunOut() {
+        List<List<DriverCandidate>> candidates = List.of(
+                List.of(driver("a", 1.0)),
+                List.of(driver("a", 2.0)),
+                List.of());
+
+        int[] chosen = DispatchSolver.solve(candidates, 20, 0.01);
+
+        assertThat(chosen).containsExactly(0, -1, -1);
+    }
+}
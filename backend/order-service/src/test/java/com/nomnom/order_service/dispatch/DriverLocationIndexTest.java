@@ -0,0 +1,72 @@
+package com.nomnom.order_service.dispatch;
+
+import com.nomnom.order_service.geo.GeoMath;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DriverLocationIndexTest {
+
+    @Test
+    void nearestMatchesBruteForce() {
+        DriverLocationIndex index = new DriverLocationIndex();
+        Random random = new Random(7);
+        double[][] positions = new double[2000][];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new double[]{6.90 + random.nextDouble() * 0.2, 79.85 + random.nextDouble() * 0.2};
+            index.upsert("d" + i, "Driver " + i, "CAB-" + i, "car", positions[i][0], positions[i][1], true);
+        }
+
+        for (int query = 0; query < 50; query++) {
+            double latitude = 6.90 + random.nextDouble() * 0.2;
+            double longitude = 79.85 + random.nextDouble() * 0.2;
+            List<String> expected = IntStream.range(0, positions.length).boxed()
+                    .sorted(Comparator.comparingDouble(i -> GeoMath.distanceKm(latitude, longitude, positions[i][0], positions[i][1])))
+                    .limit(5)
+                    .map(i -> "d" + i)
+                    .toList();
+            assertThat(index.nearest(latitude, longitude, List.of(), 5, 50))
+                    .extracting(DriverCandidate::driverId)
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void onlyReturnsAvailableDriversOfTheRequestedVehicleTypes() {
+        DriverLocationIndex index = new DriverLocationIndex();
+        index.upsert("car", "A", "1", "car", 6.9000, 79.8600, true);
+        index.upsert("bike", "B", "2", "bike", 6.9001, 79.8601, true);
+        index.upsert("busy-bike", "C", "3", "bike", 6.9000, 79.8600, false);
+        index.upsert("far-bike", "D", "4", "bike", 7.5000, 80.5000, true);
+
+        assertThat(index.nearest(6.9, 79.86, Set.of("bike"), 5, 10))
+                .extracting(DriverCandidate::driverId)
+                .containsExactly("bike");
+
+        index.setAvailable("bike", false);
+        index.setAvailable("busy-bike", true);
+        assertThat(index.nearest(6.9, 79.86, Set.of("bike"), 5, 10))
+                .extracting(DriverCandidate::driverId)
+                .containsExactly("busy-bike");
+    }
+
+    @Test
+    void locationPingsMoveDriversAndOutliveAStaleSync() {
+        DriverLocationIndex index = new DriverLocationIndex();
+        index.upsert("d1", "A", "1", "car", 6.90, 79.86, true);
+        assertThat(index.updateLocation("d1", 7.20, 79.90)).isTrue();
+        assertThat(index.updateLocation("unknown", 7.20, 79.90)).isFalse();
+
+        // The next sync still carries the old stored location
+        index.upsert("d1", "A", "1", "car", 6.90, 79.86, true);
+
+        assertThat(index.nearest(6.90, 79.86, List.of(), 1, 5)).isEmpty();
+        assertThat(index.nearest(7.20, 79.90, List.of(), 1, 5)).extracting(DriverCandidate::driverId).containsExactly("d1");
+    }
+}
@@ -0,0 +1,106 @@
+package com.nomnom.order_service.dispatch;
+
+import com.nomnom.order_service.MongoIntegrationTest;
+import com.nomnom.order_service.model.DriverReservation;
+import com.nomnom.order_service.shared.enums.DriverReservationStatus;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DriverReservationsTest extends MongoIntegrationTest {
+
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        mongoTemplate = templateFor("driver_reservations_test");
+    }
+
+    @BeforeEach
+    void reset() {
+        mongoTemplate.dropCollection(DriverReservation.class);
+    }
+
+    @Test
+    void concurrentReservationsOfOneDriverHaveExactlyOneWinner() throws Exception {
+        // Two instances stand in for two order-service JVMs sharing the database
+        List<DriverReservations> instances = List.of(
+                new DriverReservations(mongoTemplate, 60_000), new DriverReservations(mongoTemplate, 60_000));
+
+        for (int round = 0; round < 20; round++) {
+            String driverId = "driver-" + round;
+            int threads = 32;
+            CountDownLatch start = new CountDownLatch(1);
+            Set<String> winners = ConcurrentHashMap.newKeySet();
+            try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+                List<Future<?>> attempts = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    DriverReservations reservations = instances.get(t % 2);
+                    String orderId = "order-" + t;
+                    attempts.add(pool.submit(() -> {
+                        start.await();
+                        if (reservations.reserve(driverId, orderId)) {
+                            winners.add(orderId);
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> attempt : attempts) {
+                    attempt.get();
+                }
+            }
+
+            assertThat(winners).hasSize(1);
+            DriverReservation stored = mongoTemplate.findById(driverId, DriverReservation.class);
+            assertThat(stored.getStatus()).isEqualTo(DriverReservationStatus.RESERVED);
+            assertThat(stored.getOrderId()).isEqualTo(winners.iterator().next());
+        }
+    }
+
+    @Test
+    void releasedDriverCanBeReservedAgainButNotWhileOnDelivery() {
+        DriverReservations reservations = new DriverReservations(mongoTemplate, 60_000);
+
+        assertThat(reservations.reserve("d1", "o1")).isTrue();
+        assertThat(reservations.reserve("d1", "o1")).isTrue();
+        assertThat(reservations.reserve("d1", "o2")).isFalse();
+
+        assertThat(reservations.startDelivery("d1", "o1")).isTrue();
+        assertThat(reservations.reserve("d1", "o1")).isFalse();
+        // Releasing on behalf of another order is a no-op
+        assertThat(reservations.release("d1", "o2")).isFalse();
+        assertThat(reservations.findBusyDriverIds()).containsExactly("d1");
+
+        assertThat(reservations.release("d1", "o1")).isTrue();
+        assertThat(reservations.findBusyDriverIds()).isEmpty();
+        assertThat(reservations.reserve("d1", "o2")).isTrue();
+    }
+
+    @Test
+    void expiredLeaseIsReleasedOnceAndCannotBePickedUp() throws InterruptedException {
+        DriverReservations reservations = new DriverReservations(mongoTemplate, 1);
+        assertThat(reservations.reserve("d1", "o1")).isTrue();
+        Thread.sleep(20);
+
+        List<DriverReservation> expired = reservations.findExpired(10);
+        assertThat(expired).extracting(DriverReservation::getDriverId).containsExactly("d1");
+        assertThat(reservations.expire(expired.get(0))).isTrue();
+        assertThat(reservations.expire(expired.get(0))).isFalse();
+
+        assertThat(reservations.startDelivery("d1", "o1")).isFalse();
+        assertThat(reservations.reserve("d1", "o2")).isTrue();
+    }
+}
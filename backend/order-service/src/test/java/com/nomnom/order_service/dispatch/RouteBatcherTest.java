@@ -0,0 +1,121 @@
+package com.nomnom.order_service.dispatch;
+
+import com.nomnom.order_service.geo.GeoMath;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteBatcherTest {
+
+    private static final long MINUTE = 60_000;
+
+    // 300 m pickup radius, 10 minute window, drops within 3 km, up to 3 orders, 50 ms to solve
+    private final RouteBatcher batcher = new RouteBatcher(0.3, 10 * MINUTE, 3, 3, 50_000_000);
+
+    private static RouteBatcher.BatchOrder order(String orderId, double pickupLatitude, double dropLatitude, long createdAt) {
+        return new RouteBatcher.BatchOrder(orderId, pickupLatitude, 79.86, dropLatitude, 79.87, createdAt);
+    }
+
+    @Test
+    void batchesCompatibleOrdersAndLeavesTheRestAlone() {
+        List<RouteBatcher.DeliveryBatch> batches = batcher.batch(List.of(
+                order("a", 6.900, 6.920, 0),
+                order("b", 6.901, 6.910, 2 * MINUTE),    // next door, placed shortly after
+                order("c", 6.950, 6.920, MINUTE),        // restaurant 5 km away
+                order("d", 6.900, 6.915, 30 * MINUTE),   // same restaurant, but outside the window
+                order("e", 6.900, 7.100, 3 * MINUTE)));  // same restaurant, drop 20 km away
+
+        assertThat(batches).extracting(RouteBatcher.DeliveryBatch::pickupSequence)
+                .containsExactly(List.of("a", "b"), List.of("c"), List.of("e"), List.of("d"));
+        // The nearer drop-off comes first
+        assertThat(batches.get(0).dropSequence()).containsExactly("b", "a");
+    }
+
+    @Test
+    void oldestOrdersSeedBatchesUpToTheSizeLimit() {
+        List<RouteBatcher.DeliveryBatch> batches = batcher.batch(List.of(
+                order("o5", 6.900, 6.910, 5 * MINUTE),
+                order("o1", 6.900, 6.910, MINUTE),
+                order("o3", 6.900, 6.910, 3 * MINUTE),
+                order("o4", 6.900, 6.910, 4 * MINUTE),
+                order("o2", 6.900, 6.910, 2 * MINUTE)));
+
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(0).pickupSequence()).startsWith("o1").hasSize(3);
+        assertThat(batches.get(1).pickupSequence()).hasSize(2);
+    }
+
+    @Test
+    void everyMemberIsCompatibleWithEveryOtherNotJustTheSeed() {
+        // Both drops are within 3 km of the seed's, but almost 5 km from each other
+        List<RouteBatcher.DeliveryBatch> batches = batcher.batch(List.of(
+                order("seed", 6.900, 6.920, 0),
+                order("north", 6.900, 6.9425, MINUTE),
+                order("south", 6.900, 6.8985, 2 * MINUTE)));
+
+        assertThat(batches).extracting(RouteBatcher.DeliveryBatch::pickupSequence)
+                .containsExactly(List.of("seed", "south"), List.of("north"));
+    }
+
+    @Test
+    void dropsAlongARoadAreVisitedInOrder() {
+        RouteBatcher.DeliveryBatch batch = batcher.route(List.of(
+                order("far", 6.900, 6.930, 0),
+                order("near", 6.900, 6.910, 0),
+                order("middle", 6.900, 6.920, 0)));
+
+        assertThat(batch.dropSequence()).containsExactly("near", "middle", "far");
+    }
+
+    @Test
+    void solvedRouteIsAPermutationNoLongerThanNearestNeighbourAndTwoOptOptimal() {
+        Random random = new Random(7);
+        for (int run = 0; run < 50; run++) {
+            int stops = 2 + random.nextInt(30);
+            double[] latitudes = new double[stops + 1];
+            double[] longitudes = new double[stops + 1];
+            for (int i = 0; i <= stops; i++) {
+                latitudes[i] = 6.90 + random.nextDouble() * 0.05;
+                longitudes[i] = 79.85 + random.nextDouble() * 0.05;
+            }
+
+            int[] nearestNeighbour = RouteSolver.solve(latitudes, longitudes, 0);
+            int[] solved = RouteSolver.solve(latitudes, longitudes, 1_000_000_000);
+
+            assertThat(Arrays.stream(solved).sorted().toArray()).isEqualTo(IntStream.rangeClosed(1, stops).toArray());
+            assertThat(Arrays.stream(nearestNeighbour).sorted().toArray()).isEqualTo(IntStream.rangeClosed(1, stops).toArray());
+            assertThat(length(solved, latitudes, longitudes)).isLessThanOrEqualTo(length(nearestNeighbour, latitudes, longitudes) + 1e-9);
+            assertNoImprovingTwoOptMove(solved, latitudes, longitudes);
+        }
+    }
+
+    private static void assertNoImprovingTwoOptMove(int[] stops, double[] latitudes, double[] longitudes) {
+        double best = length(stops, latitudes, longitudes);
+        for (int i = 0; i < stops.length; i++) {
+            for (int j = i + 1; j < stops.length; j++) {
+                int[] moved = stops.clone();
+                for (int a = i, b = j; a < b; a++, b--) {
+                    int swap = moved[a];
+                    moved[a] = moved[b];
+                    moved[b] = swap;
+                }
+                assertThat(length(moved, latitudes, longitudes)).isGreaterThanOrEqualTo(best - 1e-6);
+            }
+        }
+    }
+
+    static double length(int[] stops, double[] latitudes, double[] longitudes) {
+        double km = 0;
+        int previous = 0;
+        for (int stop : stops) {
+            km += GeoMath.distanceKm(latitudes[previous], longitudes[previous], latitudes[stop], longitudes[stop]);
+            previous = stop;
+        }
+        return km;
+    }
+}
@@ -0,0 +1,54 @@
+package com.nomnom.order_service.dispatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Route solve time against batch size, and how much 2-opt saves over the nearest-neighbour tour it starts from.
+ * Run with {@code mvn test -Dbenchmark=true -Dtest=RouteBatchingBenchmarkTest}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RouteBatchingBenchmarkTest {
+
+    private static final int[] BATCH_SIZES = {2, 3, 5, 8, 12, 20, 50, 100};
+    private static final int INSTANCES = 200;
+    private static final long BUDGET_NANOS = 50_000_000;
+
+    @Test
+    void solveTimeBySize() {
+        Random random = new Random(42);
+        for (int size : BATCH_SIZES) {
+            long[] nanos = new long[INSTANCES];
+            double nearestNeighbourKm = 0;
+            double solvedKm = 0;
+            for (int run = -50; run < INSTANCES; run++) {
+                double[] latitudes = new double[size + 1];
+                double[] longitudes = new double[size + 1];
+                // Drop-offs within ~5 km of the restaurant
+                for (int i = 0; i <= size; i++) {
+                    latitudes[i] = 6.90 + random.nextDouble() * 0.09;
+                    longitudes[i] = 79.85 + random.nextDouble() * 0.09;
+                }
+                long start = System.nanoTime();
+                int[] solved = RouteSolver.solve(latitudes, longitudes, BUDGET_NANOS);
+                long elapsed = System.nanoTime() - start;
+                if (run >= 0) {
+                    nanos[run] = elapsed;
+                    solvedKm += RouteBatcherTest.length(solved, latitudes, longitudes);
+                    nearestNeighbourKm += RouteBatcherTest.length(RouteSolver.solve(latitudes, longitudes, 0), latitudes, longitudes);
+                }
+            }
+            Arrays.sort(nanos);
+            System.out.printf("route of %3d drops: median %8.1f us, p99 %8.1f us, 2-opt saves %4.1f%% over nearest-neighbour%n",
+                    size, nanos[INSTANCES / 2] / 1e3, nanos[INSTANCES * 99 / 100] / 1e3,
+                    100 * (1 - solvedKm / nearestNeighbourKm));
+
+            assertThat(solvedKm).isLessThanOrEqualTo(nearestNeighbourKm + 1e-6);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.nomnom.order_service.event;
+
+import com.nomnom.order_service.MongoIntegrationTest;
+import com.nomnom.order_service.model.Order;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderOutboxRelayTest extends MongoIntegrationTest {
+
+    private static MongoTemplate mongoTemplate;
+
+    private final InProcessOrderEventSink inProcessSink = new InProcessOrderEventSink();
+    private final List<OrderEvent> received = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() {
+        mongoTemplate = templateFor("order_outbox_test");
+    }
+
+    @BeforeEach
+    void reset() {
+        mongoTemplate.dropCollection(OrderEvent.class);
+        mongoTemplate.dropCollection("order_outbox_lease");
+        inProcessSink.subscribe(received::add);
+    }
+
+    private static Order order(String orderId, long revision, String status) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setRestaurantId("rest-1");
+        order.setOrderStatus(status);
+        order.setRevision(revision);
+        order.setCreatedAt(new Date());
+        return order;
+    }
+
+    @Test
+    void publishesPendingEventsInOrderAndMarksThemPublished() {
+        OrderOutbox outbox = new OrderOutbox(mongoTemplate);
+        outbox.append(order("o1", 1, "Pending"), OrderEventType.CREATED);
+        outbox.append(order("o2", 1, "Pending"), OrderEventType.CREATED);
+        outbox.append(order("o1", 2, "Preparing"), OrderEventType.STATUS_CHANGED);
+
+        OrderOutboxRelay relay = new OrderOutboxRelay(mongoTemplate, List.of(inProcessSink), 100, 10_000);
+        assertThat(relay.relayBatch()).isEqualTo(3);
+
+        assertThat(received).extracting(OrderEvent::getOrderId, OrderEvent::getRevision)
+                .containsExactly(
+                        tuple("o1", 1L),
+                        tuple("o2", 1L),
+                        tuple("o1", 2L));
+        assertThat(mongoTemplate.count(new Query(Criteria.where("publishedAt").is(null)), OrderEvent.class)).isZero();
+        assertThat(relay.relayBatch()).isZero();
+    }
+
+    private static OrderEvent event(String orderId, long revision, long occurredAt) {
+        return new OrderEvent(null, orderId, revision, OrderEventType.STATUS_CHANGED, "cust-1", "rest-1", "Preparing",
+                20.0, 5.0, 25.0, null, null, null, null, new Date(0), new Date(occurredAt), null);
+    }
+
+    @Test
+    void laterRevisionStampedByASkewedClockWaitsForItsPredecessor() {
+        // o1's revision 2 was written by an instance whose clock runs behind the one that wrote revision 1
+        mongoTemplate.insert(event("o1", 2, 1_000));
+        mongoTemplate.insert(event("o2", 1, 2_000));
+        mongoTemplate.insert(event("o1", 1, 3_000));
+
+        OrderOutboxRelay relay = new OrderOutboxRelay(mongoTemplate, List.of(inProcessSink), 2, 10_000);
+        assertThat(relay.relayBatch()).isEqualTo(3);
+
+        assertThat(received).extracting(OrderEvent::getOrderId, OrderEvent::getRevision)
+                .containsExactly(
+                        tuple("o1", 1L),
+                        tuple("o2", 1L),
+                        tuple("o1", 2L));
+    }
+
+    @Test
+    void relayStopsAtTheNextBatchOnceItsLeaseIsLost() {
+        OrderOutbox outbox = new OrderOutbox(mongoTemplate);
+        for (int revision = 1; revision <= 3; revision++) {
+            outbox.append(order("o1", revision, "Preparing"), OrderEventType.STATUS_CHANGED);
+        }
+        // Another instance takes the lease over while the first batch is being published, e.g. after a long pause
+        OrderEventSink takeover = events -> mongoTemplate.upsert(new Query(Criteria.where("_id").is("relay")),
+                new Update().set("owner", "other-instance").set("expiresAt", new Date(System.currentTimeMillis() + 60_000)),
+                "order_outbox_lease");
+        OrderOutboxRelay relay = new OrderOutboxRelay(mongoTemplate, List.of(inProcessSink, takeover), 1, 10_000);
+
+        relay.relay();
+
+        assertThat(received).extracting(OrderEvent::getRevision).containsExactly(1L);
+        assertThat(mongoTemplate.count(new Query(Criteria.where("publishedAt").is(null)), OrderEvent.class)).isEqualTo(2);
+    }
+
+    @Test
+    void redeliversBatchWhenASinkFails() {
+        new OrderOutbox(mongoTemplate).append(order("o1", 1, "Pending"), OrderEventType.CREATED);
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        OrderEventSink flakySink = events -> {
+            if (failNext.getAndSet(false)) {
+                throw new IllegalStateException("sink unavailable");
+            }
+        };
+        OrderOutboxRelay relay = new OrderOutboxRelay(mongoTemplate, List.of(inProcessSink, flakySink), 100, 10_000);
+
+        assertThatThrownBy(relay::relayBatch).isInstanceOf(IllegalStateException.class);
+        assertThat(relay.relayBatch()).isEqualTo(1);
+
+        // At-least-once: the in-process sink saw the event on both attempts
+        assertThat(received).hasSize(2).allMatch(event -> event.getOrderId().equals("o1"));
+    }
+}
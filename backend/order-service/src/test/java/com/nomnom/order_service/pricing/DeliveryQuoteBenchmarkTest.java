@@ -0,0 +1,67 @@
+package com.nomnom.order_service.pricing;
+
+import com.nomnom.order_service.dispatch.DriverLocationIndex;
+import com.nomnom.order_service.dto.GeoPointDTO;
+import com.nomnom.order_service.dto.RestaurantDTO;
+import com.nomnom.order_service.event.OrderEventFeed;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Per-quote cost of the quoteDelivery path once restaurant locations are cached: the location lookup plus the
+ * quote itself, with surge pricing on. Run with {@code mvn test -Dbenchmark=true -Dtest=DeliveryQuoteBenchmarkTest};
+ * prints the median and p99 of batches of quotes after warm-up.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DeliveryQuoteBenchmarkTest {
+
+    private static final int RESTAURANTS = 5_000;
+    private static final int BATCHES = 200;
+    private static final int QUOTES_PER_BATCH = 10_000;
+
+    @Test
+    void quoteWithCachedRestaurantLocation() {
+        Random random = new Random(42);
+        // Restaurants spread over a 40 x 40 km metro area
+        double[][] restaurants = new double[RESTAURANTS][];
+        for (int i = 0; i < RESTAURANTS; i++) {
+            restaurants[i] = new double[]{6.75 + random.nextDouble() * 0.36, 79.80 + random.nextDouble() * 0.36};
+        }
+        RestaurantLocations locations = new RestaurantLocations(restaurantId -> {
+            double[] point = restaurants[Integer.parseInt(restaurantId.substring(1))];
+            return new RestaurantDTO(restaurantId, "Restaurant", "ONLINE", true, new GeoPointDTO(point[1], point[0]));
+        }, 300_000, 3_600_000);
+        OrderEventFeed feed = new OrderEventFeed(null);
+        DeliveryQuoter quoter = new DeliveryQuoter(new PrepTimeTracker(feed, 0.2, 15),
+                new SurgePricing(feed, new DriverLocationIndex(), true, 0.05, 30_000, 10, 1.0, 0.5, 2.5, 0.3),
+                "2:2.5,5:4.0,8:5.5", 0.8, 5.0, 100, 1.3, 25, 20);
+        String[] restaurantIds = new String[RESTAURANTS];
+        for (int i = 0; i < RESTAURANTS; i++) {
+            restaurantIds[i] = "r" + i;
+        }
+
+        double checksum = 0;
+        long[] nanosPerQuote = new long[BATCHES];
+        for (int batch = -50; batch < BATCHES; batch++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < QUOTES_PER_BATCH; i++) {
+                String restaurantId = restaurantIds[random.nextInt(RESTAURANTS)];
+                checksum += quoter.quote(restaurantId, locations.location(restaurantId),
+                        6.75 + random.nextDouble() * 0.36, 79.80 + random.nextDouble() * 0.36).getDeliveryFee();
+            }
+            if (batch >= 0) {
+                nanosPerQuote[batch] = (System.nanoTime() - start) / QUOTES_PER_BATCH;
+            }
+        }
+        Arrays.sort(nanosPerQuote);
+        System.out.printf("delivery quote with cached location: median %.2f us, p99 %.2f us (checksum %.0f)%n",
+                nanosPerQuote[BATCHES / 2] / 1e3, nanosPerQuote[BATCHES * 99 / 100] / 1e3, checksum);
+
+        assertThat(nanosPerQuote[BATCHES / 2]).isLessThan(10_000);
+    }
+}
@@ -0,0 +1,88 @@
+package com.nomnom.order_service.pricing;
+
+import com.nomnom.order_service.dispatch.DriverLocationIndex;
+import com.nomnom.order_service.dto.DeliveryQuoteDTO;
+import com.nomnom.order_service.dto.GeoPointDTO;
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.event.OrderEventFeed;
+import com.nomnom.order_service.event.OrderEventType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeliveryQuoterTest {
+
+    private final PrepTimeTracker prepTimes = new PrepTimeTracker(new OrderEventFeed(null), 0.5, 15);
+    private final SurgePricing surgePricing = new SurgePricing(new OrderEventFeed(null), new DriverLocationIndex(),
+            true, 0.05, 1000, 10, 1.0, 0.5, 2.5, 1.0);
+    private final DeliveryQuoter quoter = new DeliveryQuoter(prepTimes, surgePricing, "2:2.5,5:4.0,8:5.5", 0.8, 5.0, 30, 1.0, 30, 20);
+
+    @Test
+    void feeFollowsTiersThenChargesPerKm() {
+        assertThat(quoter.fee(0.5)).isEqualTo(2.5);
+        assertThat(quoter.fee(2.0)).isEqualTo(2.5);
+        assertThat(quoter.fee(4.9)).isEqualTo(4.0);
+        assertThat(quoter.fee(8.0)).isEqualTo(5.5);
+        assertThat(quoter.fee(10.0)).isEqualTo(7.1);
+    }
+
+    @Test
+    void quoteUsesDistanceAndRollingPrepTime() {
+        // 0.03 degrees of latitude is about 3.34 km; 30 km/h makes that 7 minutes
+        GeoPointDTO restaurant = new GeoPointDTO(79.86, 6.90);
+        DeliveryQuoteDTO quote = quoter.quote("r1", restaurant, 6.93, 79.86);
+
+        assertThat(quote.getDistanceKm()).isBetween(3.3, 3.4);
+        assertThat(quote.getDeliveryFee()).isEqualTo(4.0);
+        assertThat(quote.getPrepMinutes()).isEqualTo(15);
+        assertThat(quote.getTravelMinutes()).isEqualTo(7);
+        assertThat(quote.getEtaMinutes()).isEqualTo(22);
+
+        prepTimes.onOrderEvent(readyAfterMinutes("r1", 25));
+        prepTimes.onOrderEvent(readyAfterMinutes("r1", 35));
+        assertThat(prepTimes.averageMinutes("r1")).isEqualTo(30.0);
+        assertThat(quoter.quote("r1", restaurant, 6.93, 79.86).getEtaMinutes()).isEqualTo(37);
+        assertThat(prepTimes.averageMinutes("r2")).isEqualTo(15.0);
+    }
+
+    @Test
+    void surgeInTheRestaurantsCellScalesTheFee() {
+        // Six orders and no drivers: pressure 6, target 1 + 0.5 * (6 - 1) = 3.5, capped at 2.5
+        for (int i = 0; i < 6; i++) {
+            surgePricing.recordDemand(6.90, 79.86, 5_000);
+        }
+        surgePricing.tick(5_000);
+
+        DeliveryQuoteDTO quote = quoter.quote("r1", new GeoPointDTO(79.86, 6.90), 6.93, 79.86);
+        assertThat(quote.getSurgeMultiplier()).isEqualTo(2.5);
+        assertThat(quote.getDeliveryFee()).isEqualTo(10.0);
+    }
+
+    @Test
+    void restaurantWithoutLocationGetsDefaultFee() {
+        DeliveryQuoteDTO quote = quoter.quote("r1", null, 6.93, 79.86);
+
+        assertThat(quote.getDistanceKm()).isNull();
+        assertThat(quote.getDeliveryFee()).isEqualTo(5.0);
+        assertThat(quote.getEtaMinutes()).isEqualTo(35);
+    }
+
+    @Test
+    void rejectsAddressesBeyondTheDeliveryRadius() {
+        assertThatThrownBy(() -> quoter.quote("r1", new GeoPointDTO(79.86, 6.90), 7.30, 79.86))
+                .hasMessage("Delivery address is too far from the restaurant");
+    }
+
+    private static OrderEvent readyAfterMinutes(String restaurantId, int minutes) {
+        OrderEvent event = new OrderEvent();
+        event.setType(OrderEventType.STATUS_CHANGED);
+        event.setOrderStatus("Ready");
+        event.setRestaurantId(restaurantId);
+        event.setOrderCreatedAt(new Date(0));
+        event.setOccurredAt(new Date(minutes * 60_000L));
+        return event;
+    }
+}
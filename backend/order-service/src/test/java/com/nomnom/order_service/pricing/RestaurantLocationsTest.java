@@ -0,0 +1,76 @@
+package com.nomnom.order_service.pricing;
+
+import com.nomnom.order_service.dto.GeoPointDTO;
+import com.nomnom.order_service.dto.RestaurantDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RestaurantLocationsTest {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicReference<GeoPointDTO> location = new AtomicReference<>(new GeoPointDTO(79.86, 6.90));
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    private RestaurantLocations locations(long ttlMillis, long maxIdleMillis) {
+        return new RestaurantLocations(restaurantId -> {
+            lookups.incrementAndGet();
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return new RestaurantDTO(restaurantId, "Pizzeria", "ONLINE", true, location.get());
+        }, ttlMillis, maxIdleMillis);
+    }
+
+    @Test
+    void onlyTheFirstQuoteForARestaurantLooksItUp() {
+        RestaurantLocations locations = locations(60_000, 60_000);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(locations.location("r1").getY()).isEqualTo(6.90);
+        }
+
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void refreshReloadsExpiredLocationsAndKeepsThemWhenTheReloadFails() throws InterruptedException {
+        RestaurantLocations locations = locations(20, 60_000);
+        locations.location("r1");
+        Thread.sleep(40);
+
+        location.set(new GeoPointDTO(79.90, 6.95));
+        locations.refresh();
+        assertThat(locations.location("r1").getY()).isEqualTo(6.95);
+
+        Thread.sleep(40);
+        failure.set(new RuntimeException("user-service unavailable"));
+        locations.refresh();
+        assertThat(locations.location("r1").getY()).isEqualTo(6.95);
+        assertThat(lookups).hasValue(3);
+    }
+
+    @Test
+    void restaurantsNobodyQuotesAreDropped() throws InterruptedException {
+        RestaurantLocations locations = locations(60_000, 20);
+        locations.location("r1");
+        Thread.sleep(40);
+
+        locations.refresh();
+
+        assertThat(locations.size()).isZero();
+    }
+
+    @Test
+    void unknownRestaurantIsNotCached() {
+        RestaurantLocations locations = locations(60_000, 60_000);
+        failure.set(new RuntimeException("Restaurant not found"));
+
+        assertThatThrownBy(() -> locations.location("missing")).hasMessage("Restaurant not found");
+        assertThat(locations.size()).isZero();
+    }
+}
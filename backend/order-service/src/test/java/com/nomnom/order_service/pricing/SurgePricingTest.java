@@ -0,0 +1,119 @@
+package com.nomnom.order_service.pricing;
+
+import com.nomnom.order_service.dispatch.DriverLocationIndex;
+import com.nomnom.order_service.event.OrderEventFeed;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SurgePricingTest {
+
+    private static final long START = 1_000_000;
+
+    private final DriverLocationIndex driverIndex = new DriverLocationIndex();
+    // 0.05 degree cells, 1s buckets, 10s window; target = 1 + 0.5 * (orders per driver - 1), moved halfway per tick
+    private final SurgePricing surge = new SurgePricing(new OrderEventFeed(null), driverIndex,
+            true, 0.05, 1000, 10, 1.0, 0.5, 2.5, 0.5);
+
+    @Test
+    void noSurgeWhileDriversKeepUpWithOrders() {
+        for (int i = 0; i < 4; i++) {
+            driverIndex.upsert("d" + i, "Driver", "V", "bike", 6.91, 79.86, true);
+            surge.recordDemand(6.91, 79.86, START);
+        }
+        surge.tick(START);
+
+        assertThat(surge.multiplier(6.91, 79.86)).isEqualTo(1.0);
+    }
+
+    @Test
+    void multiplierRisesSmoothlyAndDecaysOnceTheWindowPasses() {
+        for (int i = 0; i < 3; i++) {
+            surge.recordDemand(6.91, 79.86, START);
+        }
+        surge.tick(START);
+        assertThat(surge.multiplier(6.91, 79.86)).isEqualTo(1.5);
+        surge.tick(START + 1000);
+        assertThat(surge.multiplier(6.91, 79.86)).isEqualTo(1.75);
+        // Other cells are unaffected
+        assertThat(surge.multiplier(6.99, 79.86)).isEqualTo(1.0);
+
+        surge.tick(START + 11_000);
+        assertThat(surge.multiplier(6.91, 79.86)).isEqualTo(1.38);
+        for (int tick = 12; tick < 30; tick++) {
+            surge.tick(START + tick * 1000L);
+        }
+        assertThat(surge.multiplier(6.91, 79.86)).isEqualTo(1.0);
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLost() throws Exception {
+        BucketRing ring = new BucketRing(10);
+        List<Future<?>> writers = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        ring.increment(1000 + i % 3);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        }
+
+        assertThat(ring.sum(1002)).isEqualTo(80_000);
+        assertThat(ring.sum(1011)).isEqualTo(26_664);
+        assertThat(ring.isIdle(1020)).isTrue();
+    }
+
+    @Test
+    void demandRecordedWhileIdleCellsArePrunedIsNotLost() throws Exception {
+        // No threshold and no smoothing: a cell with one order and no drivers surges straight to 1.5
+        SurgePricing pruned = new SurgePricing(new OrderEventFeed(null), driverIndex, true, 0.05, 1000, 10, 0.0, 0.5, 2.5, 1.0);
+        int cells = 8_000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(5)) {
+            Future<?> ticker = pool.submit(() -> {
+                while (writing.get()) {
+                    pruned.tick(START);
+                }
+            });
+            for (int t = 0; t < 4; t++) {
+                int first = t;
+                writers.add(pool.submit(() -> {
+                    for (int i = first; i < cells; i += 4) {
+                        pruned.recordDemand(latitude(i), longitude(i), START);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            writing.set(false);
+            ticker.get();
+        }
+        pruned.tick(START);
+
+        for (int i = 0; i < cells; i++) {
+            assertThat(pruned.multiplier(latitude(i), longitude(i))).as("cell %d", i).isEqualTo(1.5);
+        }
+    }
+
+    private static double latitude(int cell) {
+        return 6.01 + (cell / 100) * 0.05;
+    }
+
+    private static double longitude(int cell) {
+        return 79.01 + (cell % 100) * 0.05;
+    }
+}
@@ -0,0 +1,20 @@
+package com.nomnom.order_service.schedule;
+
+import com.nomnom.order_service.event.OrderEventFeed;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScheduledOrderReleaserTest {
+
+    @Test
+    void schedulingFurtherAheadThanTheWheelCoversFailsAtStartup() {
+        assertThatCode(() -> new ScheduledOrderReleaser(null, null, new OrderEventFeed(null), 60_000, 63))
+                .doesNotThrowAnyException();
+
+        assertThatThrownBy(() -> new ScheduledOrderReleaser(null, null, new OrderEventFeed(null), 60_000, 64))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("horizon of 64 days");
+    }
+}
@@ -0,0 +1,81 @@
+package com.nomnom.order_service.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimingWheelTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final int[] SLOTS = {60, 60, 24, 64};
+
+    @Test
+    void firesEachTimerOnItsTickAcrossAllLevels() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, SLOTS, START);
+        Random random = new Random(11);
+        Map<String, Long> expiries = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            // Anything from a second to ten days out, so every level and every cascade path is used
+            long expiry = START + 1000 + (long) (random.nextDouble() * 10 * 24 * 3600 * 1000);
+            expiries.put("o" + i, expiry);
+            assertThat(wheel.add("o" + i, expiry)).isTrue();
+        }
+
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = START; now <= START + 10L * 24 * 3600 * 1000 + 1000; now += 7 * 1000) {
+            for (String key : wheel.advance(now)) {
+                firedAt.put(key, now);
+            }
+        }
+
+        assertThat(firedAt).hasSize(expiries.size());
+        expiries.forEach((key, expiry) -> {
+            // Fired on the first advance at or after its tick, never before
+            assertThat(firedAt.get(key) / 1000).isGreaterThanOrEqualTo(expiry / 1000);
+            assertThat(firedAt.get(key) - expiry).isLessThan(7 * 1000);
+        });
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void expiresInOrderWithinOneAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, SLOTS, START);
+        List<String> keys = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            wheel.add("o" + i, START + i * 37_000L);
+            keys.add("o" + i);
+        }
+
+        assertThat(wheel.advance(START + 200 * 37_000L)).containsExactlyElementsOf(keys);
+    }
+
+    @Test
+    void cancelledAndReplacedTimersFireOnlyAsLastScheduled() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, SLOTS, START);
+        wheel.add("cancelled", START + 90_000);
+        wheel.add("moved", START + 90_000);
+        wheel.cancel("cancelled");
+        wheel.add("moved", START + 3 * 3600_000);
+
+        assertThat(wheel.advance(START + 3600_000)).isEmpty();
+        assertThat(wheel.advance(START + 3 * 3600_000)).containsExactly("moved");
+    }
+
+    @Test
+    void dueTimersAreNotScheduledAndFarOnesAreRejected() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, SLOTS, START);
+
+        assertThat(wheel.add("now", START)).isFalse();
+        assertThat(wheel.add("past", START - 60_000)).isFalse();
+        assertThat(wheel.size()).isZero();
+        assertThatThrownBy(() -> wheel.add("far", START + wheel.horizonMillis()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
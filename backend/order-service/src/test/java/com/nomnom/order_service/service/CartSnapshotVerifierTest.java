@@ -0,0 +1,101 @@
+package com.nomnom.order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.order_service.dto.CartDTO;
+import com.nomnom.order_service.dto.CartSnapshotDTO;
+import com.nomnom.order_service.shared.enums.PotionSize;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartSnapshotVerifierTest {
+
+    private static final String SECRET = "test-secret";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CartSnapshotVerifier verifier = new CartSnapshotVerifier(SECRET, objectMapper);
+
+    @Test
+    void validSnapshotVerifies() throws Exception {
+        String token = sign(SECRET, snapshot(inSeconds(600)));
+
+        Optional<CartDTO> cart = verifier.verify(token, "c1", "r1");
+
+        assertThat(cart).isPresent();
+        assertThat(cart.get().getItems()).extracting(CartDTO.CartItemDTO::getItemId).containsExactly("pizza", "cola");
+        assertThat(cart.get().getItems()).extracting(CartDTO.CartItemDTO::getPotionSize)
+                .containsExactly(PotionSize.Large, PotionSize.Small);
+        assertThat(cart.get().getTotalPrice()).isEqualTo(29.0);
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() throws Exception {
+        String token = sign(SECRET, snapshot(inSeconds(600)));
+        CartSnapshotDTO tampered = snapshot(inSeconds(600));
+        tampered.getItems().get(0).setPrice(0.01);
+        String forgedPayload = encode(objectMapper.writeValueAsBytes(tampered));
+
+        String forged = forgedPayload + token.substring(token.lastIndexOf('.'));
+
+        assertThat(verifier.verify(forged, "c1", "r1")).isEmpty();
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() throws Exception {
+        String token = sign("some-other-secret", snapshot(inSeconds(600)));
+
+        assertThat(verifier.verify(token, "c1", "r1")).isEmpty();
+    }
+
+    @Test
+    void expiredTokenIsRejected() throws Exception {
+        String token = sign(SECRET, snapshot(inSeconds(-1)));
+
+        assertThat(verifier.verify(token, "c1", "r1")).isEmpty();
+    }
+
+    @Test
+    void snapshotOfAnotherCartIsRejected() throws Exception {
+        String token = sign(SECRET, snapshot(inSeconds(600)));
+
+        assertThat(verifier.verify(token, "c2", "r1")).isEmpty();
+        assertThat(verifier.verify(token, "c1", "r2")).isEmpty();
+    }
+
+    @Test
+    void nothingVerifiesWithoutASecret() throws Exception {
+        String token = sign(SECRET, snapshot(inSeconds(600)));
+
+        assertThat(new CartSnapshotVerifier("", objectMapper).verify(token, "c1", "r1")).isEmpty();
+        assertThat(verifier.verify("not-a-token", "c1", "r1")).isEmpty();
+    }
+
+    private static long inSeconds(long seconds) {
+        return System.currentTimeMillis() / 1000 + seconds;
+    }
+
+    private static CartSnapshotDTO snapshot(long expiresAt) {
+        return new CartSnapshotDTO("c1", "r1", expiresAt, List.of(
+                new CartSnapshotDTO.Item("pizza", "Pizza", 2, "Large", 12.0, null),
+                new CartSnapshotDTO.Item("cola", "Cola", 2, "Small", 2.5, null)));
+    }
+
+    // Same token format as cart-service's CartSnapshotService
+    private String sign(String secret, CartSnapshotDTO snapshot) throws Exception {
+        String payload = encode(objectMapper.writeValueAsBytes(snapshot));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return payload + "." + encode(mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
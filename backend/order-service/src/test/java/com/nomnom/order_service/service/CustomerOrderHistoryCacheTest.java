@@ -0,0 +1,133 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.dto.OrderDTO;
+import com.nomnom.order_service.event.OrderEventFeed;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerOrderHistoryCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CustomerOrderHistoryCache cache(long ttlMillis, int maxEntries) {
+        return cache(ttlMillis, maxEntries, 50, 5_000);
+    }
+
+    private CustomerOrderHistoryCache cache(long ttlMillis, int maxEntries, int pageSize, long maxOrders) {
+        return new CustomerOrderHistoryCache(new OrderEventFeed(null), meterRegistry, ttlMillis, maxEntries, pageSize, maxOrders);
+    }
+
+    private static Supplier<List<OrderDTO>> history(String... orderIds) {
+        return () -> Arrays.stream(orderIds).map(orderId -> {
+            OrderDTO order = new OrderDTO();
+            order.setOrderId(orderId);
+            return order;
+        }).toList();
+    }
+
+    private static List<String> orderIds(List<OrderDTO> orders) {
+        return orders.stream().map(OrderDTO::getOrderId).toList();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CustomerOrderHistoryCache cache = cache(60_000, 100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<List<OrderDTO>>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(callers.submit(() -> cache.get("cust-1", () -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return history("o1").get();
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<List<OrderDTO>> result : results) {
+                assertThat(orderIds(result.get(5, TimeUnit.SECONDS))).containsExactly("o1");
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.counter("order.history.cache", "result", "miss").count()).isEqualTo(1);
+    }
+
+    @Test
+    void loadThatRacedAnInvalidationIsNotServedAgain() {
+        CustomerOrderHistoryCache cache = cache(60_000, 100);
+        List<OrderDTO> stale = cache.get("cust-1", () -> {
+            // A write for this customer commits while the old history is being read
+            cache.invalidate("cust-1");
+            return history("old").get();
+        });
+
+        assertThat(orderIds(stale)).containsExactly("old");
+        assertThat(orderIds(cache.get("cust-1", history("new")))).containsExactly("new");
+        assertThat(orderIds(cache.get("cust-1", history("unused")))).containsExactly("new");
+    }
+
+    @Test
+    void evictsOldestEntriesBeyondCapacity() {
+        CustomerOrderHistoryCache cache = cache(60_000, 2);
+        cache.get("a", history("a1"));
+        cache.get("b", history("b1"));
+        cache.get("c", history("c1"));
+
+        assertThat(orderIds(cache.get("a", history("a2")))).containsExactly("a2");
+        assertThat(meterRegistry.counter("order.history.cache.evictions").count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void historyLongerThanAPageIsReturnedFromOneLoadAndNotCached() {
+        CustomerOrderHistoryCache cache = cache(60_000, 100, 2, 5_000);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<OrderDTO>> longHistory = () -> {
+            loads.incrementAndGet();
+            return history("o3", "o2", "o1").get();
+        };
+
+        assertThat(orderIds(cache.get("cust-1", longHistory))).containsExactly("o3", "o2", "o1");
+        assertThat(loads).hasValue(1);
+        assertThat(orderIds(cache.get("cust-1", longHistory))).containsExactly("o3", "o2", "o1");
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("order.history.cache.orders").gauge().value()).isZero();
+
+        cache.get("cust-2", history("p2", "p1"));
+        assertThat(orderIds(cache.get("cust-2", history("unused")))).containsExactly("p2", "p1");
+    }
+
+    @Test
+    void evictsOldestEntriesOnceTheCachedOrdersExceedTheLimit() {
+        CustomerOrderHistoryCache cache = cache(60_000, 100, 50, 4);
+        cache.get("a", history("a2", "a1"));
+        cache.get("b", history("b2", "b1"));
+        assertThat(meterRegistry.counter("order.history.cache.evictions").count()).isZero();
+
+        cache.get("c", history("c1"));
+
+        assertThat(meterRegistry.counter("order.history.cache.evictions").count()).isEqualTo(1);
+        assertThat(orderIds(cache.get("a", history("a3")))).containsExactly("a3");
+        assertThat(orderIds(cache.get("c", history("unused")))).containsExactly("c1");
+    }
+}
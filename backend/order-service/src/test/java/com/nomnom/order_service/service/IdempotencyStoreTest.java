@@ -0,0 +1,87 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.dto.OrderDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTest {
+
+    private static OrderDTO order(String orderId) {
+        OrderDTO order = new OrderDTO();
+        order.setOrderId(orderId);
+        return order;
+    }
+
+    @Test
+    void concurrentCallersWithTheSameKeyRunTheLoaderOnce() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(60_000, 100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<OrderDTO>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(callers.submit(() -> store.getOrCompute("cust-1:key-1", () -> {
+                    int attempt = loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return order("o" + attempt);
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<OrderDTO> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).getOrderId()).isEqualTo("o1");
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void failedAttemptIsNotRemembered() {
+        IdempotencyStore store = new IdempotencyStore(60_000, 100);
+
+        assertThatThrownBy(() -> store.getOrCompute("cust-1:key-1", () -> {
+            throw new RuntimeException("Cart is empty");
+        })).hasMessage("Cart is empty");
+
+        assertThat(store.getOrCompute("cust-1:key-1", () -> order("o2")).getOrderId()).isEqualTo("o2");
+    }
+
+    @Test
+    void keyIsForgottenOnceItsTtlHasPassed() throws InterruptedException {
+        IdempotencyStore store = new IdempotencyStore(500, 100);
+        assertThat(store.getOrCompute("cust-1:key-1", () -> order("o1")).getOrderId()).isEqualTo("o1");
+        assertThat(store.getOrCompute("cust-1:key-1", () -> order("o2")).getOrderId()).isEqualTo("o1");
+
+        Thread.sleep(600);
+        assertThat(store.getOrCompute("cust-1:key-1", () -> order("o3")).getOrderId()).isEqualTo("o3");
+    }
+
+    @Test
+    void oldestKeyIsEvictedWhenTheStoreIsFull() {
+        IdempotencyStore store = new IdempotencyStore(60_000, 2);
+        store.getOrCompute("k1", () -> order("o1"));
+        store.getOrCompute("k2", () -> order("o2"));
+        store.getOrCompute("k3", () -> order("o3"));
+
+        assertThat(store.getOrCompute("k1", () -> order("o1-again")).getOrderId()).isEqualTo("o1-again");
+        assertThat(store.getOrCompute("k3", () -> order("o3-again")).getOrderId()).isEqualTo("o3");
+    }
+}
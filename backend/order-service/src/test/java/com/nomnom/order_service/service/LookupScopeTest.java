@@ -0,0 +1,94 @@
+package com.nomnom.order_service.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LookupScopeTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void returnsEveryResultWhenAllLookupsSucceed() throws Exception {
+        LookupScope scope = new LookupScope(executor);
+        Future<String> cart = scope.fork(() -> "cart");
+        Future<String> restaurant = scope.fork(() -> {
+            Thread.sleep(20);
+            return "restaurant";
+        });
+        Future<Integer> menu = scope.fork(() -> 3);
+
+        scope.join(Duration.ofSeconds(5));
+
+        assertThat(cart.get()).isEqualTo("cart");
+        assertThat(restaurant.get()).isEqualTo("restaurant");
+        assertThat(menu.get()).isEqualTo(3);
+    }
+
+    @Test
+    void slowLookupTimesOutAndIsCancelled() throws InterruptedException {
+        LookupScope scope = new LookupScope(executor);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Future<String> slow = scope.fork(() -> sleepUntilInterrupted(started, interrupted));
+        Future<String> fast = scope.fork(() -> "fast");
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        long joinedAt = System.nanoTime();
+        assertThatThrownBy(() -> scope.join(Duration.ofMillis(100)))
+                .hasMessage("Checkout lookups timed out");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - joinedAt)).isLessThan(Duration.ofSeconds(5));
+        assertThat(slow.isCancelled()).isTrue();
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(fast.isDone()).isTrue();
+    }
+
+    @Test
+    void firstFailureCancelsItsSiblings() throws InterruptedException {
+        LookupScope scope = new LookupScope(executor);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        Future<String> cart = scope.fork(() -> sleepUntilInterrupted(started, interrupted));
+        Future<String> restaurant = scope.fork(() -> {
+            // Fail only once the others are in flight, so cancelling them has something to interrupt
+            started.await();
+            throw new IllegalStateException("Restaurant not found");
+        });
+        Future<String> menu = scope.fork(() -> sleepUntilInterrupted(started, interrupted));
+
+        assertThatThrownBy(() -> scope.join(Duration.ofSeconds(30)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Restaurant not found");
+
+        assertThat(restaurant.isCancelled()).isFalse();
+        assertThat(cart.isCancelled()).isTrue();
+        assertThat(menu.isCancelled()).isTrue();
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static String sleepUntilInterrupted(CountDownLatch started, CountDownLatch interrupted) {
+        started.countDown();
+        try {
+            Thread.sleep(60_000);
+            return "too late";
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            throw new IllegalStateException(e);
+        }
+    }
+}
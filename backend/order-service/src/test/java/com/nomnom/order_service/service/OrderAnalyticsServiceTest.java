@@ -0,0 +1,107 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.MongoIntegrationTest;
+import com.nomnom.order_service.dto.RevenueRollupDTO;
+import com.nomnom.order_service.event.InProcessOrderEventSink;
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.event.OrderEventType;
+import com.nomnom.order_service.model.OrderRollupState;
+import com.nomnom.order_service.model.RevenueRollup;
+import com.nomnom.order_service.shared.enums.RollupGranularity;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderAnalyticsServiceTest extends MongoIntegrationTest {
+
+    // Recent enough to be inside the rollup state's retention
+    private static final Instant DAY = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+    private static final Date PLACED_AT = Date.from(DAY.plus(Duration.ofMinutes(10 * 60 + 15)));
+
+    private static MongoTemplate mongoTemplate;
+    private static TransactionTemplate transactionTemplate;
+
+    private final InProcessOrderEventSink sink = new InProcessOrderEventSink();
+
+    @BeforeAll
+    static void setUp() {
+        SimpleMongoClientDatabaseFactory factory = new SimpleMongoClientDatabaseFactory(client, "order_analytics_test");
+        mongoTemplate = new MongoTemplate(factory);
+        transactionTemplate = new TransactionTemplate(new MongoTransactionManager(factory));
+    }
+
+    @BeforeEach
+    void reset() {
+        // Collections must exist up front: they cannot be created implicitly inside a transaction on older servers
+        for (Class<?> document : List.of(RevenueRollup.class, OrderRollupState.class)) {
+            mongoTemplate.dropCollection(document);
+            mongoTemplate.createCollection(document);
+        }
+        new OrderAnalyticsService(mongoTemplate, transactionTemplate, sink, "UTC");
+    }
+
+    private static OrderEvent event(String orderId, long revision, OrderEventType type, String status, double orderTotal) {
+        return event(orderId, revision, type, status, orderTotal, PLACED_AT);
+    }
+
+    private static OrderEvent event(String orderId, long revision, OrderEventType type, String status, double orderTotal,
+                                    Date placedAt) {
+        return new OrderEvent(null, orderId, revision, type, "cust-1", "rest-1", status, orderTotal, 5.0,
+                orderTotal + 5.0, null, null, null, null, placedAt, new Date(), null);
+    }
+
+    @Test
+    void countsEachOrderOnceAndTracksCancellationsAcrossReplays() {
+        OrderEvent created = event("o1", 1, OrderEventType.CREATED, "Pending", 20.0);
+        OrderEvent cancelled = event("o1", 2, OrderEventType.CANCELLED, "Cancelled", 20.0);
+        sink.publish(List.of(
+                created,
+                event("o2", 1, OrderEventType.CREATED, "Pending", 40.0),
+                created,                                                             // redelivered
+                cancelled,
+                cancelled,                                                           // redelivered
+                event("o1", 1, OrderEventType.STATUS_CHANGED, "Pending", 20.0)));    // stale
+
+        OrderAnalyticsService service = new OrderAnalyticsService(mongoTemplate, transactionTemplate, new InProcessOrderEventSink(), "UTC");
+        List<RevenueRollupDTO> hours = service.getRestaurantRevenue("rest-1", RollupGranularity.HOUR,
+                Date.from(DAY), Date.from(DAY.plus(Duration.ofDays(1))));
+
+        assertThat(hours).hasSize(1);
+        RevenueRollupDTO hour = hours.get(0);
+        assertThat(hour.getBucketStart()).isEqualTo(Date.from(DAY.plus(Duration.ofHours(10))));
+        assertThat(hour.getOrderCount()).isEqualTo(2);
+        assertThat(hour.getOrderTotal()).isEqualTo(60.0);
+        assertThat(hour.getDeliveryFee()).isEqualTo(10.0);
+        assertThat(hour.getCancelledCount()).isEqualTo(1);
+        assertThat(hour.getAverageBasket()).isEqualTo(30.0);
+
+        List<RevenueRollupDTO> top = service.getTopRestaurants(RollupGranularity.DAY,
+                Date.from(DAY), Date.from(DAY.plus(Duration.ofDays(7))), 10);
+        assertThat(top).extracting(RevenueRollupDTO::getRestaurantId, RevenueRollupDTO::getOrderCount)
+                .containsExactly(tuple("rest-1", 2L));
+    }
+
+    @Test
+    void eventsForOrdersOlderThanTheStateRetentionAreIgnored() {
+        // The order's rollup state may already have expired, so counting it would count the order a second time
+        Date longAgo = Date.from(Instant.now().minus(OrderRollupState.RETENTION).minus(Duration.ofDays(1)));
+        sink.publish(List.of(event("o1", 7, OrderEventType.CANCELLED, "Cancelled", 20.0, longAgo)));
+
+        assertThat(mongoTemplate.count(new Query(), RevenueRollup.class)).isZero();
+        assertThat(mongoTemplate.count(new Query(), OrderRollupState.class)).isZero();
+    }
+}
@@ -0,0 +1,98 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.MongoIntegrationTest;
+import com.nomnom.order_service.model.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderArchiverTest extends MongoIntegrationTest {
+
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        mongoTemplate = templateFor("order_archive_test");
+    }
+
+    @BeforeEach
+    void reset() {
+        mongoTemplate.dropCollection(Order.class);
+        mongoTemplate.dropCollection(Order.ARCHIVE_COLLECTION);
+    }
+
+    private static void insert(String orderId, String status, int ageDays) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setCustomerId("cust-1");
+        order.setOrderStatus(status);
+        order.setRevision(3);
+        order.setCreatedAt(Date.from(Instant.now().minus(Duration.ofDays(ageDays))));
+        mongoTemplate.insert(order);
+    }
+
+    private static OrderArchiver archiver(int batchSize) {
+        return new OrderArchiver(mongoTemplate, new SimpleMeterRegistry(), List.of("Delivered", "Cancelled"),
+                7, batchSize, 10, 0);
+    }
+
+    private static List<String> ids(String collection) {
+        return mongoTemplate.findAll(Order.class, collection).stream().map(Order::getOrderId).sorted().toList();
+    }
+
+    @Test
+    void movesOnlyOldTerminalOrders() {
+        insert("old-delivered", "Delivered", 30);
+        insert("old-cancelled", "Cancelled", 10);
+        insert("old-preparing", "Preparing", 30);
+        insert("new-delivered", "Delivered", 1);
+
+        archiver(1).archive();
+
+        assertThat(ids(Order.ARCHIVE_COLLECTION)).containsExactly("old-cancelled", "old-delivered");
+        assertThat(ids("orders")).containsExactly("new-delivered", "old-preparing");
+    }
+
+    @Test
+    void keepsOrderHotWhenItChangedDuringTheMove() {
+        insert("o1", "Delivered", 30);
+        OrderArchiver archiver = archiver(10);
+        List<Order> candidates = archiver.findCandidates(Date.from(Instant.now().minus(Duration.ofDays(7))));
+
+        // A write lands between the archiver's read and its delete
+        mongoTemplate.updateFirst(new Query(Criteria.where("orderId").is("o1")), new Update().inc("revision", 1), Order.class);
+
+        assertThat(archiver.move(candidates)).isZero();
+        assertThat(ids("orders")).containsExactly("o1");
+        // The next run archives the newer revision over the stale copy
+        archiver.archive();
+        assertThat(ids("orders")).isEmpty();
+        assertThat(mongoTemplate.findById("o1", Order.class, Order.ARCHIVE_COLLECTION).getRevision()).isEqualTo(4);
+    }
+
+    @Test
+    void movesOrdersWrittenBeforeRevisionsExisted() {
+        mongoTemplate.insert(new Document("_id", "legacy")
+                .append("customerId", "cust-1")
+                .append("orderStatus", "Delivered")
+                .append("createdAt", Date.from(Instant.now().minus(Duration.ofDays(30)))), "orders");
+
+        archiver(1).archive();
+
+        assertThat(ids("orders")).isEmpty();
+        assertThat(ids(Order.ARCHIVE_COLLECTION)).containsExactly("legacy");
+    }
+}
@@ -0,0 +1,81 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.MongoIntegrationTest;
+import com.nomnom.order_service.config.MongoIndexInitializer;
+import com.nomnom.order_service.model.Order;
+import com.nomnom.order_service.request.OrderSearchRequest;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderSearchIndexTest extends MongoIntegrationTest {
+
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        mongoTemplate = templateFor("order_search_test");
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        new MongoIndexInitializer(mongoTemplate, mappingContext).ensureIndexes();
+
+        String[] statuses = {"Pending", "Preparing", "Ready", "Out for Delivery", "Delivered", "Cancelled"};
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 500; i++) {
+            Order order = new Order();
+            order.setOrderId(UUID.randomUUID().toString());
+            order.setCustomerId("cust-" + (i % 50));
+            order.setRestaurantId("rest-" + (i % 10));
+            order.setOrderStatus(statuses[i % statuses.length]);
+            order.setCreatedAt(new Date(now - i * 60_000L));
+            order.setUpdatedAt(order.getCreatedAt());
+            mongoTemplate.insert(order);
+        }
+    }
+
+    static Stream<Arguments> searches() {
+        Date from = new Date(System.currentTimeMillis() - 3_600_000L);
+        Date to = new Date();
+        return Stream.of(
+                Arguments.of("no filters", new OrderSearchRequest(null, null, null, null, "desc", 0, 50)),
+                Arguments.of("restaurant", new OrderSearchRequest("rest-1", null, null, null, "desc", 0, 50)),
+                Arguments.of("restaurant + statuses", new OrderSearchRequest("rest-1", List.of("Pending", "Ready"), null, null, "desc", 0, 50)),
+                Arguments.of("restaurant + status + range", new OrderSearchRequest("rest-2", List.of("Pending"), from, to, "asc", 1, 20)),
+                Arguments.of("restaurant + range", new OrderSearchRequest("rest-3", null, from, to, "desc", 0, 50)),
+                Arguments.of("statuses", new OrderSearchRequest(null, List.of("Delivered", "Cancelled"), null, null, "desc", 0, 50)),
+                Arguments.of("status + range", new OrderSearchRequest(null, List.of("Pending"), from, to, "asc", 0, 50)),
+                Arguments.of("range", new OrderSearchRequest(null, null, from, to, "desc", 2, 10))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("searches")
+    void searchNeverScansTheCollection(String name, OrderSearchRequest request) {
+        Query query = OrderService.buildSearchQuery(request);
+        QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getPersistentEntity(Order.class);
+
+        Document explain = mongoTemplate.getCollection("orders")
+                .find(queryMapper.getMappedObject(query.getQueryObject(), entity))
+                .sort(queryMapper.getMappedSort(query.getSortObject(), entity))
+                .skip((int) query.getSkip())
+                .limit(query.getLimit())
+                .explain();
+
+        Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        assertThat(winningPlan.toJson()).contains("IXSCAN").doesNotContain("COLLSCAN");
+    }
+}
@@ -0,0 +1,356 @@
+package com.nomnom.order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nomnom.order_service.MongoIntegrationTest;
+import com.nomnom.order_service.client.IRestaurantClient;
+import com.nomnom.order_service.config.MongoIndexInitializer;
+import com.nomnom.order_service.dispatch.DriverLocationIndex;
+import com.nomnom.order_service.dispatch.DriverReservations;
+import com.nomnom.order_service.dispatch.DriverUnavailableException;
+import com.nomnom.order_service.dto.CartDTO;
+import com.nomnom.order_service.dto.GeoPointDTO;
+import com.nomnom.order_service.dto.MenuItemDTO;
+import com.nomnom.order_service.dto.OrderDTO;
+import com.nomnom.order_service.dto.RestaurantDTO;
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.event.OrderEventFeed;
+import com.nomnom.order_service.event.OrderEventType;
+import com.nomnom.order_service.event.OrderOutbox;
+import com.nomnom.order_service.model.DriverReservation;
+import com.nomnom.order_service.model.Order;
+import com.nomnom.order_service.pricing.DeliveryQuoter;
+import com.nomnom.order_service.pricing.PrepTimeTracker;
+import com.nomnom.order_service.pricing.RestaurantLocations;
+import com.nomnom.order_service.pricing.SurgePricing;
+import com.nomnom.order_service.repository.OrderRepository;
+import com.nomnom.order_service.request.AssignDriverRequest;
+import com.nomnom.order_service.request.BulkOrderRequest;
+import com.nomnom.order_service.request.CreateOrderRequest;
+import com.nomnom.order_service.response.BulkOrderResponse;
+import com.nomnom.order_service.shared.enums.DriverReservationStatus;
+import com.nomnom.order_service.shared.enums.PotionSize;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.nomnom.order_service.request.BulkOrderRequest.Operation.OperationType.CANCEL;
+import static com.nomnom.order_service.request.BulkOrderRequest.Operation.OperationType.UPDATE_STATUS;
+import static com.nomnom.order_service.response.BulkOrderResponse.ItemResult.Outcome.APPLIED;
+import static com.nomnom.order_service.response.BulkOrderResponse.ItemResult.Outcome.INVALID;
+import static com.nomnom.order_service.response.BulkOrderResponse.ItemResult.Outcome.NOT_FOUND;
+import static com.nomnom.order_service.response.BulkOrderResponse.ItemResult.Outcome.PRECONDITION_FAILED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OrderServiceTest extends MongoIntegrationTest {
+
+    private static MongoTemplate mongoTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static OrderRepository orderRepository;
+    private static ExecutorService lookupExecutor;
+
+    private final AtomicInteger cartLookups = new AtomicInteger();
+
+    @BeforeAll
+    static void setUp() {
+        SimpleMongoClientDatabaseFactory factory = new SimpleMongoClientDatabaseFactory(client, "order_service_test");
+        mongoTemplate = new MongoTemplate(factory);
+        transactionTemplate = new TransactionTemplate(new MongoTransactionManager(factory));
+        orderRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(OrderRepository.class);
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        new MongoIndexInitializer(mongoTemplate, mappingContext).ensureIndexes();
+        lookupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        lookupExecutor.shutdownNow();
+    }
+
+    @BeforeEach
+    void reset() {
+        for (Class<?> document : List.of(Order.class, OrderEvent.class, DriverReservation.class)) {
+            mongoTemplate.remove(new Query(), document);
+        }
+    }
+
+    private OrderService service(IdempotencyStore idempotencyStore) {
+        return service(idempotencyStore, new OrderOutbox(mongoTemplate));
+    }
+
+    private OrderService service(IdempotencyStore idempotencyStore, OrderOutbox orderOutbox) {
+        OrderEventFeed feed = new OrderEventFeed(null);
+        DeliveryQuoter quoter = new DeliveryQuoter(new PrepTimeTracker(feed, 0.5, 15),
+                new SurgePricing(feed, new DriverLocationIndex(), false, 0.05, 1000, 10, 1.0, 0.5, 2.5, 1.0),
+                "2:2.5,5:4.0,8:5.5", 0.8, 5.0, 30, 1.3, 25, 20);
+        IRestaurantClient restaurantClient = restaurantId -> new RestaurantDTO(restaurantId, "Pizzeria", "ONLINE", true, new GeoPointDTO(79.86, 6.90));
+        return new OrderService(orderRepository, mongoTemplate,
+                (customerId, restaurantId) -> {
+                    cartLookups.incrementAndGet();
+                    return cart(customerId, restaurantId);
+                },
+                new CartSnapshotVerifier("", new ObjectMapper()),
+                restaurantClient,
+                restaurantId -> List.of(new MenuItemDTO(1L, restaurantId, "Pizza", true,
+                        List.of(new MenuItemDTO.PortionDTO("Medium (10 inch)", 12.0)))),
+                lookupExecutor, 3000,
+                idempotencyStore,
+                orderOutbox,
+                transactionTemplate,
+                new CustomerOrderHistoryCache(feed, new SimpleMeterRegistry(), 60_000, 100, 50, 5_000),
+                new DriverReservations(mongoTemplate, 60_000),
+                quoter, new RestaurantLocations(restaurantClient, 300_000, 3_600_000), 10, 30);
+    }
+
+    private static CartDTO cart(String customerId, String restaurantId) {
+        return new CartDTO("cart-1", customerId, restaurantId,
+                List.of(new CartDTO.CartItemDTO("1", "Pizza", 2, PotionSize.Medium, 12.0, 24.0, null)),
+                24.0, null, null);
+    }
+
+    private static CreateOrderRequest request(String customerId) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setCustomerId(customerId);
+        request.setRestaurantId("rest-1");
+        request.setCustomerName("Ada");
+        request.setCustomerContact("0771234567");
+        request.setLatitude(6.93);
+        request.setLongitude(79.86);
+        request.setPaymentType("CASH");
+        return request;
+    }
+
+    private static Order order(String orderId, String status) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setCustomerId("cust-1");
+        order.setRestaurantId("rest-1");
+        order.setOrderStatus(status);
+        order.setCreatedAt(new Date());
+        order.setUpdatedAt(new Date());
+        return order;
+    }
+
+    private static BulkOrderRequest.Operation assign(String orderId, String driverId) {
+        return new BulkOrderRequest.Operation(orderId, BulkOrderRequest.Operation.OperationType.ASSIGN_DRIVER, null,
+                new AssignDriverRequest(driverId, "Driver " + driverId, "CAB-1234"), null);
+    }
+
+    private static BulkOrderRequest.Operation operation(String orderId, BulkOrderRequest.Operation.OperationType type,
+                                                        String status, String expectedStatus) {
+        return new BulkOrderRequest.Operation(orderId, type, status, null, expectedStatus);
+    }
+
+    private static DriverReservation reservation(String driverId) {
+        return mongoTemplate.findById(driverId, DriverReservation.class);
+    }
+
+    @Test
+    void bulkUpdateReportsEveryItemOnItsOwn() {
+        OrderService orderService = service(new IdempotencyStore(60_000, 100));
+        mongoTemplate.insertAll(List.of(order("o1", "Pending"), order("o2", "Preparing"), order("o3", "Delivered"),
+                order("o4", "Pending"), order("o5", "Pending")));
+        // d2 is already committed to another order
+        new DriverReservations(mongoTemplate, 60_000).reserve("d2", "other-order");
+
+        BulkOrderResponse response = orderService.bulkUpdate(new BulkOrderRequest(List.of(
+                operation("o1", UPDATE_STATUS, "Preparing", "Pending"),
+                operation("o2", UPDATE_STATUS, "Ready", "Pending"),
+                operation("o3", CANCEL, null, null),
+                operation("missing", UPDATE_STATUS, "Ready", null),
+                assign("o4", "d1"),
+                assign("o5", "d2"),
+                operation("o1", CANCEL, null, null))));
+
+        assertThat(response.getResults())
+                .extracting(BulkOrderResponse.ItemResult::getOrderId, BulkOrderResponse.ItemResult::getOutcome,
+                        BulkOrderResponse.ItemResult::getOrderStatus)
+                .containsExactly(
+                        tuple("o1", APPLIED, "Preparing"),
+                        tuple("o2", PRECONDITION_FAILED, "Preparing"),
+                        tuple("o3", PRECONDITION_FAILED, "Delivered"),
+                        tuple("missing", NOT_FOUND, null),
+                        tuple("o4", APPLIED, "Out for Delivery"),
+                        tuple("o5", PRECONDITION_FAILED, null),
+                        tuple("o1", INVALID, null));
+        assertThat(response.getApplied()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(5);
+        assertThat(orderRepository.findById("o2").orElseThrow().getOrderStatus()).isEqualTo("Preparing");
+        assertThat(orderRepository.findById("o4").orElseThrow().getDriverDetails().getDriverId()).isEqualTo("d1");
+        assertThat(orderRepository.findById("o5").orElseThrow().getDriverDetails()).isNull();
+        assertThat(reservation("d1").getOrderId()).isEqualTo("o4");
+        assertThat(reservation("d2").getOrderId()).isEqualTo("other-order");
+        assertThat(mongoTemplate.count(new Query(), OrderEvent.class)).isEqualTo(2);
+    }
+
+    @Test
+    void driverReservedForAnAssignmentThatDidNotApplyIsReleased() {
+        OrderService orderService = service(new IdempotencyStore(60_000, 100));
+        mongoTemplate.insert(order("o1", "Cancelled"));
+
+        BulkOrderResponse response = orderService.bulkUpdate(new BulkOrderRequest(List.of(assign("o1", "d1"))));
+
+        assertThat(response.getResults()).extracting(BulkOrderResponse.ItemResult::getOutcome).containsExactly(PRECONDITION_FAILED);
+        assertThat(reservation("d1").getStatus()).isEqualTo(DriverReservationStatus.AVAILABLE);
+    }
+
+    @Test
+    void driversReservedByAFailedBulkUpdateAreReleased() {
+        OrderOutbox failingOutbox = new OrderOutbox(mongoTemplate) {
+            @Override
+            public void appendAll(List<Order> orders, Function<Order, OrderEventType> typeOf) {
+                throw new IllegalStateException("outbox unavailable");
+            }
+        };
+        OrderService orderService = service(new IdempotencyStore(60_000, 100), failingOutbox);
+        mongoTemplate.insertAll(List.of(order("o1", "Pending"), order("o2", "Pending")));
+
+        assertThatThrownBy(() -> orderService.bulkUpdate(new BulkOrderRequest(List.of(assign("o1", "d1"), assign("o2", "d2")))))
+                .hasMessage("outbox unavailable");
+
+        assertThat(reservation("d1").getStatus()).isEqualTo(DriverReservationStatus.AVAILABLE);
+        assertThat(reservation("d2").getStatus()).isEqualTo(DriverReservationStatus.AVAILABLE);
+        assertThat(orderRepository.findById("o1").orElseThrow().getDriverDetails()).isNull();
+        assertThat(new DriverReservations(mongoTemplate, 60_000).reserve("d1", "o3")).isTrue();
+    }
+
+    @Test
+    void reassigningTheSameDriverKeepsTheBatchAndItsReservation() {
+        OrderService orderService = service(new IdempotencyStore(60_000, 100));
+        Order batched = order("o1", "Out for Delivery");
+        batched.setDriverDetails(new Order.DriverDetails("d1", "Driver d1", "CAB-1234"));
+        batched.setBatchId("batch-1");
+        batched.setDeliverySequence(2);
+        mongoTemplate.insert(batched);
+        new DriverReservations(mongoTemplate, 60_000).reserve("d1", "batch-1");
+
+        OrderDTO order = orderService.assignDriver("o1", new AssignDriverRequest("d1", "Driver d1", "CAB-9999"));
+
+        assertThat(order.getRevision()).isEqualTo(1);
+        Order stored = orderRepository.findById("o1").orElseThrow();
+        assertThat(stored.getDriverDetails().getVehicleNumber()).isEqualTo("CAB-9999");
+        assertThat(stored.getBatchId()).isEqualTo("batch-1");
+        assertThat(stored.getDeliverySequence()).isEqualTo(2);
+        assertThat(reservation("d1").getOrderId()).isEqualTo("batch-1");
+    }
+
+    @Test
+    void resendingTheSameDriverForAnUnbatchedOrderKeepsTheirReservation() {
+        OrderService orderService = service(new IdempotencyStore(60_000, 100));
+        mongoTemplate.insert(order("o1", "Ready"));
+        orderService.assignDriver("o1", new AssignDriverRequest("d1", "Driver d1", "CAB-1234"));
+
+        OrderDTO order = orderService.assignDriver("o1", new AssignDriverRequest("d1", "Driver d1", "CAB-9999"));
+
+        assertThat(order.getDriverDetails().getVehicleNumber()).isEqualTo("CAB-9999");
+        assertThat(reservation("d1").getStatus()).isEqualTo(DriverReservationStatus.RESERVED);
+        assertThat(reservation("d1").getOrderId()).isEqualTo("o1");
+    }
+
+    @Test
+    void reassigningAnotherDriverReleasesThePreviousOne() {
+        OrderService orderService = service(new IdempotencyStore(60_000, 100));
+        mongoTemplate.insert(order("o1", "Ready"));
+        orderService.assignDriver("o1", new AssignDriverRequest("d1", "Driver d1", "CAB-1234"));
+
+        OrderDTO order = orderService.assignDriver("o1", new AssignDriverRequest("d2", "Driver d2", "CAB-5678"));
+
+        assertThat(order.getRevision()).isEqualTo(2);
+        assertThat(orderRepository.findById("o1").orElseThrow().getDriverDetails().getDriverId()).isEqualTo("d2");
+        assertThat(reservation("d1").getStatus()).isEqualTo(DriverReservationStatus.AVAILABLE);
+        assertThat(reservation("d2").getOrderId()).isEqualTo("o1");
+        assertThat(mongoTemplate.find(new Query(), OrderEvent.class)).extracting(OrderEvent::getRevision).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void racingAssignmentsOfOneDriverToTwoOrdersHaveExactlyOneWinner() throws Exception {
+        OrderService orderService = service(new IdempotencyStore(60_000, 100));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 20; round++) {
+                reset();
+                mongoTemplate.insertAll(List.of(order("o1", "Ready"), order("o2", "Ready")));
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<OrderDTO>> attempts = new ArrayList<>();
+                for (String orderId : List.of("o1", "o2")) {
+                    attempts.add(pool.submit(() -> {
+                        start.await();
+                        return orderService.assignDriver(orderId, new AssignDriverRequest("d1", "Driver d1", "CAB-1234"));
+                    }));
+                }
+                start.countDown();
+
+                List<String> winners = new ArrayList<>();
+                for (Future<OrderDTO> attempt : attempts) {
+                    try {
+                        winners.add(attempt.get(10, TimeUnit.SECONDS).getOrderId());
+                    } catch (ExecutionException e) {
+                        assertThat(e.getCause()).isInstanceOf(DriverUnavailableException.class);
+                    }
+                }
+                assertThat(winners).hasSize(1);
+                assertThat(mongoTemplate.count(new Query(Criteria.where("driverDetails.driverId").is("d1")), Order.class)).isEqualTo(1);
+                assertThat(reservation("d1").getOrderId()).isEqualTo(winners.get(0));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void historyLongerThanTheCachedPageIsReturnedInFull() {
+        OrderService orderService = service(new IdempotencyStore(60_000, 100));
+        List<Order> history = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Order order = order(String.format("o%02d", i), "Delivered");
+            order.setCreatedAt(new Date(1_700_000_000_000L + i * 60_000L));
+            history.add(order);
+        }
+        mongoTemplate.insert(history.subList(0, 20), Order.ARCHIVE_COLLECTION);
+        mongoTemplate.insertAll(history.subList(20, 60));
+
+        List<OrderDTO> orders = orderService.getOrdersByCustomer("cust-1");
+
+        assertThat(orders).hasSize(60);
+        assertThat(orders.get(0).getOrderId()).isEqualTo("o59");
+        assertThat(orders.get(59).getOrderId()).isEqualTo("o00");
+    }
+
+    @Test
+    void retryAfterTheKeyLeftMemoryReturnsTheOriginalOrderFromMongo() {
+        // Room for one key only, so the second order pushes the first key out of memory
+        OrderService orderService = service(new IdempotencyStore(60_000, 1));
+        OrderDTO original = orderService.createOrder(request("cust-1"), "key-1");
+        orderService.createOrder(request("cust-2"), "key-2");
+
+        OrderDTO retried = orderService.createOrder(request("cust-1"), "key-1");
+
+        assertThat(retried.getOrderId()).isEqualTo(original.getOrderId());
+        assertThat(retried.getTotalAmount()).isEqualTo(original.getTotalAmount());
+        assertThat(orderRepository.count()).isEqualTo(2);
+        assertThat(cartLookups).hasValue(2);
+    }
+}
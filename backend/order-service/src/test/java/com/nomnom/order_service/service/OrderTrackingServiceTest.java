@@ -0,0 +1,148 @@
+package com.nomnom.order_service.service;
+
+import com.nomnom.order_service.controller.OrderTrackingController;
+import com.nomnom.order_service.dto.OrderDTO;
+import com.nomnom.order_service.event.OrderEvent;
+import com.nomnom.order_service.event.OrderEventFeed;
+import com.nomnom.order_service.event.OrderEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class OrderTrackingServiceTest {
+
+    private final IOrderService orderService = mock(IOrderService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch releaseWrites = new CountDownLatch(1);
+    private OrderTrackingService tracking;
+
+    @AfterEach
+    void shutDown() {
+        releaseWrites.countDown();
+        tracking.shutdown();
+    }
+
+    private MockMvc mockMvc(int bufferSize, MappingJackson2HttpMessageConverter jsonConverter) {
+        tracking = new OrderTrackingService(orderService, new OrderEventFeed(null), meterRegistry, 60_000, bufferSize, 100);
+        return MockMvcBuilders.standaloneSetup(new OrderTrackingController(tracking))
+                .setMessageConverters(new StringHttpMessageConverter(), jsonConverter)
+                .build();
+    }
+
+    private static OrderEvent event(String orderId, long revision, String status) {
+        return new OrderEvent(null, orderId, revision, OrderEventType.STATUS_CHANGED, "cust-1", "rest-1", status,
+                20.0, 5.0, 25.0, null, null, null, null, new Date(), new Date(), null);
+    }
+
+    private static OrderDTO order(String orderId, long revision, String status) {
+        OrderDTO order = new OrderDTO();
+        order.setOrderId(orderId);
+        order.setCustomerId("cust-1");
+        order.setRestaurantId("rest-1");
+        order.setOrderStatus(status);
+        order.setTotalAmount(25.0);
+        order.setRevision(revision);
+        order.setUpdatedAt(new Date());
+        return order;
+    }
+
+    @Test
+    void changesMadeWhileTheSnapshotLoadsFollowItWithoutDuplicates() throws Exception {
+        MockMvc mockMvc = mockMvc(32, new MappingJackson2HttpMessageConverter());
+        // Revisions 3 and 4 commit between the subscription and the read; the read already sees revision 3
+        when(orderService.getOrderById("o1")).thenAnswer(invocation -> {
+            tracking.onOrderEvent(event("o1", 3, "Preparing"));
+            tracking.onOrderEvent(event("o1", 4, "Ready"));
+            return order("o1", 3, "Preparing");
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/order/track/o1")).andExpect(request().asyncStarted()).andReturn();
+        String stream = awaitContent(result, content -> content.contains("id:o1:4"));
+
+        assertThat(stream.indexOf("event:SNAPSHOT")).isNotNegative().isLessThan(stream.indexOf("id:o1:4"));
+        assertThat(occurrences(stream, "event:STATUS_CHANGED")).isEqualTo(1);
+
+        // A redelivered revision is dropped, a newer one goes through
+        tracking.onOrderEvent(event("o1", 4, "Ready"));
+        tracking.onOrderEvent(event("o1", 5, "Out for Delivery"));
+        stream = awaitContent(result, content -> content.contains("id:o1:5"));
+        assertThat(occurrences(stream, "event:STATUS_CHANGED")).isEqualTo(2);
+    }
+
+    @Test
+    void heartbeatIsSentToIdleStreams() throws Exception {
+        MockMvc mockMvc = mockMvc(32, new MappingJackson2HttpMessageConverter());
+        MvcResult result = mockMvc.perform(get("/api/order/track/customer/cust-1"))
+                .andExpect(request().asyncStarted()).andReturn();
+
+        tracking.heartbeat();
+
+        assertThat(awaitContent(result, content -> content.contains(":heartbeat"))).doesNotContain("event:");
+    }
+
+    @Test
+    void slowConsumerIsDisconnectedOnceItsBufferIsFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        // Stands in for a client that stops reading: the first event's write blocks until the test releases it
+        MappingJackson2HttpMessageConverter stalledClient = new MappingJackson2HttpMessageConverter() {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                writing.countDown();
+                try {
+                    releaseWrites.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.writeInternal(object, type, outputMessage);
+            }
+        };
+        MockMvc mockMvc = mockMvc(2, stalledClient);
+        mockMvc.perform(get("/api/order/track/restaurant/rest-1")).andExpect(request().asyncStarted());
+        assertThat(meterRegistry.get("order.tracking.subscribers").gauge().value()).isEqualTo(1);
+
+        tracking.onOrderEvent(event("o1", 1, "Pending"));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        tracking.onOrderEvent(event("o2", 1, "Pending"));
+        tracking.onOrderEvent(event("o3", 1, "Pending"));
+        assertThat(meterRegistry.counter("order.tracking.evictions").count()).isZero();
+
+        tracking.onOrderEvent(event("o4", 1, "Pending"));
+
+        assertThat(meterRegistry.counter("order.tracking.evictions").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("order.tracking.subscribers").gauge().value()).isZero();
+    }
+
+    private static String awaitContent(MvcResult result, Predicate<String> condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String content = result.getResponse().getContentAsString();
+        while (!condition.test(content) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        assertThat(condition.test(content)).as("stream so far: %s", content).isTrue();
+        return content;
+    }
+
+    private static int occurrences(String text, String token) {
+        return text.split(token, -1).length - 1;
+    }
+}
@@ -34,9 +34,10 @@ export async function GET(request: NextRequest, { params }: { params: { customer
       throw new Error(`Error fetching cart: ${response.status} - ${errorDetails}`);
     }
 
-    // Parse and return the cart data
+    // Parse and return the cart data, passing the signed cart snapshot through for checkout
     const data = await response.json();
-    return NextResponse.json(data);
+    const cartSnapshot = response.headers.get("X-Cart-Snapshot");
+    return NextResponse.json(data, cartSnapshot ? { headers: { "X-Cart-Snapshot": cartSnapshot } } : undefined);
   } catch (error) {
     console.error("Error fetching cart:", error);
 
@@ -42,6 +42,7 @@ export default function CheckoutPage({ params }: { params: { customerId: string;
   const { customerId, restaurantId } = params
   const router = useRouter()
   const [cart, setCart] = useState<Cart | null>(null)
+  const [cartSnapshot, setCartSnapshot] = useState<string | null>(null)
   const [isLoading, setIsLoading] = useState(true)
   const [isSubmitting, setIsSubmitting] = useState(false)
   const [customerInfo, setCustomerInfo] = useState({
@@ -62,6 +63,7 @@ export default function CheckoutPage({ params }: { params: { customerId: string;
       setIsLoading(true)
       const response = await axios.get<Cart>(`/api/cart/${customerId}/${restaurantId}`)
       setCart(response.data)
+      setCartSnapshot(response.headers["x-cart-snapshot"] ?? null)
     } catch (error) {
       console.error("Error fetching cart:", error)
       toast({
@@ -155,6 +157,7 @@ export default function CheckoutPage({ params }: { params: { customerId: string;
         longitude: customerInfo.longitude,
         latitude: customerInfo.latitude,
         paymentType,
+        cartSnapshot,
       }
 
       // Call order API